@@ -47,7 +47,7 @@ class MultipleOccurrence extends Occurrence {
 
 	@Override
 	public String toString() {
-		StringJoiner joiner = new StringJoiner(",");
+		StringJoiner joiner = new StringJoiner("|");
 		for (Occurrence o : occurs) {
 			joiner.add(o.toString());
 		}
@@ -17,34 +17,76 @@ package sipka.syntax.parser.model.parse.context;
 
 import java.util.NavigableMap;
 
+import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.container.value.ValueConsumer;
 
 public class CallingContext extends ParseContext {
-	public static ParseContext merge(DeclaringContext contexta, ParseContext contextb) {
-		return new CallingContext(contexta, 0, contextb.localsMap, contextb.getCurrentValueConsumer());
+	/**
+	 * Creates the context for a child rule of a container.
+	 * <p>
+	 * The created context is {@linkplain ParseHelper#internContext(ParseContext) interned} in the helper.
+	 * 
+	 * @param helper
+	 *            The parse helper.
+	 * @param contexta
+	 *            The declaring context of the child.
+	 * @param contextb
+	 *            The context of the container.
+	 * @return The created context.
+	 */
+	public static ParseContext merge(ParseHelper helper, DeclaringContext contexta, ParseContext contextb) {
+		return helper.internContext(new CallingContext(contexta, 0, contextb, contextb.getCurrentValueConsumer(),
+				contextb.getParameterFrame()));
 	}
 
-	public static ParseContext mergeWithBuiltInsAndVariables(ParseContext contexta, DeclaringContext contextb,
-			NavigableMap<String, Object> vars) {
-		return new ParseContext(new ParseContext(contexta, 0, contextb.localsMap), FLAG_PARENT_BUILTINS_ONLY, vars);
+	/**
+	 * Creates the context for a rule invocation.
+	 * <p>
+	 * The invoked rule can only access the arguments in the given frame, and the declarations from the declaring
+	 * contexts of its children. Therefore no other state of the calling context is retained apart from the value
+	 * consumer.
+	 * <p>
+	 * The created context is {@linkplain ParseHelper#internContext(ParseContext) interned} in the helper.
+	 * 
+	 * @param helper
+	 *            The parse helper.
+	 * @param contexta
+	 *            The calling context.
+	 * @param frame
+	 *            The arguments of the invocation.
+	 * @return The created context.
+	 */
+	public static ParseContext mergeWithParameterFrame(ParseHelper helper, ParseContext contexta,
+			ParameterFrame frame) {
+		return helper.internContext(
+				new CallingContext(null, 0, ParseContext.EMPTY, contexta.getCurrentValueConsumer(), frame));
 	}
 
 	protected transient ValueConsumer valueConsumer;
+	protected final ParameterFrame parameterFrame;
 
 	public CallingContext(ParseContext parent, int parentflags, NavigableMap<String, Object> localsMap,
 			ValueConsumer valueConsumer) {
 		super(parent, parentflags, localsMap);
 		this.valueConsumer = valueConsumer;
+		this.parameterFrame = null;
+	}
+
+	protected CallingContext(ParseContext parent, int parentflags, ParseContext localscontext,
+			ValueConsumer valueConsumer, ParameterFrame parameterFrame) {
+		super(parent, parentflags, localscontext);
+		this.valueConsumer = valueConsumer;
+		this.parameterFrame = parameterFrame;
 	}
 
 	protected CallingContext(NavigableMap<String, Object> localsMap, ValueConsumer valueConsumer) {
 		super(localsMap);
 		this.valueConsumer = valueConsumer;
+		this.parameterFrame = null;
 	}
 
 	public CallingContext(ParseContext context, ValueConsumer consumer) {
-		super(context.localsMap);
-		this.valueConsumer = consumer;
+		this(null, 0, context, consumer, context.getParameterFrame());
 	}
 
 	@Override
@@ -52,9 +94,42 @@ public class CallingContext extends ParseContext {
 		return valueConsumer;
 	}
 
+	@Override
+	public ParameterFrame getParameterFrame() {
+		return parameterFrame;
+	}
+
+	@Override
+	public ParseContext toMemoizationKey() {
+		if (valueConsumer == null) {
+			return this;
+		}
+		return new CallingContext(parent, parentFlags, this, null, parameterFrame);
+	}
+
+	@Override
+	protected int computeHashCode() {
+		final int prime = 31;
+		int result = super.computeHashCode();
+		result = prime * result + ((parameterFrame == null) ? 0 : parameterFrame.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!super.equals(obj))
+			return false;
+		CallingContext other = (CallingContext) obj;
+		if (parameterFrame != other.parameterFrame) {
+			if (parameterFrame == null || !parameterFrame.equals(other.parameterFrame))
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public String toString() {
-		return "CallingContext [localsMap=" + localsMap + "]";
+		return "CallingContext [localsMap=" + localsMap + ", parameterFrame=" + parameterFrame + "]";
 	}
 
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.parse.context;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import sipka.syntax.parser.model.rule.Rule;
+
+/**
+ * The arguments of a rule invocation.
+ * <p>
+ * The arguments are stored in the order of the declared parameters of the invoked rule, and are accessed by the slot
+ * index of the parameter.
+ */
+public final class ParameterFrame {
+	private static final Object[] EMPTY_OBJECT_ARRAY = {};
+
+	private final Rule rule;
+	private final Object[] arguments;
+
+	public ParameterFrame(Rule rule, Object[] arguments) {
+		Objects.requireNonNull(rule, "rule");
+		Objects.requireNonNull(arguments, "arguments");
+		this.rule = rule;
+		this.arguments = arguments;
+	}
+
+	public ParameterFrame(Rule rule) {
+		this(rule, EMPTY_OBJECT_ARRAY);
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Gets the argument for the parameter at the given slot of the specified rule.
+	 * 
+	 * @param rule
+	 *            The rule that declares the parameter.
+	 * @param slot
+	 *            The slot index of the parameter.
+	 * @return The argument or <code>null</code> if this frame is not for the given rule.
+	 */
+	public Object getArgument(Rule rule, int slot) {
+		if (this.rule != rule || slot < 0 || slot >= arguments.length) {
+			return null;
+		}
+		return arguments[slot];
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + rule.hashCode();
+		result = prime * result + Arrays.hashCode(arguments);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ParameterFrame other = (ParameterFrame) obj;
+		if (rule != other.rule)
+			return false;
+		if (!Arrays.equals(arguments, other.arguments))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ParameterFrame [rule=" + rule + ", arguments=" + Arrays.toString(arguments) + "]";
+	}
+
+}
@@ -33,12 +33,36 @@ public class ParseContext {
 	protected final int parentFlags;
 	protected final NavigableMap<String, Object> localsMap;
 
+	private transient int localsHashCode;
+	private transient int hashCode;
+	private transient ParseContext memoizationKey;
+
 	protected ParseContext(ParseContext parent, int parentflags, NavigableMap<String, Object> localsMap) {
 		this.parent = parent;
 		this.parentFlags = parentflags;
 		this.localsMap = localsMap;
 	}
 
+	/**
+	 * Creates a new instance that has the same locals as the argument context.
+	 * <p>
+	 * The hash code of the locals is reused from the argument, so it doesn't need to be recomputed for the new
+	 * context.
+	 * 
+	 * @param parent
+	 *            The parent context.
+	 * @param parentflags
+	 *            The parent flags.
+	 * @param localscontext
+	 *            The context to take the locals from.
+	 */
+	protected ParseContext(ParseContext parent, int parentflags, ParseContext localscontext) {
+		this.parent = parent;
+		this.parentFlags = parentflags;
+		this.localsMap = localscontext.localsMap;
+		this.localsHashCode = localscontext.localsHashCode;
+	}
+
 	protected ParseContext(NavigableMap<String, Object> localsMap) {
 		this(null, 0, localsMap);
 	}
@@ -69,6 +93,13 @@ public class ParseContext {
 		return null;
 	}
 
+	public ParameterFrame getParameterFrame() {
+		if (parent != null) {
+			return parent.getParameterFrame();
+		}
+		return null;
+	}
+
 	public Object getObjectForName(String name) {
 		return getObjectForName(name, null);
 	}
@@ -97,11 +128,57 @@ public class ParseContext {
 		return localsMap;
 	}
 
+	/**
+	 * Gets the canonical instance that identifies this context in the memoization table.
+	 * <p>
+	 * The key is set when the context is created during parsing, see {@link CallingContext#merge}.
+	 * 
+	 * @return The key or <code>null</code> if the context was not created during parsing.
+	 */
+	public final ParseContext getMemoizationKey() {
+		return memoizationKey;
+	}
+
+	public final void setMemoizationKey(ParseContext memoizationkey) {
+		this.memoizationKey = memoizationkey;
+	}
+
+	/**
+	 * Creates a context that equals to this one, and can be used as a key in the memoization table.
+	 * <p>
+	 * The key shouldn't reference any state that is not part of the equality of the context, so the interned keys
+	 * don't retain it.
+	 * 
+	 * @return The key.
+	 */
+	public ParseContext toMemoizationKey() {
+		return this;
+	}
+
+	private int getLocalsHashCode() {
+		int h = localsHashCode;
+		if (h == 0 && localsMap != null) {
+			h = localsMap.hashCode();
+			localsHashCode = h;
+		}
+		return h;
+	}
+
 	@Override
 	public int hashCode() {
+		//the contexts are immutable, so the hash code can be cached
+		int h = hashCode;
+		if (h == 0) {
+			h = computeHashCode();
+			hashCode = h;
+		}
+		return h;
+	}
+
+	protected int computeHashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((localsMap == null) ? 0 : localsMap.hashCode());
+		result = prime * result + getLocalsHashCode();
 		result = prime * result + ((parent == null) ? 0 : parent.hashCode());
 		result = prime * result + parentFlags;
 		return result;
@@ -116,18 +193,22 @@ public class ParseContext {
 		if (getClass() != obj.getClass())
 			return false;
 		ParseContext other = (ParseContext) obj;
-		if (localsMap == null) {
-			if (other.localsMap != null)
+		int h = hashCode;
+		if (h != 0) {
+			int oh = other.hashCode;
+			if (oh != 0 && h != oh)
 				return false;
-		} else if (!localsMap.equals(other.localsMap))
-			return false;
-		if (parent == null) {
-			if (other.parent != null)
-				return false;
-		} else if (!parent.equals(other.parent))
-			return false;
+		}
 		if (parentFlags != other.parentFlags)
 			return false;
+		if (localsMap != other.localsMap) {
+			if (localsMap == null || !localsMap.equals(other.localsMap))
+				return false;
+		}
+		if (parent != other.parent) {
+			if (parent == null || !parent.equals(other.parent))
+				return false;
+		}
 		return true;
 	}
 
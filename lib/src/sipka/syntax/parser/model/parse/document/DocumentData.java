@@ -15,19 +15,103 @@
  */
 package sipka.syntax.parser.model.parse.document;
 
+import java.nio.charset.StandardCharsets;
+
 import sipka.syntax.parser.util.ArrayRangeCharSequence;
 
+/**
+ * Document that is being parsed.
+ * <p>
+ * The document is either backed by a single array, or by a {@link PieceTable}. In the latter case the document keeps a
+ * cursor to the piece that contains the current start of the document, and the accesses that reach over the end of the
+ * piece are delegated to the piece table. The {@linkplain #array() backing arrays} of the document are the arrays of
+ * the current piece.
+ */
 public class DocumentData extends ArrayRangeCharSequence {
+	private final PieceTable pieces;
+	private int documentStart;
+	private char[] pieceArray;
+	private byte[] pieceLatin1Array;
+	/**
+	 * The index in the backing array after the characters that can be accessed directly.
+	 */
+	private int pieceEnd;
+
 	public DocumentData(char[] data) {
-		super(data, 0, data.length);
+		this(data, 0, data.length);
 	}
 
+	/**
+	 * Creates a new document for the given region of the array.
+	 * <p>
+	 * The array is not copied. The document offsets are relative to the start of the region.
+	 * 
+	 * @param subject
+	 *            The characters.
+	 * @param index
+	 *            The start index of the document in the array.
+	 * @param length
+	 *            The length of the document.
+	 */
 	public DocumentData(char[] subject, int index, int length) {
 		super(subject, index, length);
+		this.pieces = null;
+		this.pieceArray = this.array;
+		this.pieceLatin1Array = this.latin1Array;
+		this.documentStart = index;
+		this.pieceEnd = index + length;
+	}
+
+	/**
+	 * Creates a new document for the given region of a Latin-1 encoded array.
+	 * <p>
+	 * The array is not copied. The document offsets are relative to the start of the region.
+	 * 
+	 * @param latin1subject
+	 *            The ISO-8859-1 encoded characters.
+	 * @param index
+	 *            The start index of the document in the array.
+	 * @param length
+	 *            The length of the document.
+	 */
+	public DocumentData(byte[] latin1subject, int index, int length) {
+		super(latin1subject, index, length);
+		this.pieces = null;
+		this.pieceArray = this.array;
+		this.pieceLatin1Array = this.latin1Array;
+		this.documentStart = index;
+		this.pieceEnd = index + length;
+	}
+
+	/**
+	 * Creates a new document for the contents of the piece table.
+	 * <p>
+	 * The pieces are not copied. The values of the parsed statements view the pieces if they're inside a single one.
+	 * 
+	 * @param pieces
+	 *            The piece table.
+	 */
+	public DocumentData(PieceTable pieces) {
+		this(pieces.getPieceCount() == 0 ? ArrayRangeCharSequence.EMPTY : pieces.getPiece(0), pieces);
+	}
+
+	private DocumentData(ArrayRangeCharSequence firstpiece, PieceTable pieces) {
+		super(firstpiece, firstpiece.index(), pieces.length());
+		//no need to go through the piece table if the document consists of a single piece
+		this.pieces = pieces.getPieceCount() > 1 ? pieces : null;
+		this.pieceArray = this.array;
+		this.pieceLatin1Array = this.latin1Array;
+		this.documentStart = firstpiece.index();
+		this.pieceEnd = firstpiece.index() + firstpiece.length();
 	}
 
 	public DocumentData(DocumentData other) {
-		super(other.array, other.index, other.length);
+		super(other, other.index, other.length);
+		this.pieces = other.pieces;
+		this.documentStart = other.documentStart;
+		this.pieceArray = other.pieceArray;
+		this.pieceLatin1Array = other.pieceLatin1Array;
+		this.pieceEnd = other.pieceEnd;
 	}
 
 	public void removeFromStart(int count) {
@@ -37,14 +121,116 @@ public class DocumentData extends ArrayRangeCharSequence {
 		}
 		this.index += count;
 		this.length -= count;
+		if (this.index >= pieceEnd && this.length > 0) {
+			//only happens if backed by a piece table
+			seekPiece();
+		}
+	}
+
+	/**
+	 * Gets the number of characters that can be accessed directly in the backing array from the current
+	 * {@linkplain #index() index}.
+	 * <p>
+	 * The characters after them need to be accessed through {@link #charAt(int)}.
+	 * 
+	 * @return The number of directly accessible characters.
+	 */
+	public final int getContiguousLength() {
+		return pieceEnd - this.index;
 	}
 
 	public ArrayRangeCharSequence subDocumentSequence(DocumentRegion region) {
-		return new ArrayRangeCharSequence(array, region.getOffset(), region.getLength());
+		if (pieces != null) {
+			return pieces.subSequence(region.getOffset(), region.getEndOffset());
+		}
+		return new ArrayRangeCharSequence(this, documentStart + region.getOffset(), region.getLength());
+	}
+
+	@Override
+	public char[] array() {
+		return pieceArray;
+	}
+
+	@Override
+	public byte[] latin1Array() {
+		return pieceLatin1Array;
+	}
+
+	@Override
+	public boolean isLatin1() {
+		return pieceLatin1Array != null;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index >= 0 && index < pieceEnd - this.index) {
+			if (pieceArray != null) {
+				return pieceArray[this.index + index];
+			}
+			return (char) (pieceLatin1Array[this.index + index] & 0xFF);
+		}
+		if (pieces == null || index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + " length: " + length);
+		}
+		return pieces.charAt(getDocumentOffset() + index);
+	}
+
+	@Override
+	public void getChars(int srcbegin, int srcend, char[] dst, int dstbegin) {
+		if (srcbegin < 0 || srcbegin > srcend || srcend > length) {
+			throw new IndexOutOfBoundsException(srcbegin + " - " + srcend + " is not in range of 0 - " + length);
+		}
+		if (srcend <= pieceEnd - this.index) {
+			if (pieceArray != null) {
+				System.arraycopy(pieceArray, this.index + srcbegin, dst, dstbegin, srcend - srcbegin);
+				return;
+			}
+			final byte[] latin1 = this.pieceLatin1Array;
+			for (int i = this.index + srcbegin, end = this.index + srcend; i < end; i++) {
+				dst[dstbegin++] = (char) (latin1[i] & 0xFF);
+			}
+			return;
+		}
+		int docoffset = getDocumentOffset();
+		pieces.getChars(docoffset + srcbegin, docoffset + srcend, dst, dstbegin);
+	}
+
+	@Override
+	public ArrayRangeCharSequence subSequence(int start, int end) {
+		if (pieces == null || end <= pieceEnd - this.index) {
+			return super.subSequence(start, end);
+		}
+		if (start < 0 || end < 0 || end > length || start > length) {
+			throw new IndexOutOfBoundsException(start + " - " + end + " is not in range of 0 - " + length);
+		}
+		int docoffset = getDocumentOffset();
+		return pieces.subSequence(docoffset + start, docoffset + end);
+	}
+
+	@Override
+	public String toString() {
+		if (length <= pieceEnd - this.index) {
+			if (pieceArray != null) {
+				return String.valueOf(pieceArray, this.index, length);
+			}
+			return new String(pieceLatin1Array, this.index, length, StandardCharsets.ISO_8859_1);
+		}
+		return subSequence(0, length).toString();
+	}
+
+	private void seekPiece() {
+		int docoffset = getDocumentOffset();
+		ArrayRangeCharSequence piece = pieces.getPiece(docoffset);
+		int piecestart = pieces.getPieceStart(docoffset);
+		this.pieceArray = piece.array();
+		this.pieceLatin1Array = piece.latin1Array();
+		this.index = piece.index() + docoffset - piecestart;
+		this.documentStart = piece.index() - piecestart;
+		this.pieceEnd = piece.index() + piece.length();
 	}
 
 	public final int getDocumentOffset() {
-		return this.index;
+		return this.index - documentStart;
 	}
 
 	public final int getDocumentLength() {
@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.parse.document;
+
+import sipka.syntax.parser.util.ArrayRangeCharSequence;
+
+/**
+ * Immutable piece table of a document.
+ * <p>
+ * The document is stored as a sequence of pieces, which are views of the backing arrays. The pieces are the nodes of a
+ * height balanced tree, therefore replacing a range of the document takes O(log n) time in the number of pieces, and
+ * the unmodified characters are not copied. The modified table shares the unmodified pieces and subtrees with the
+ * original one, so both can be used after the modification.
+ * <p>
+ * The table can be parsed through {@link DocumentData#DocumentData(PieceTable)}, which accesses the pieces directly
+ * without flattening the document into a single array.
+ */
+public final class PieceTable implements CharSequence {
+	public static final PieceTable EMPTY = new PieceTable(null);
+
+	private static final class Node {
+		final Node left;
+		final ArrayRangeCharSequence piece;
+		final Node right;
+		final int length;
+		final int height;
+		final int pieceCount;
+		final boolean latin1;
+
+		Node(Node left, ArrayRangeCharSequence piece, Node right) {
+			this.left = left;
+			this.piece = piece;
+			this.right = right;
+			this.length = length(left) + piece.length() + length(right);
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.pieceCount = pieceCount(left) + 1 + pieceCount(right);
+			this.latin1 = piece.isLatin1() && (left == null || left.latin1) && (right == null || right.latin1);
+		}
+	}
+
+	private final Node root;
+
+	private PieceTable(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Gets the piece table for the given contents.
+	 * <p>
+	 * If the argument is a sequence that was created by {@link #subSequence(int, int)} and wasn't flattened yet, the
+	 * pieces of the originating table are reused. Otherwise the table consists of a single piece that views the
+	 * argument contents.
+	 * 
+	 * @param contents
+	 *            The contents.
+	 * @return The piece table.
+	 */
+	public static PieceTable valueOf(ArrayRangeCharSequence contents) {
+		if (contents instanceof PiecesSequence) {
+			return ((PiecesSequence) contents).toPieceTable();
+		}
+		if (contents.length() == 0) {
+			return EMPTY;
+		}
+		return new PieceTable(new Node(null, toPiece(contents), null));
+	}
+
+	/**
+	 * Replaces a range of the document with the given text.
+	 * <p>
+	 * This table is not modified.
+	 * 
+	 * @param offset
+	 *            The start offset of the replaced range.
+	 * @param length
+	 *            The length of the replaced range.
+	 * @param text
+	 *            The replacement text.
+	 * @return The modified piece table.
+	 * @throws IndexOutOfBoundsException
+	 *             If the range is not in the document.
+	 */
+	public PieceTable replace(int offset, int length, CharSequence text) throws IndexOutOfBoundsException {
+		int doclen = length();
+		if (offset < 0 || length < 0 || offset + length > doclen) {
+			throw new IndexOutOfBoundsException(
+					"Range " + offset + " - " + (offset + length) + " is not in range of 0 - " + doclen);
+		}
+		if (length == 0 && text.length() == 0) {
+			return this;
+		}
+		Node[] split = split(root, offset);
+		Node start = split[0];
+		Node end = length == 0 ? split[1] : split(split[1], length)[1];
+		if (text.length() == 0) {
+			return new PieceTable(concat(start, end));
+		}
+		return new PieceTable(join(start, toPiece(text), end));
+	}
+
+	/**
+	 * Creates a piece table that contains the document in a single piece.
+	 * <p>
+	 * The characters are copied if the document consists of multiple pieces.
+	 * 
+	 * @return The compacted piece table.
+	 */
+	public PieceTable compact() {
+		if (pieceCount(root) <= 1) {
+			return this;
+		}
+		return valueOf(flatten(0, root.length));
+	}
+
+	public int getPieceCount() {
+		return pieceCount(root);
+	}
+
+	/**
+	 * Checks if all the pieces are backed by Latin-1 encoded arrays.
+	 * 
+	 * @return <code>true</code> if the pieces are Latin-1 backed.
+	 */
+	public boolean isLatin1() {
+		return root == null || root.latin1;
+	}
+
+	@Override
+	public int length() {
+		return length(root);
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + " length: " + length());
+		}
+		Node n = root;
+		while (true) {
+			int leftlen = length(n.left);
+			if (index < leftlen) {
+				n = n.left;
+				continue;
+			}
+			index -= leftlen;
+			int piecelen = n.piece.length();
+			if (index < piecelen) {
+				return n.piece.charAt(index);
+			}
+			index -= piecelen;
+			n = n.right;
+		}
+	}
+
+	/**
+	 * Copies the characters of the document to the argument array.
+	 * 
+	 * @param srcbegin
+	 *            The index of the first character to copy.
+	 * @param srcend
+	 *            The index after the last character to copy.
+	 * @param dst
+	 *            The destination array.
+	 * @param dstbegin
+	 *            The start offset in the destination array.
+	 * @see String#getChars(int, int, char[], int)
+	 */
+	public void getChars(int srcbegin, int srcend, char[] dst, int dstbegin) {
+		checkRange(srcbegin, srcend);
+		copy(root, srcbegin, srcend, dst, null, dstbegin);
+	}
+
+	/**
+	 * Gets a sequence of the given range.
+	 * <p>
+	 * If the range is inside a single piece, a view of the piece is returned. Otherwise the returned sequence is
+	 * flattened into a new array when its contents are first accessed.
+	 */
+	@Override
+	public ArrayRangeCharSequence subSequence(int start, int end) {
+		checkRange(start, end);
+		if (start == end) {
+			return ArrayRangeCharSequence.EMPTY;
+		}
+		int piecestart = getPieceStart(start);
+		ArrayRangeCharSequence piece = getPiece(start);
+		if (end - piecestart <= piece.length()) {
+			return piece.subSequence(start - piecestart, end - piecestart);
+		}
+		return new PiecesSequence(this, start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return flatten(0, length()).toString();
+	}
+
+	/**
+	 * Gets the piece that contains the character at the given offset.
+	 */
+	ArrayRangeCharSequence getPiece(int offset) {
+		Node n = root;
+		while (true) {
+			int leftlen = length(n.left);
+			if (offset < leftlen) {
+				n = n.left;
+				continue;
+			}
+			offset -= leftlen;
+			int piecelen = n.piece.length();
+			if (offset < piecelen) {
+				return n.piece;
+			}
+			offset -= piecelen;
+			n = n.right;
+		}
+	}
+
+	/**
+	 * Gets the start offset of the piece that contains the character at the given offset.
+	 */
+	int getPieceStart(int offset) {
+		Node n = root;
+		int start = 0;
+		while (true) {
+			int leftlen = length(n.left);
+			if (offset < leftlen) {
+				n = n.left;
+				continue;
+			}
+			offset -= leftlen;
+			start += leftlen;
+			int piecelen = n.piece.length();
+			if (offset < piecelen) {
+				return start;
+			}
+			offset -= piecelen;
+			start += piecelen;
+			n = n.right;
+		}
+	}
+
+	private void checkRange(int start, int end) {
+		int length = length();
+		if (start < 0 || start > end || end > length) {
+			throw new IndexOutOfBoundsException(start + " - " + end + " is not in range of 0 - " + length);
+		}
+	}
+
+	private ArrayRangeCharSequence flatten(int start, int end) {
+		int len = end - start;
+		if (isLatin1()) {
+			byte[] bytes = new byte[len];
+			copy(root, start, end, null, bytes, 0);
+			return new ArrayRangeCharSequence(bytes, 0, len);
+		}
+		char[] chars = new char[len];
+		copy(root, start, end, chars, null, 0);
+		return new ArrayRangeCharSequence(chars, 0, len);
+	}
+
+	/**
+	 * Copies the range of the subtree to either the <code>char</code> or the Latin-1 destination array.
+	 * <p>
+	 * The range is relative to the start of the subtree.
+	 */
+	private static void copy(Node n, int start, int end, char[] chars, byte[] bytes, int dstbegin) {
+		while (n != null && start < end) {
+			int leftlen = length(n.left);
+			if (start < leftlen) {
+				copy(n.left, start, Math.min(end, leftlen), chars, bytes, dstbegin);
+			}
+			int piecelen = n.piece.length();
+			int piecestart = Math.max(start, leftlen) - leftlen;
+			int pieceend = Math.min(end - leftlen, piecelen);
+			if (piecestart < pieceend) {
+				int dst = dstbegin + leftlen + piecestart - start;
+				if (chars != null) {
+					n.piece.getChars(piecestart, pieceend, chars, dst);
+				} else {
+					System.arraycopy(n.piece.latin1Array(), n.piece.index() + piecestart, bytes, dst,
+							pieceend - piecestart);
+				}
+			}
+			//continue with the right subtree
+			int rightstart = leftlen + piecelen;
+			if (start < rightstart) {
+				dstbegin += rightstart - start;
+				start = 0;
+			} else {
+				start -= rightstart;
+			}
+			end -= rightstart;
+			n = n.right;
+		}
+	}
+
+	private static ArrayRangeCharSequence toPiece(CharSequence text) {
+		if (text instanceof ArrayRangeCharSequence) {
+			ArrayRangeCharSequence seq = (ArrayRangeCharSequence) text;
+			if (!(seq instanceof PiecesSequence)) {
+				//create a new view, as the argument may be modified (e.g. DocumentData)
+				return new ArrayRangeCharSequence(seq, seq.index(), seq.length());
+			}
+		}
+		int len = text.length();
+		char[] chars = new char[len];
+		boolean latin1 = true;
+		for (int i = 0; i < len; i++) {
+			char c = text.charAt(i);
+			chars[i] = c;
+			if (c > 0xFF) {
+				latin1 = false;
+			}
+		}
+		if (!latin1) {
+			return new ArrayRangeCharSequence(chars, 0, len);
+		}
+		byte[] bytes = new byte[len];
+		for (int i = 0; i < len; i++) {
+			bytes[i] = (byte) chars[i];
+		}
+		return new ArrayRangeCharSequence(bytes, 0, len);
+	}
+
+	private static int length(Node n) {
+		return n == null ? 0 : n.length;
+	}
+
+	private static int height(Node n) {
+		return n == null ? 0 : n.height;
+	}
+
+	private static int pieceCount(Node n) {
+		return n == null ? 0 : n.pieceCount;
+	}
+
+	/**
+	 * Splits the subtree at the given offset.
+	 * 
+	 * @return The subtree before, and the subtree after the offset.
+	 */
+	private static Node[] split(Node n, int offset) {
+		if (n == null) {
+			return new Node[2];
+		}
+		int leftlen = length(n.left);
+		if (offset < leftlen) {
+			Node[] result = split(n.left, offset);
+			result[1] = join(result[1], n.piece, n.right);
+			return result;
+		}
+		int piecelen = n.piece.length();
+		if (offset >= leftlen + piecelen) {
+			Node[] result = split(n.right, offset - leftlen - piecelen);
+			result[0] = join(n.left, n.piece, result[0]);
+			return result;
+		}
+		if (offset == leftlen) {
+			return new Node[] { n.left, join(null, n.piece, n.right) };
+		}
+		int cut = offset - leftlen;
+		return new Node[] { join(n.left, n.piece.subSequence(0, cut), null),
+				join(null, n.piece.subSequence(cut, piecelen), n.right) };
+	}
+
+	/**
+	 * Concatenates the subtrees.
+	 */
+	private static Node concat(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		Node first = right;
+		while (first.left != null) {
+			first = first.left;
+		}
+		return join(left, first.piece, split(right, first.piece.length())[1]);
+	}
+
+	/**
+	 * Concatenates the subtrees with the piece between them.
+	 */
+	private static Node join(Node left, ArrayRangeCharSequence piece, Node right) {
+		int lh = height(left);
+		int rh = height(right);
+		if (lh > rh + 1) {
+			return balance(left.left, left.piece, join(left.right, piece, right));
+		}
+		if (rh > lh + 1) {
+			return balance(join(left, piece, right.left), right.piece, right.right);
+		}
+		return new Node(left, piece, right);
+	}
+
+	/**
+	 * Creates a node and rotates it if the height difference of the subtrees is 2.
+	 */
+	private static Node balance(Node left, ArrayRangeCharSequence piece, Node right) {
+		int lh = height(left);
+		int rh = height(right);
+		if (lh > rh + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return new Node(left.left, left.piece, new Node(left.right, piece, right));
+			}
+			Node lr = left.right;
+			return new Node(new Node(left.left, left.piece, lr.left), lr.piece, new Node(lr.right, piece, right));
+		}
+		if (rh > lh + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return new Node(new Node(left, piece, right.left), right.piece, right.right);
+			}
+			Node rl = right.left;
+			return new Node(new Node(left, piece, rl.left), rl.piece, new Node(rl.right, right.piece, right.right));
+		}
+		return new Node(left, piece, right);
+	}
+
+	/**
+	 * Sequence of a range of a piece table that is flattened into a single array when its contents are first
+	 * accessed.
+	 * <p>
+	 * The accessors delegate to the flattened sequence, the arrays inherited from the superclass are not used.
+	 */
+	private static final class PiecesSequence extends ArrayRangeCharSequence {
+		private final PieceTable table;
+		private final int offset;
+		private volatile ArrayRangeCharSequence flattened;
+
+		PiecesSequence(PieceTable table, int offset, int length) {
+			super(ArrayRangeCharSequence.EMPTY, 0, length);
+			this.table = table;
+			this.offset = offset;
+		}
+
+		PieceTable toPieceTable() {
+			ArrayRangeCharSequence seq = flattened;
+			if (seq != null) {
+				return PieceTable.valueOf(seq);
+			}
+			if (offset == 0 && length == table.length()) {
+				return table;
+			}
+			Node[] split = split(table.root, offset);
+			return new PieceTable(split(split[1], length)[0]);
+		}
+
+		private ArrayRangeCharSequence flattened() {
+			ArrayRangeCharSequence seq = flattened;
+			if (seq == null) {
+				seq = table.flatten(offset, offset + length);
+				flattened = seq;
+			}
+			return seq;
+		}
+
+		@Override
+		public char[] array() {
+			return flattened().array();
+		}
+
+		@Override
+		public byte[] latin1Array() {
+			return flattened().latin1Array();
+		}
+
+		@Override
+		public boolean isLatin1() {
+			return flattened().isLatin1();
+		}
+
+		@Override
+		public int index() {
+			return flattened().index();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return flattened().charAt(index);
+		}
+
+		@Override
+		public void getChars(int srcbegin, int srcend, char[] dst, int dstbegin) {
+			flattened().getChars(srcbegin, srcend, dst, dstbegin);
+		}
+
+		@Override
+		public ArrayRangeCharSequence subSequence(int start, int end) {
+			return flattened().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return flattened().toString();
+		}
+	}
+}
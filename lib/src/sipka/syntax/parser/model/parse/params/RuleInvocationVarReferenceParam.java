@@ -15,16 +15,26 @@
  */
 package sipka.syntax.parser.model.parse.params;
 
+import java.util.List;
 import java.util.Objects;
 
+import sipka.syntax.parser.model.parse.context.ParameterFrame;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.Rule;
+import sipka.syntax.parser.util.Pair;
 
 public class RuleInvocationVarReferenceParam<T> implements InvokeParam<T> {
 	private final Rule rule;
 	private final String variableName;
 
+	/**
+	 * The index of the parameter in the declared parameters of the rule, or -1 if not yet resolved.
+	 * <p>
+	 * Resolved lazily, as the parameters may be declared after this reference is constructed.
+	 */
+	private transient int slotIndex = -1;
+
 	public RuleInvocationVarReferenceParam(Rule rule, String variableName) {
 		Objects.requireNonNull(rule, "rule");
 		Objects.requireNonNull(variableName, "variable name");
@@ -48,13 +58,32 @@ public class RuleInvocationVarReferenceParam<T> implements InvokeParam<T> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public T getValue(ParseHelper helper, ParseContext context) {
-		Object result = context.getObjectForName(rule.createParameterName(variableName));
+		ParameterFrame frame = context.getParameterFrame();
+		if (frame == null) {
+			return null;
+		}
+		Object result = frame.getArgument(rule, getSlotIndex());
 		while (result instanceof InvokeParam<?>) {
 			result = ((InvokeParam<?>) result).getValue(helper, context);
 		}
 		return (T) result;
 	}
 
+	private int getSlotIndex() {
+		int idx = slotIndex;
+		if (idx < 0) {
+			List<Pair<String, Class<?>>> declaredparams = rule.getDeclaredParams();
+			for (int i = 0; i < declaredparams.size(); i++) {
+				if (variableName.equals(declaredparams.get(i).key)) {
+					idx = i;
+					slotIndex = i;
+					break;
+				}
+			}
+		}
+		return idx;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -22,10 +22,30 @@ import sipka.syntax.parser.model.rule.ParseHelper;
 
 public class VarReferenceParam<T> implements InvokeParam<T> {
 	private final String variableName;
+	private final Object boundValue;
 
 	public VarReferenceParam(String varname) {
 		Objects.requireNonNull(varname, "variable name");
 		this.variableName = varname;
+		this.boundValue = null;
+	}
+
+	/**
+	 * Creates a variable reference that is already resolved to the given value.
+	 * <p>
+	 * The context is not searched for the variable when the value is retrieved. If the bound value is an
+	 * {@link InvokeParam}, it is still evaluated in the context.
+	 * 
+	 * @param varname
+	 *            The name of the variable.
+	 * @param boundvalue
+	 *            The value the variable resolves to.
+	 */
+	public VarReferenceParam(String varname, Object boundvalue) {
+		Objects.requireNonNull(varname, "variable name");
+		Objects.requireNonNull(boundvalue, "bound value");
+		this.variableName = varname;
+		this.boundValue = boundvalue;
 	}
 
 	@Override
@@ -37,10 +57,17 @@ public class VarReferenceParam<T> implements InvokeParam<T> {
 		return variableName;
 	}
 
+	public final Object getBoundValue() {
+		return boundValue;
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public T getValue(ParseHelper helper, ParseContext context) {
-		Object result = context.getObjectForName(variableName);
+		Object result = boundValue;
+		if (result == null) {
+			result = context.getObjectForName(variableName);
+		}
 		while (result instanceof InvokeParam<?>) {
 			result = ((InvokeParam<?>) result).getValue(helper, context);
 		}
@@ -64,6 +91,9 @@ public class VarReferenceParam<T> implements InvokeParam<T> {
 		if (!variableName.equals(other.variableName)) {
 			return false;
 		}
+		if (!Objects.equals(boundValue, other.boundValue)) {
+			return false;
+		}
 		return true;
 	}
 
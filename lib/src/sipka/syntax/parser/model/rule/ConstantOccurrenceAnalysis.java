@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import sipka.syntax.parser.model.occurrence.Occurrence;
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.util.Pair;
+
+/**
+ * Grammar analysis that resolves the occurrences of the container children which don't depend on the parse context.
+ * <p>
+ * The occurrences are usually declared as constants in the language, or as references to occurrences declared in an
+ * enclosing scope. These are evaluated once, so the containers don't need to evaluate the occurrence parameters for
+ * every parsed child.
+ */
+final class ConstantOccurrenceAnalysis {
+	private ConstantOccurrenceAnalysis() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void analyze(Rule root) {
+		for (Rule rule : ReachableRules.collect(root)) {
+			if (!(rule instanceof ContainerRule)) {
+				continue;
+			}
+			ContainerRule container = (ContainerRule) rule;
+			Occurrence[] occurrences = new Occurrence[container.getChildren().size()];
+			int i = 0;
+			for (Pair<Rule, ParseTimeData> child : container.getChildren()) {
+				Object occurrence = ReachableRules.getConstantValue(child.value.getOccurrenceParam());
+				if (occurrence instanceof Occurrence) {
+					occurrences[i] = (Occurrence) occurrence;
+				}
+				++i;
+			}
+			container.setChildrenOccurrences(occurrences);
+		}
+	}
+}
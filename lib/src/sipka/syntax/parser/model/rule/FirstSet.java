@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+/**
+ * The set of characters that a rule can start consuming the input with.
+ * <p>
+ * The set is conservative: if a rule may consume a character as the first one, the set contains it. The characters
+ * in the ASCII range are tracked individually, any other characters are represented by a single flag.
+ * <p>
+ * A first set is nullable if the rule may successfully parse without consuming any characters.
+ */
+public final class FirstSet {
+	/**
+	 * The first set of rules that cannot start with any character and cannot match empty.
+	 */
+	public static final FirstSet EMPTY = new FirstSet(0, 0, false, false);
+	/**
+	 * The first set of rules that can match empty, but cannot start with any character.
+	 */
+	public static final FirstSet NULLABLE = new FirstSet(0, 0, false, true);
+	/**
+	 * The first set of rules that can start with any character or match empty.
+	 * <p>
+	 * Used for rules that cannot be analyzed.
+	 */
+	public static final FirstSet UNKNOWN = new FirstSet(-1L, -1L, true, true);
+
+	private final long lowMask;
+	private final long highMask;
+	private final boolean nonAscii;
+	private final boolean nullable;
+
+	FirstSet(long lowmask, long highmask, boolean nonascii, boolean nullable) {
+		this.lowMask = lowmask;
+		this.highMask = highmask;
+		this.nonAscii = nonascii;
+		this.nullable = nullable;
+	}
+
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	public boolean canStartWith(char c) {
+		if (c < 64) {
+			return (lowMask & (1L << c)) != 0;
+		}
+		if (c < 128) {
+			return (highMask & (1L << c)) != 0;
+		}
+		return nonAscii;
+	}
+
+	/**
+	 * Checks if a rule with this first set can successfully parse at the start of the given input.
+	 * 
+	 * @param s
+	 *            The input.
+	 * @return <code>false</code> if the rule will fail to parse.
+	 */
+	public boolean canParse(CharSequence s) {
+		if (nullable) {
+			return true;
+		}
+		if (s.length() == 0) {
+			return false;
+		}
+		return canStartWith(s.charAt(0));
+	}
+
+	FirstSet union(FirstSet other) {
+		return create(lowMask | other.lowMask, highMask | other.highMask, nonAscii || other.nonAscii,
+				nullable || other.nullable);
+	}
+
+	FirstSet withNullable(boolean nullable) {
+		if (this.nullable == nullable) {
+			return this;
+		}
+		return create(lowMask, highMask, nonAscii, nullable);
+	}
+
+	static FirstSet create(long lowmask, long highmask, boolean nonascii, boolean nullable) {
+		if (lowmask == -1L && highmask == -1L && nonascii && nullable) {
+			return UNKNOWN;
+		}
+		if (lowmask == 0 && highmask == 0 && !nonascii) {
+			return nullable ? NULLABLE : EMPTY;
+		}
+		return new FirstSet(lowmask, highmask, nonascii, nullable);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Long.hashCode(lowMask);
+		result = prime * result + Long.hashCode(highMask);
+		result = prime * result + (nonAscii ? 1231 : 1237);
+		result = prime * result + (nullable ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		FirstSet other = (FirstSet) obj;
+		if (lowMask != other.lowMask)
+			return false;
+		if (highMask != other.highMask)
+			return false;
+		if (nonAscii != other.nonAscii)
+			return false;
+		if (nullable != other.nullable)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getClass().getSimpleName());
+		sb.append("[");
+		for (char c = 0; c < 128; c++) {
+			if (canStartWith(c)) {
+				if (c < 0x20 || c == 0x7f) {
+					sb.append(String.format("\\x%02x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		if (nonAscii) {
+			sb.append(", non-ascii");
+		}
+		if (nullable) {
+			sb.append(", nullable");
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.occurrence.Occurrence;
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.rule.consume.ConsumeRule;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.model.rule.container.order.AnyOrderRule;
+import sipka.syntax.parser.model.rule.container.order.FirstOrderRule;
+import sipka.syntax.parser.model.rule.container.order.InOrderRule;
+import sipka.syntax.parser.model.rule.invoke.InvokeRule;
+import sipka.syntax.parser.util.Pair;
+
+/**
+ * Grammar analysis that computes the {@link FirstSet} of the rules.
+ * <p>
+ * The first sets are computed from the patterns of the {@link ConsumeRule ConsumeRules} for all rules reachable from
+ * the root. Recursive rules are handled by iterating until a fixed point is reached. Patterns and occurrences that are
+ * only known during parsing (i.e. passed as parameters) result in {@link FirstSet#UNKNOWN}.
+ * <p>
+ * The computed first sets of the children are set for each {@link ContainerRule}.
+ */
+final class FirstSetAnalysis {
+	private final List<Rule> rules = new ArrayList<>();
+	private final Map<Rule, FirstSet> firstSets = new HashMap<>();
+	private final Map<Pattern, FirstSet> patternFirstSets = new HashMap<>();
+
+	private FirstSetAnalysis() {
+	}
+
+	public static void analyze(Rule root) {
+		FirstSetAnalysis analysis = new FirstSetAnalysis();
+		analysis.collectRules(root);
+		analysis.computeFixedPoint();
+		for (Rule rule : analysis.rules) {
+			if (rule instanceof ContainerRule) {
+				ContainerRule container = (ContainerRule) rule;
+				FirstSet[] childfirstsets = new FirstSet[container.getChildren().size()];
+				int i = 0;
+				for (Pair<Rule, ParseTimeData> child : container.getChildren()) {
+					childfirstsets[i++] = analysis.getFirstSet(child.key);
+				}
+				container.setChildrenFirstSets(childfirstsets);
+			}
+		}
+	}
+
+	private void collectRules(Rule root) {
+		for (Rule rule : ReachableRules.collect(root)) {
+			rules.add(rule);
+			firstSets.put(rule, FirstSet.EMPTY);
+		}
+	}
+
+	private void computeFixedPoint() {
+		boolean changed;
+		do {
+			changed = false;
+			for (Rule rule : rules) {
+				FirstSet computed = computeFirstSet(rule);
+				if (!computed.equals(firstSets.put(rule, computed))) {
+					changed = true;
+				}
+			}
+		} while (changed);
+	}
+
+	private FirstSet getFirstSet(Rule rule) {
+		FirstSet result = firstSets.get(rule);
+		if (result == null) {
+			return FirstSet.UNKNOWN;
+		}
+		return result;
+	}
+
+	private FirstSet computeFirstSet(Rule rule) {
+		if (rule instanceof ConsumeRule) {
+			Object pattern = ReachableRules.getConstantValue(((ConsumeRule) rule).getParam());
+			if (!(pattern instanceof Pattern)) {
+				return FirstSet.UNKNOWN;
+			}
+			return patternFirstSets.computeIfAbsent((Pattern) pattern, PatternFirstSetAnalyzer::analyze);
+		}
+		if (rule instanceof InvokeRule) {
+			Rule invoked = ReachableRules.getInvokedRule((InvokeRule) rule);
+			if (invoked == null) {
+				return FirstSet.UNKNOWN;
+			}
+			return getFirstSet(invoked);
+		}
+		if (rule instanceof InOrderRule) {
+			//the children are parsed in sequence
+			FirstSet result = FirstSet.NULLABLE;
+			for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+				if (!result.isNullable()) {
+					break;
+				}
+				result = result.withNullable(false).union(getChildFirstSet(child));
+			}
+			return result;
+		}
+		if (rule instanceof FirstOrderRule) {
+			//any of the children can be parsed
+			FirstSet result = FirstSet.EMPTY;
+			for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+				result = result.union(getChildFirstSet(child));
+			}
+			return result;
+		}
+		if (rule instanceof AnyOrderRule) {
+			//any of the children can be parsed first, and all of them must be satisfied to match empty
+			FirstSet result = FirstSet.NULLABLE;
+			for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+				FirstSet childfirst = getChildFirstSet(child);
+				result = result.union(childfirst).withNullable(result.isNullable() && childfirst.isNullable());
+			}
+			return result;
+		}
+		return FirstSet.UNKNOWN;
+	}
+
+	private FirstSet getChildFirstSet(Pair<Rule, ParseTimeData> child) {
+		FirstSet result = getFirstSet(child.key);
+		Object occurrence = ReachableRules.getConstantValue(child.value.getOccurrenceParam());
+		if (!(occurrence instanceof Occurrence)) {
+			//may occur zero times
+			return result.withNullable(true);
+		}
+		Occurrence occ = (Occurrence) occurrence;
+		if (occ.isValidOccurrenceCount(0)) {
+			result = result.withNullable(true);
+		}
+		if (!occ.canAcceptMore(0)) {
+			//never parsed
+			return occ.isValidOccurrenceCount(0) ? FirstSet.NULLABLE : FirstSet.EMPTY;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.statement.CollectionStatement;
+import sipka.syntax.parser.model.statement.ConsumedStatement;
+import sipka.syntax.parser.model.statement.Statement;
+import sipka.syntax.parser.model.statement.ValueStatement;
+import sipka.syntax.parser.util.ArrayRangeCharSequence;
+
+/**
+ * Base class for the parsers generated by
+ * {@link sipka.syntax.parser.util.RuleJavaGenerator#generateParserJavaClass(String, java.util.Map)}.
+ * <p>
+ * The generated subclasses contain a method for each rule of the language which parse the input at a given offset.
+ * This class contains the common operations of these methods: matching the patterns, building the statements,
+ * collecting the parsed values and memoizing the results of the invoked rules.
+ * <p>
+ * An instance is used to parse a single input.
+ */
+public abstract class GeneratedParser {
+	/**
+	 * Memoized result of an invoked rule.
+	 */
+	protected static final class MemoEntry {
+		private final Statement statement;
+		private final char[] value;
+
+		MemoEntry(Statement statement, char[] value) {
+			this.statement = statement;
+			this.value = value;
+		}
+	}
+
+	private static final int MEMO_INITIAL_CAPACITY = 1 << 10;
+
+	protected final char[] data;
+	private final Pattern[] patterns;
+	private final Matcher[] matchers;
+	private final ArrayRangeCharSequence input;
+
+	/**
+	 * The values of the currently parsed value rules. The value of a nested value rule is appended after the value of
+	 * the enclosing one.
+	 */
+	private char[] values = new char[64];
+	private int valuesLength;
+
+	private long[] memoKeys;
+	private MemoEntry[] memoEntries;
+	private int memoSize;
+
+	protected GeneratedParser(char[] data, Pattern[] patterns) {
+		this.data = data;
+		this.patterns = patterns;
+		this.matchers = new Matcher[patterns.length];
+		this.input = new ArrayRangeCharSequence(data);
+		this.memoKeys = new long[MEMO_INITIAL_CAPACITY];
+		this.memoEntries = new MemoEntry[MEMO_INITIAL_CAPACITY];
+	}
+
+	protected static char[] toCharArray(CharSequence data) {
+		if (data instanceof String) {
+			return ((String) data).toCharArray();
+		}
+		return ArrayRangeCharSequence.sequenceToArray(data);
+	}
+
+	/**
+	 * Checks that the root statement was parsed successfully, and it spans the whole input.
+	 */
+	protected final Statement parsed(Statement statement) throws ParseFailedException {
+		if (statement == null || statement.getEndOffset() != data.length) {
+			throw new ParseFailedException("Failed to parse input.");
+		}
+		return statement;
+	}
+
+	/**
+	 * Matches the pattern with the given index at the offset.
+	 * 
+	 * @return The length of the match or -1 if the pattern doesn't match.
+	 */
+	protected final int matchPattern(int patternindex, int offset) {
+		Matcher matcher = matchers[patternindex];
+		if (matcher == null) {
+			matcher = patterns[patternindex].matcher(input);
+			matchers[patternindex] = matcher;
+		}
+		matcher.region(offset, data.length);
+		if (!matcher.find() || matcher.start() != offset) {
+			return -1;
+		}
+		return matcher.end() - offset;
+	}
+
+	protected final ConsumedStatement consumed(int offset, int length) {
+		return new ConsumedStatement(new ArrayRangeCharSequence(data, offset, length),
+				new DocumentRegion(offset, length));
+	}
+
+	protected final CollectionStatement collection(int startoffset, int endoffset, List<Statement> children) {
+		int length = endoffset - startoffset;
+		return new CollectionStatement(new ArrayRangeCharSequence(data, startoffset, length),
+				new DocumentRegion(startoffset, length), children);
+	}
+
+	/**
+	 * Creates the statement for the result of an invoked rule.
+	 */
+	protected final CollectionStatement invoked(Statement statement, String alias) {
+		if (alias != null && statement instanceof ValueStatement) {
+			statement = ((ValueStatement) statement).withName(alias);
+		}
+		DocumentRegion position = statement.getPosition();
+		return new CollectionStatement(new ArrayRangeCharSequence(data, position.getOffset(), position.getLength()),
+				position, Collections.singletonList(statement));
+	}
+
+	/**
+	 * Creates the statement of a value rule and removes its value.
+	 * 
+	 * @param name
+	 *            The name of the value.
+	 * @param valuestart
+	 *            The value length at the start of the value rule.
+	 * @param substatement
+	 *            The statement of the children.
+	 * @param nonempty
+	 *            <code>true</code> if the value rule fails for empty values.
+	 * @return The created statement or <code>null</code> if the value rule failed.
+	 */
+	protected final ValueStatement value(String name, int valuestart, Statement substatement, boolean nonempty) {
+		int length = valuesLength - valuestart;
+		valuesLength = valuestart;
+		if (nonempty && length == 0) {
+			return null;
+		}
+		return new ValueStatement(name,
+				new ArrayRangeCharSequence(Arrays.copyOfRange(values, valuestart, valuestart + length)),
+				substatement);
+	}
+
+	protected final void appendValue(int offset, int length) {
+		ensureValuesCapacity(length);
+		System.arraycopy(data, offset, values, valuesLength, length);
+		valuesLength += length;
+	}
+
+	protected final int getValueLength() {
+		return valuesLength;
+	}
+
+	/**
+	 * Resets the value to the given length, and returns <code>null</code> as the result of a failed rule.
+	 */
+	protected final Statement failed(int valuelength) {
+		valuesLength = valuelength;
+		return null;
+	}
+
+	/**
+	 * Gets the memoized result of the invoked rule at the given offset.
+	 * 
+	 * @return The result or <code>null</code> if not yet parsed.
+	 * @see #replay(MemoEntry)
+	 */
+	protected final MemoEntry getMemoized(int ruleindex, int offset) {
+		long key = memoKey(ruleindex, offset);
+		final long[] keys = memoKeys;
+		final MemoEntry[] entries = memoEntries;
+		final int mask = keys.length - 1;
+		for (int i = memoHash(key) & mask;; i = (i + 1) & mask) {
+			MemoEntry e = entries[i];
+			if (e == null) {
+				return null;
+			}
+			if (keys[i] == key) {
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * Appends the values parsed by the memoized rule, and returns its statement.
+	 */
+	protected final Statement replay(MemoEntry entry) {
+		char[] value = entry.value;
+		if (value != null) {
+			ensureValuesCapacity(value.length);
+			System.arraycopy(value, 0, values, valuesLength, value.length);
+			valuesLength += value.length;
+		}
+		return entry.statement;
+	}
+
+	/**
+	 * Memoizes the result of an invoked rule.
+	 * 
+	 * @param ruleindex
+	 *            The index of the rule.
+	 * @param offset
+	 *            The offset the rule was parsed at.
+	 * @param valuestart
+	 *            The value length before the rule was parsed.
+	 * @param statement
+	 *            The parsed statement or <code>null</code> if failed.
+	 * @return The statement argument.
+	 */
+	protected final Statement memoize(int ruleindex, int offset, int valuestart, Statement statement) {
+		char[] value = valuesLength == valuestart ? null : Arrays.copyOfRange(values, valuestart, valuesLength);
+		if (memoSize >= memoKeys.length >>> 1) {
+			rehashMemo(memoKeys.length << 1);
+		}
+		insertMemo(memoKey(ruleindex, offset), new MemoEntry(statement, value));
+		++memoSize;
+		return statement;
+	}
+
+	private void insertMemo(long key, MemoEntry entry) {
+		final long[] keys = memoKeys;
+		final MemoEntry[] entries = memoEntries;
+		final int mask = keys.length - 1;
+		int i = memoHash(key) & mask;
+		while (entries[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		entries[i] = entry;
+	}
+
+	private void rehashMemo(int capacity) {
+		long[] okeys = memoKeys;
+		MemoEntry[] oentries = memoEntries;
+		memoKeys = new long[capacity];
+		memoEntries = new MemoEntry[capacity];
+		for (int i = 0; i < oentries.length; i++) {
+			if (oentries[i] != null) {
+				insertMemo(okeys[i], oentries[i]);
+			}
+		}
+	}
+
+	private void ensureValuesCapacity(int length) {
+		if (valuesLength + length > values.length) {
+			values = Arrays.copyOf(values, Math.max(Integer.highestOneBit(valuesLength + length) << 1, 64));
+		}
+	}
+
+	private static long memoKey(int ruleindex, int offset) {
+		return ((long) ruleindex << 32) | (offset & 0xFFFFFFFFL);
+	}
+
+	private static int memoHash(long key) {
+		//finalization mix of MurmurHash3, same as for the rule parse state table
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
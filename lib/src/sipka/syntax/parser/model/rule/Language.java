@@ -19,19 +19,40 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -55,9 +76,17 @@ import sipka.syntax.parser.model.rule.container.order.AnyOrderRule;
 import sipka.syntax.parser.model.rule.container.order.FirstOrderRule;
 import sipka.syntax.parser.model.rule.container.order.InOrderRule;
 import sipka.syntax.parser.model.rule.container.value.ValueRule;
+import sipka.syntax.parser.model.statement.CompactStatementTree;
 import sipka.syntax.parser.model.statement.Statement;
 import sipka.syntax.parser.util.Pair;
 
+/**
+ * A language that can parse inputs based on its rules.
+ * <p>
+ * Parsing doesn't modify the language, so a language can be used to parse inputs concurrently from multiple threads,
+ * as long as its rules are not modified meanwhile. Call {@link #freeze()} to make the rules unmodifiable before
+ * sharing the language.
+ */
 public class Language {
 	public static interface ParseProgressMonitor {
 		public static final ParseProgressMonitor NULLMONITOR = () -> false;
@@ -67,6 +96,9 @@ public class Language {
 
 	public static final Language DESCRIBER_LANGUAGE;
 
+	private static final int MAPPING_CHUNK_SIZE = 1 << 26;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
 	public static ParseTimeData PARSE_ONCE() {
 		return new ParseTimeData(Occurrence.ONCE, DeclaringContext.EMPTY);
 	}
@@ -273,6 +305,7 @@ public class Language {
 		;
 
 		DESCRIBER_LANGUAGE = new Language("descriptor_language", langcontentnode);
+		DESCRIBER_LANGUAGE.freeze();
 	}
 
 	private static Pattern compileLanguagePattern(String pattern) {
@@ -442,15 +475,52 @@ public class Language {
 	private static void parseRules(Statement resultstm, Map<String, Language> langmap) throws ParseFailedException {
 		RuleFactory factory = new RuleFactory();
 		Set<Rule> undefinedrules = new HashSet<>();
-		parseRulesImpl(langmap, null, resultstm, ruleStackWithDefaultRules(), undefinedrules, factory);
+		parseRulesImpl(langmap, null, resultstm, ruleStackWithDefaultRules(), undefinedrules, factory,
+				new HashMap<>());
 		if (!undefinedrules.isEmpty()) {
 			throw new ParseFailedException("Some rules were not defined.");
 		}
 	}
 
+	/**
+	 * Creates the declaring context for the current state of the parse stack.
+	 * <p>
+	 * Equal declaring contexts are shared to avoid deep equality checks when the parse contexts are interned during
+	 * parsing.
+	 */
+	private static DeclaringContext createDeclaringContext(ArrayDeque<Pair<String, Object>> parseStack,
+			Map<DeclaringContext, DeclaringContext> declaringcontexts) {
+		DeclaringContext result = new DeclaringContext(parseStack);
+		DeclaringContext prev = declaringcontexts.putIfAbsent(result, result);
+		if (prev != null) {
+			return prev;
+		}
+		return result;
+	}
+
+	/**
+	 * Binds a variable reference to the value it resolves to in the declaring context.
+	 * <p>
+	 * The references are evaluated in the declaring context of the referencing rule, which is already known when the
+	 * rules are built. Binding them avoids the lookup by name during parsing. References to rule parameters are bound
+	 * to a {@link RuleInvocationVarReferenceParam}, which accesses the argument by its slot in the invocation frame.
+	 */
+	private static <T> InvokeParam<T> bindVarReference(InvokeParam<T> param, DeclaringContext declcontext) {
+		if (!(param instanceof VarReferenceParam<?>)) {
+			return param;
+		}
+		String varname = ((VarReferenceParam<?>) param).getVariableName();
+		Object value = declcontext.getObjectForName(varname);
+		if (value == null) {
+			//not found, leave it to fail during parsing
+			return param;
+		}
+		return new VarReferenceParam<>(varname, value);
+	}
+
 	private static void parseRulesImpl(Map<String, Language> langmap, ContainerRule container, Statement stm,
-			ArrayDeque<Pair<String, Object>> parseStack, Set<Rule> undefinedrules, RuleFactory factory)
-			throws ParseFailedException {
+			ArrayDeque<Pair<String, Object>> parseStack, Set<Rule> undefinedrules, RuleFactory factory,
+			Map<DeclaringContext, DeclaringContext> declaringcontexts) throws ParseFailedException {
 		int parseStackAdded = 0;
 		try {
 			for (Pair<String, Statement> scopepair : stm.getScopes()) {
@@ -461,7 +531,7 @@ public class Language {
 
 						InOrderRule langrule = factory.createInOrderRule(name);
 						parseRulesImpl(langmap, langrule, scoped.firstScope("body"), parseStack, undefinedrules,
-								factory);
+								factory, declaringcontexts);
 						String langid = name;
 						Language lang = new Language(name, langrule);
 						Language prev = langmap.put(langid, lang);
@@ -485,10 +555,15 @@ public class Language {
 						} else {
 							invokeparams = Collections.emptyList();
 						}
-						final Rule rule = factory.createInvokeRule(new VarReferenceParam<>(invokename), alias,
-								invokeparams);
+						DeclaringContext declcontext = createDeclaringContext(parseStack, declaringcontexts);
+						for (int i = 0; i < invokeparams.size(); i++) {
+							invokeparams.set(i, bindVarReference(invokeparams.get(i), declcontext));
+						}
+						final Rule rule = factory.createInvokeRule(
+								bindVarReference(new VarReferenceParam<>(invokename), declcontext), alias, invokeparams);
 
-						container.addChild(rule, new ParseTimeData(occurrence, new DeclaringContext(parseStack)));
+						container.addChild(rule,
+								new ParseTimeData(bindVarReference(occurrence, declcontext), declcontext));
 						break;
 					}
 					case "container_node": {
@@ -513,7 +588,7 @@ public class Language {
 													+ found.getClass().getSimpleName() + " - " + stringToTypename(type)
 													+ " - " + name);
 								}
-								found.setDeclarationContext(new DeclaringContext(parseStack));
+								found.setDeclarationContext(createDeclaringContext(parseStack, declaringcontexts));
 
 								if (!undefinedrules.remove(foundrule)) {
 									throw new ParseFailedException("Container node was already defined previously: "
@@ -530,7 +605,7 @@ public class Language {
 									}
 								}
 								parseStack.push(new Pair<>(rule.getIdentifierName(),
-										new RuleDeclaration(rule, new DeclaringContext(parseStack))));
+										new RuleDeclaration(rule, createDeclaringContext(parseStack, declaringcontexts))));
 								++parseStackAdded;
 							}
 						} else {
@@ -547,13 +622,16 @@ public class Language {
 						}
 
 						if (occurrence != null) {
-							container.addChild(rule, new ParseTimeData(occurrence, new DeclaringContext(parseStack)));
+							DeclaringContext declcontext = createDeclaringContext(parseStack, declaringcontexts);
+							container.addChild(rule,
+									new ParseTimeData(bindVarReference(occurrence, declcontext), declcontext));
 						}
 						if (name == null && occurrence == null) {
 							throw new ParseFailedException("Container rule must have name or occurrence");
 						}
 
-						parseRulesImpl(langmap, rule, scoped.firstScope("body"), parseStack, undefinedrules, factory);
+						parseRulesImpl(langmap, rule, scoped.firstScope("body"), parseStack, undefinedrules, factory,
+								declaringcontexts);
 
 						//remove the previously added parameters
 						while (parseStackAdded > initialParseStackSize) {
@@ -567,9 +645,12 @@ public class Language {
 						final InvokeParam<Occurrence> occurrence = parseOccurrence(factory, scoped);
 						final InvokeParam<Pattern> param = parseRegex(factory, scoped);
 						final String alias = scoped.firstValue("alias_name");
-						final Rule rule = instantiateConsumeRule(factory, type, param, alias);
+						DeclaringContext declcontext = createDeclaringContext(parseStack, declaringcontexts);
+						final Rule rule = instantiateConsumeRule(factory, type, bindVarReference(param, declcontext),
+								alias);
 
-						container.addChild(rule, new ParseTimeData(occurrence, new DeclaringContext(parseStack)));
+						container.addChild(rule,
+								new ParseTimeData(bindVarReference(occurrence, declcontext), declcontext));
 						break;
 					}
 					case "declare_node": {
@@ -664,53 +745,480 @@ public class Language {
 		return langmap;
 	}
 
+	/**
+	 * Writes the languages in a binary format that can be loaded using {@link #fromBinary(InputStream)}.
+	 * <p>
+	 * Loading the binary format doesn't require parsing the language definition, and the shared objects are only
+	 * constructed once. Languages that were parsed from the same definition should be written together, as they may
+	 * share rules.
+	 * 
+	 * @param languages
+	 *            The languages mapped to their names.
+	 * @param os
+	 *            The output to write to. It is not closed.
+	 * @throws IOException
+	 *             In case of I/O error.
+	 * @throws IllegalArgumentException
+	 *             If the languages contain objects that are not supported by the format.
+	 */
+	public static void toBinary(Map<String, Language> languages, OutputStream os)
+			throws IOException, IllegalArgumentException {
+		LanguageBinaryFormat.write(languages, os);
+	}
+
+	public static Map<String, Language> fromBinary(InputStream is) throws IOException {
+		return LanguageBinaryFormat.read(is);
+	}
+
 	private transient String name;
 	private ContainerRule rule;
 
+	private volatile boolean analyzed;
+	private volatile int analyzedModificationCount;
+	private volatile boolean frozen;
+
 	public Language(String name, ContainerRule rule) {
 		this.name = name;
 		this.rule = rule;
 	}
 
+	/**
+	 * Runs the grammar analysis before the first parsing, or if the rules were modified since the last analysis.
+	 * <p>
+	 * It is not done in the constructor, as the rules may still be defined after the language is constructed. It can be
+	 * called by clients to access the analysis results via the rules before parsing.
+	 * <p>
+	 * As rules may be shared between languages, any rule modification causes the analysis to run again for languages
+	 * that are not {@linkplain #freeze() frozen}.
+	 */
+	public void ensureAnalyzed() {
+		if (isAnalysisUpToDate()) {
+			return;
+		}
+		synchronized (this) {
+			if (!isAnalysisUpToDate()) {
+				//get the count before the analysis, so modifications during it cause another analysis
+				int modcount = Rule.getModificationCount();
+				FirstSetAnalysis.analyze(rule);
+				ConstantOccurrenceAnalysis.analyze(rule);
+				analyzedModificationCount = modcount;
+				analyzed = true;
+			}
+		}
+	}
+
+	private boolean isAnalysisUpToDate() {
+		if (!analyzed) {
+			return false;
+		}
+		return frozen || analyzedModificationCount == Rule.getModificationCount();
+	}
+
+	/**
+	 * Makes the rules of the language unmodifiable.
+	 * <p>
+	 * The grammar analysis is run, and all rules which can be used by the language are frozen. Afterwards, the rules
+	 * can't be modified, and the language can be safely shared between threads for parsing.
+	 * <p>
+	 * The rules may be shared with other languages declared in the same grammar, which become unmodifiable as well.
+	 * 
+	 * @see Rule#freeze()
+	 */
+	public void freeze() {
+		if (frozen) {
+			return;
+		}
+		synchronized (this) {
+			if (!frozen) {
+				ensureAnalyzed();
+				for (Rule r : ReachableRules.collectAll(rule)) {
+					r.freeze();
+				}
+				frozen = true;
+			}
+		}
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Sets whether the patterns of the language should be matched using deterministic automatons instead of the
+	 * regex engine.
+	 * <p>
+	 * The automatons are only used for patterns which consist of regular constructs, the others are matched using the
+	 * regex engine. The parse results are the same regardless of this setting.
+	 * <p>
+	 * The setting is applied to the rules of the language, which may be shared with other languages declared in the
+	 * same grammar.
+	 * 
+	 * @param dfamatching
+	 *            <code>true</code> to use automatons for matching.
+	 * @throws IllegalStateException
+	 *             If the language is frozen.
+	 * @see ConsumeRule#setDfaMatching(boolean)
+	 */
+	public void setDfaMatching(boolean dfamatching) throws IllegalStateException {
+		for (Rule r : ReachableRules.collect(rule)) {
+			if (r instanceof ConsumeRule) {
+				((ConsumeRule) r).setDfaMatching(dfamatching);
+			}
+		}
+	}
+
 	public String getName() {
 		return name;
 	}
 
+	public void toBinary(OutputStream os) throws IOException, IllegalArgumentException {
+		toBinary(Collections.singletonMap(name, this), os);
+	}
+
 	public ContainerRule getRule() {
 		return rule;
 	}
 
 	public ParsingResult parseFile(File f) throws ParseFailedException, IOException {
-		String data = new String(Files.readAllBytes(f.toPath()));
-		return parseData(data);
+		try (Reader reader = new InputStreamReader(Files.newInputStream(f.toPath()))) {
+			return parseReader(reader);
+		}
+	}
+
+	public ParsingResult parseMappedFile(Path path, Charset charset) throws ParseFailedException, IOException {
+		return parseMappedFile(path, charset, ParseProgressMonitor.NULLMONITOR, MemoizationPolicy.UNBOUNDED);
+	}
+
+	/**
+	 * Parses a file by memory mapping it.
+	 * <p>
+	 * The file is mapped in chunks, and each chunk is decoded directly into the character buffer of the document. The
+	 * bytes of the file are not loaded into the heap, only the decoded characters, therefore this method is suitable
+	 * for large inputs. Use a {@linkplain MemoizationPolicy#window(int) windowed} memoization policy to bound the
+	 * memory of the memoization table as well.
+	 * <p>
+	 * Malformed and unmappable input is replaced with the default replacement of the charset.
+	 * <p>
+	 * If the charset is ISO-8859-1, or the file only contains ASCII characters and the charset is UTF-8 or US-ASCII,
+	 * then the file is parsed as a {@linkplain #parseLatin1Data(byte[], int, int, ParseProgressMonitor, MemoizationPolicy)
+	 * Latin-1 document}, using half the memory.
+	 * 
+	 * @param path
+	 *            The path to the file.
+	 * @param charset
+	 *            The charset of the file.
+	 * @param progressmonitor
+	 *            The progress monitor or <code>null</code>.
+	 * @param memoizationpolicy
+	 *            The memoization policy.
+	 * @return The parse result.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 * @throws IOException
+	 *             In case of I/O error, or if the decoded file doesn't fit in an array.
+	 */
+	public ParsingResult parseMappedFile(Path path, Charset charset, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException, IOException {
+		boolean latin1 = StandardCharsets.ISO_8859_1.equals(charset);
+		if (latin1 || StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+			byte[] bytes = readMappedLatin1File(path, !latin1, MAPPING_CHUNK_SIZE);
+			if (bytes != null) {
+				return parseLatin1Data(bytes, 0, bytes.length, progressmonitor, memoizationpolicy);
+			}
+		}
+		CharBuffer data = decodeMappedFile(path, charset, MAPPING_CHUNK_SIZE);
+		return parseData(data.array(), 0, data.position(), progressmonitor, memoizationpolicy);
+	}
+
+	/**
+	 * Reads the mapped file into a byte array.
+	 * 
+	 * @return The contents or <code>null</code> if ASCII only was requested and the file contains other characters.
+	 */
+	static byte[] readMappedLatin1File(Path path, boolean asciionly, int chunksize) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > MAX_ARRAY_SIZE) {
+				throw new IOException("Input is too large.");
+			}
+			if (asciionly) {
+				//check before allocating the result, as the characters need to be decoded otherwise
+				byte[] buffer = new byte[Math.min(1024 * 8, (int) size)];
+				for (long position = 0; position < size;) {
+					long chunklength = Math.min(chunksize, size - position);
+					MappedByteBuffer in = channel.map(MapMode.READ_ONLY, position, chunklength);
+					while (in.hasRemaining()) {
+						int count = Math.min(buffer.length, in.remaining());
+						in.get(buffer, 0, count);
+						for (int i = 0; i < count; i++) {
+							if (buffer[i] < 0) {
+								return null;
+							}
+						}
+					}
+					position += chunklength;
+				}
+			}
+			byte[] result = new byte[(int) size];
+			for (int position = 0; position < size;) {
+				int chunklength = (int) Math.min(chunksize, size - position);
+				channel.map(MapMode.READ_ONLY, position, chunklength).get(result, position, chunklength);
+				position += chunklength;
+			}
+			return result;
+		}
+	}
+
+	static CharBuffer decodeMappedFile(Path path, Charset charset, int chunksize) throws IOException {
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long estimate = (long) (size * (double) decoder.averageCharsPerByte()) + 16;
+			CharBuffer out = CharBuffer.allocate((int) Math.min(estimate, MAX_ARRAY_SIZE));
+			long position = 0;
+			while (true) {
+				long chunklength = Math.min(chunksize, size - position);
+				boolean last = position + chunklength == size;
+				MappedByteBuffer in = channel.map(MapMode.READ_ONLY, position, chunklength);
+				while (true) {
+					CoderResult cr = decoder.decode(in, out, last);
+					if (cr.isUnderflow()) {
+						break;
+					}
+					if (cr.isOverflow()) {
+						out = growDecodeBuffer(out);
+						continue;
+					}
+					cr.throwException();
+				}
+				if (last) {
+					break;
+				}
+				//the incomplete character sequence at the end of the chunk is remapped with the next one
+				position += in.position();
+			}
+			while (decoder.flush(out).isOverflow()) {
+				out = growDecodeBuffer(out);
+			}
+			return out;
+		}
+	}
+
+	private static CharBuffer growDecodeBuffer(CharBuffer buffer) throws IOException {
+		int capacity = buffer.capacity();
+		if (capacity >= MAX_ARRAY_SIZE) {
+			throw new IOException("Input is too large.");
+		}
+		CharBuffer result = CharBuffer.allocate((int) Math.min(capacity * 2L, MAX_ARRAY_SIZE));
+		buffer.flip();
+		result.put(buffer);
+		return result;
 	}
 
 	public ParsingResult parseInputStream(InputStream is) throws ParseFailedException, IOException {
-		return parseData(readStreamStringFully(is));
+		return parseInputStream(is, ParseProgressMonitor.NULLMONITOR);
 	}
 
+	/**
+	 * Parses the contents of the input stream decoded as UTF-8.
+	 * <p>
+	 * The stream is not closed by this method.
+	 * 
+	 * @see #parseReader(Reader, ParseProgressMonitor)
+	 */
 	public ParsingResult parseInputStream(InputStream is, ParseProgressMonitor progressmonitor)
 			throws ParseFailedException, IOException {
-		return parseData(readStreamStringFully(is), System.err, progressmonitor);
+		return parseReader(new InputStreamReader(is, StandardCharsets.UTF_8), progressmonitor);
+	}
+
+	public ParsingResult parseReader(Reader reader) throws ParseFailedException, IOException {
+		return parseReader(reader, ParseProgressMonitor.NULLMONITOR);
+	}
+
+	/**
+	 * Parses the characters read from the argument reader.
+	 * <p>
+	 * The characters are read directly into a growable buffer that is used as the document for parsing. The parsed
+	 * statements reference the buffer, so it is kept alive as long as the result. If more than a quarter of the buffer
+	 * is unused after reading, it is trimmed to the input length with a single copy.
+	 * <p>
+	 * The reader is not closed by this method.
+	 * 
+	 * @param reader
+	 *            The reader to read the input from.
+	 * @param progressmonitor
+	 *            The progress monitor or <code>null</code>.
+	 * @return The parse result.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 * @throws IOException
+	 *             In case of I/O error, or if the input is too large to be stored in an array.
+	 */
+	public ParsingResult parseReader(Reader reader, ParseProgressMonitor progressmonitor)
+			throws ParseFailedException, IOException {
+		char[] buffer = new char[1024 * 8];
+		int length = 0;
+		for (int read; (read = reader.read(buffer, length, buffer.length - length)) >= 0;) {
+			length += read;
+			if (length == buffer.length) {
+				if (length >= MAX_ARRAY_SIZE) {
+					throw new IOException("Input is too large.");
+				}
+				buffer = Arrays.copyOf(buffer, (int) Math.min(length * 2L, MAX_ARRAY_SIZE));
+			}
+		}
+		if (buffer.length - length > buffer.length / 4) {
+			//don't keep the unused part of the buffer alive with the result
+			buffer = Arrays.copyOf(buffer, length);
+		}
+		return parseData(buffer, 0, length, progressmonitor, MemoizationPolicy.UNBOUNDED);
+	}
+
+	/**
+	 * Parses the input and converts the result to a compact tree.
+	 * <p>
+	 * The statement tree and the parsing information are not retained, therefore the result can't be repaired.
+	 * 
+	 * @param data
+	 *            The input.
+	 * @return The parsed tree.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 */
+	public CompactStatementTree parseCompact(String data) throws ParseFailedException {
+		return CompactStatementTree.of(parseData(data).getStatement());
+	}
+
+	public ParsingResult parseData(char[] data, int offset, int length) throws ParseFailedException {
+		return parseData(data, offset, length, ParseProgressMonitor.NULLMONITOR, MemoizationPolicy.UNBOUNDED);
+	}
+
+	/**
+	 * Parses the given region of the argument array.
+	 * <p>
+	 * The array is not copied, and it shouldn't be modified while the parse result is in use, as the parsed
+	 * statements reference it. The offsets of the parsed statements are relative to the start of the region.
+	 * 
+	 * @param data
+	 *            The input array.
+	 * @param offset
+	 *            The start offset of the input in the array.
+	 * @param length
+	 *            The length of the input.
+	 * @param progressmonitor
+	 *            The progress monitor or <code>null</code>.
+	 * @param memoizationpolicy
+	 *            The memoization policy.
+	 * @return The parse result.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 * @throws IndexOutOfBoundsException
+	 *             If the region is out of bounds for the array.
+	 */
+	public ParsingResult parseData(char[] data, int offset, int length, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException, IndexOutOfBoundsException {
+		Objects.requireNonNull(memoizationpolicy, "memoization policy");
+		checkRange(data.length, offset, length);
+		return parseDocument(new DocumentData(data, offset, length), progressmonitor, memoizationpolicy);
+	}
+
+	public ParsingResult parseLatin1Data(byte[] data) throws ParseFailedException {
+		return parseLatin1Data(data, 0, data.length, ParseProgressMonitor.NULLMONITOR, MemoizationPolicy.UNBOUNDED);
+	}
+
+	/**
+	 * Parses the given region of an ISO-8859-1 (Latin-1) encoded array.
+	 * <p>
+	 * The array is not copied, and it shouldn't be modified while the parse result is in use, as the parsed
+	 * statements reference it. The characters are decoded when they are accessed, therefore the input takes half the
+	 * memory compared to a <code>char</code> array. ASCII encoded input can be parsed with this method as well.
+	 * <p>
+	 * The offsets of the parsed statements are relative to the start of the region.
+	 * 
+	 * @param data
+	 *            The input array.
+	 * @param offset
+	 *            The start offset of the input in the array.
+	 * @param length
+	 *            The length of the input.
+	 * @param progressmonitor
+	 *            The progress monitor or <code>null</code>.
+	 * @param memoizationpolicy
+	 *            The memoization policy.
+	 * @return The parse result.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 * @throws IndexOutOfBoundsException
+	 *             If the region is out of bounds for the array.
+	 */
+	public ParsingResult parseLatin1Data(byte[] data, int offset, int length, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException, IndexOutOfBoundsException {
+		Objects.requireNonNull(memoizationpolicy, "memoization policy");
+		checkRange(data.length, offset, length);
+		return parseDocument(new DocumentData(data, offset, length), progressmonitor, memoizationpolicy);
+	}
+
+	private ParsingResult parseDocument(DocumentData docdata, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException {
+		ensureAnalyzed();
+		ParseHelper helper = new ParseHelper(memoizationpolicy);
+		if (progressmonitor != null) {
+			helper.setProgressMonitor(progressmonitor);
+		}
+		return parseDocument(helper, docdata);
+	}
+
+	/**
+	 * Parses the remaining characters of the argument buffer.
+	 * <p>
+	 * If the buffer is backed by an accessible array, it is parsed without copying. Otherwise the remaining characters
+	 * are copied to a new array. The position of the buffer is not modified.
+	 * 
+	 * @param buffer
+	 *            The input buffer.
+	 * @return The parse result.
+	 * @throws ParseFailedException
+	 *             If the parsing failed.
+	 */
+	public ParsingResult parseData(CharBuffer buffer) throws ParseFailedException {
+		if (buffer.hasArray()) {
+			return parseData(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		char[] data = new char[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return parseData(data);
 	}
 
 	public ParsingResult parseData(char[] data, PrintStream infostream, ParseProgressMonitor progressmonitor)
 			throws ParseFailedException {
+		return parseData(data, infostream, progressmonitor, MemoizationPolicy.UNBOUNDED);
+	}
+
+	public ParsingResult parseData(char[] data, PrintStream infostream, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException {
+		Objects.requireNonNull(memoizationpolicy, "memoization policy");
 		//TODO remove this infostream and move data to thrown exception
+		return parseData(data, 0, data.length, progressmonitor, memoizationpolicy);
+	}
+
+	static void checkRange(int arraylength, int offset, int length) throws IndexOutOfBoundsException {
+		if (offset < 0 || length < 0 || offset > arraylength - length) {
+			throw new IndexOutOfBoundsException(
+					"Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + arraylength);
+		}
+	}
+
+	ParsingResult parseDocument(ParseHelper helper, DocumentData docdata) throws ParseFailedException {
+		int length = docdata.length();
 		ParsingResult result;
-		ParseHelper helper;
 		try {
-			DocumentData docdata = new DocumentData(data);
-			helper = new ParseHelper();
-			if (progressmonitor != null) {
-				helper.setProgressMonitor(progressmonitor);
-			}
 			result = rule.parseStatement(helper, docdata, ParseContext.EMPTY, PARSE_ONCE());
 		} catch (FatalParseException e) {
 			throw e;
 		}
 		Statement resultstm = result.getStatement();
-		if (resultstm == null || resultstm.getEndOffset() != data.length) {
+		if (resultstm == null || resultstm.getEndOffset() != length) {
 //					Set<ParseFail> fails = helper.getFails();
 //					String posstring = resultstm.getEndOffset() + "";
 			//
@@ -772,6 +1280,15 @@ public class Language {
 		return parseData(data.toCharArray(), infostream, progressmonitor);
 	}
 
+	public ParsingResult parseData(String data, PrintStream infostream, ParseProgressMonitor progressmonitor,
+			MemoizationPolicy memoizationpolicy) throws ParseFailedException {
+		return parseData(data.toCharArray(), infostream, progressmonitor, memoizationpolicy);
+	}
+
+	public ParsingResult parseData(String data, MemoizationPolicy memoizationpolicy) throws ParseFailedException {
+		return parseData(data.toCharArray(), System.err, ParseProgressMonitor.NULLMONITOR, memoizationpolicy);
+	}
+
 	public ParsingResult parseData(String data, PrintStream infostream) throws ParseFailedException {
 		return parseData(data, infostream, ParseProgressMonitor.NULLMONITOR);
 	}
@@ -784,6 +1301,72 @@ public class Language {
 		return parseData(data, System.err, ParseProgressMonitor.NULLMONITOR);
 	}
 
+	/**
+	 * Parses the argument inputs in parallel using the given executor.
+	 * 
+	 * @see #parseAll(Collection, Executor, MemoizationPolicy)
+	 */
+	public List<CompletableFuture<ParsingResult>> parseAll(Collection<String> inputs, Executor executor)
+			throws NullPointerException {
+		return parseAll(inputs, executor, MemoizationPolicy.UNBOUNDED);
+	}
+
+	/**
+	 * Parses the argument inputs in parallel using the given executor.
+	 * <p>
+	 * Each input is parsed in a separate task submitted to the executor. The {@link ParseSession} of finished tasks is
+	 * reused by the subsequently started ones, so the setup cost is amortized when many small inputs are parsed. The
+	 * reuse is not bound to threads, therefore executors that start a new thread for each task (e.g. virtual threads)
+	 * benefit from it as well. The memoization table of a session is shrunk after parsing a small input, so a large
+	 * input doesn't make the pooled sessions retain its memory until all parsing is done.
+	 * <p>
+	 * If an input fails to parse, the corresponding future is completed exceptionally with a
+	 * {@link ParseFailedException}. Other inputs are not affected by the failure.
+	 * <p>
+	 * The language shouldn't be modified while the parsing is in progress. See {@link #freeze()}.
+	 * 
+	 * @param inputs
+	 *            The inputs to parse.
+	 * @param executor
+	 *            The executor to run the parsing tasks.
+	 * @param memoizationpolicy
+	 *            The memoization policy to use for each input.
+	 * @return The futures of the parse results in the iteration order of the inputs.
+	 * @throws NullPointerException
+	 *             If any of the arguments are <code>null</code>.
+	 */
+	public List<CompletableFuture<ParsingResult>> parseAll(Collection<String> inputs, Executor executor,
+			MemoizationPolicy memoizationpolicy) throws NullPointerException {
+		Objects.requireNonNull(inputs, "inputs");
+		Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(memoizationpolicy, "memoization policy");
+		ensureAnalyzed();
+		Queue<ParseSession> sessions = new ConcurrentLinkedQueue<>();
+		List<CompletableFuture<ParsingResult>> result = new ArrayList<>(inputs.size());
+		for (String input : inputs) {
+			CompletableFuture<ParsingResult> future = new CompletableFuture<>();
+			result.add(future);
+			try {
+				executor.execute(() -> {
+					ParseSession session = sessions.poll();
+					if (session == null) {
+						session = new ParseSession(memoizationpolicy);
+					}
+					try {
+						future.complete(session.parseData(this, input));
+					} catch (Throwable e) {
+						future.completeExceptionally(e);
+					} finally {
+						sessions.offer(session);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				future.completeExceptionally(e);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public int hashCode() {
 		return rule.hashCode();
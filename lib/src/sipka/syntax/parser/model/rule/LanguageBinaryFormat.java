@@ -0,0 +1,895 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.occurrence.Occurrence;
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.parse.context.DeclaringContext;
+import sipka.syntax.parser.model.parse.params.InvokeParam;
+import sipka.syntax.parser.model.parse.params.InvokeParamVisitor;
+import sipka.syntax.parser.model.parse.params.OccurrenceParam;
+import sipka.syntax.parser.model.parse.params.RegexParam;
+import sipka.syntax.parser.model.parse.params.RuleInvocationVarReferenceParam;
+import sipka.syntax.parser.model.parse.params.VarReferenceParam;
+import sipka.syntax.parser.model.rule.consume.ConsumeRule;
+import sipka.syntax.parser.model.rule.consume.MatchesRule;
+import sipka.syntax.parser.model.rule.consume.SkipRule;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.model.rule.container.order.AnyOrderRule;
+import sipka.syntax.parser.model.rule.container.order.FirstOrderRule;
+import sipka.syntax.parser.model.rule.container.order.InOrderRule;
+import sipka.syntax.parser.model.rule.container.value.ValueRule;
+import sipka.syntax.parser.model.rule.invoke.InvokeRule;
+import sipka.syntax.parser.util.Pair;
+
+/**
+ * Binary serialization of the languages.
+ * <p>
+ * The rules, declarations, parameters and declaring contexts are written in tables, and reference each other by
+ * their indexes. The tables are ordered so that the objects can be constructed in a single pass when read, only the
+ * children of the container rules and the contexts of the declarations are set after the referenced objects are
+ * created. The identity of the shared objects is preserved, and equal patterns are only compiled once.
+ * <p>
+ * The container rules are created before the other rules, therefore the rule declarations and parameter references
+ * may only reference container rules. This is always the case for the languages parsed from definitions.
+ */
+final class LanguageBinaryFormat {
+	private static final int MAGIC = 0x53504C42;
+	private static final int VERSION = 1;
+
+	private static final byte RULE_INORDER = 0;
+	private static final byte RULE_FIRSTORDER = 1;
+	private static final byte RULE_ANYORDER = 2;
+	private static final byte RULE_VALUE = 3;
+	private static final byte RULE_MATCHES = 4;
+	private static final byte RULE_SKIP = 5;
+	private static final byte RULE_INVOKE = 6;
+
+	private static final byte PARAM_REGEX = 0;
+	private static final byte PARAM_OCCURRENCE = 1;
+	private static final byte PARAM_VARREFERENCE = 2;
+	private static final byte PARAM_RULEINVOCATIONVARREFERENCE = 3;
+
+	private static final byte VALUE_NULL = 0;
+	private static final byte VALUE_PATTERN = 1;
+	private static final byte VALUE_OCCURRENCE = 2;
+	private static final byte VALUE_RULEDECLARATION = 3;
+	private static final byte VALUE_PARAM = 4;
+
+	private static final int CONTEXT_NULL = 0;
+	private static final int CONTEXT_EMPTY = 1;
+	private static final int CONTEXT_INDEX_OFFSET = 2;
+
+	private static final Class<?>[] DECLARED_PARAM_TYPES = { Rule.class, FirstOrderRule.class, AnyOrderRule.class,
+			InOrderRule.class, ValueRule.class, SkipRule.class, MatchesRule.class, Pattern.class, Occurrence.class,
+			RuleDeclaration.class };
+
+	private LanguageBinaryFormat() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static void write(Map<String, Language> languages, OutputStream os) throws IOException {
+		Objects.requireNonNull(languages, "languages");
+		Objects.requireNonNull(os, "output stream");
+		new Writer(languages).write(os);
+	}
+
+	public static Map<String, Language> read(InputStream is) throws IOException {
+		Objects.requireNonNull(is, "input stream");
+		return new Reader(is).read();
+	}
+
+	private static final class Writer {
+		private final Map<String, Language> languages;
+
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final List<String> stringList = new ArrayList<>();
+		private final Map<String, Integer> patterns = new HashMap<>();
+		private final List<Pattern> patternList = new ArrayList<>();
+		private final Map<String, Integer> occurrences = new HashMap<>();
+		private final List<String> occurrenceList = new ArrayList<>();
+
+		private final Map<Rule, Integer> rules = new IdentityHashMap<>();
+		private final List<ContainerRule> containerRules = new ArrayList<>();
+		private final List<Rule> otherRules = new ArrayList<>();
+		private final ArrayDeque<Rule> pendingRules = new ArrayDeque<>();
+
+		private final Map<RuleDeclaration, Integer> declarations = new IdentityHashMap<>();
+		private final List<RuleDeclaration> declarationList = new ArrayList<>();
+		private final Map<InvokeParam<?>, Integer> params = new IdentityHashMap<>();
+		private final List<InvokeParam<?>> paramList = new ArrayList<>();
+		private final Map<DeclaringContext, Integer> contexts = new IdentityHashMap<>();
+		private final List<DeclaringContext> contextList = new ArrayList<>();
+
+		public Writer(Map<String, Language> languages) {
+			this.languages = languages;
+		}
+
+		public void write(OutputStream os) throws IOException {
+			for (Language lang : languages.values()) {
+				addRule(lang.getRule());
+			}
+			while (!pendingRules.isEmpty()) {
+				collectRule(pendingRules.poll());
+			}
+			//the container rules are indexed first, as they are constructed first
+			int ruleidx = 0;
+			for (ContainerRule r : containerRules) {
+				rules.put(r, ruleidx++);
+			}
+			for (Rule r : otherRules) {
+				rules.put(r, ruleidx++);
+			}
+
+			ByteArrayOutputStream bodybytes = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(bodybytes);
+			writeBody(body);
+			body.flush();
+
+			DataOutputStream out = new DataOutputStream(os);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeVarInt(out, stringList.size());
+			for (String s : stringList) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(out, bytes.length);
+				out.write(bytes);
+			}
+			bodybytes.writeTo(out);
+			out.flush();
+		}
+
+		private void writeBody(DataOutput out) throws IOException {
+			writeVarInt(out, patternList.size());
+			for (Pattern p : patternList) {
+				writeString(out, p.pattern());
+				writeVarInt(out, p.flags());
+			}
+			writeVarInt(out, occurrenceList.size());
+			for (String o : occurrenceList) {
+				writeString(out, o);
+			}
+
+			writeVarInt(out, containerRules.size());
+			for (ContainerRule r : containerRules) {
+				byte kind = getRuleKind(r);
+				out.writeByte(kind);
+				writeString(out, r.getIdentifierName());
+				if (kind == RULE_VALUE) {
+					out.writeBoolean(((ValueRule) r).isNonEmpty());
+				}
+				writeDeclaredParams(out, r);
+			}
+			writeVarInt(out, declarationList.size());
+			for (RuleDeclaration decl : declarationList) {
+				writeVarInt(out, getContainerRuleIndex(decl.getRule()));
+			}
+			writeVarInt(out, paramList.size());
+			for (InvokeParam<?> param : paramList) {
+				writeParam(out, param);
+			}
+			writeVarInt(out, otherRules.size());
+			for (Rule r : otherRules) {
+				byte kind = getRuleKind(r);
+				out.writeByte(kind);
+				writeString(out, r.getIdentifierName());
+				if (kind == RULE_INVOKE) {
+					InvokeRule ir = (InvokeRule) r;
+					writeParamReference(out, ir.getRuleParam());
+					writeString(out, ir.getAlias());
+					List<InvokeParam<?>> invokeparams = ir.getInvokeParams();
+					writeVarInt(out, invokeparams.size());
+					for (InvokeParam<?> p : invokeparams) {
+						writeParamReference(out, p);
+					}
+				} else {
+					writeParamReference(out, ((ConsumeRule) r).getParam());
+				}
+				writeDeclaredParams(out, r);
+			}
+			writeVarInt(out, contextList.size());
+			for (int i = 0; i < contextList.size(); i++) {
+				writeContext(out, i);
+			}
+			for (RuleDeclaration decl : declarationList) {
+				writeContextReference(out, decl.getDeclarationContext());
+			}
+			for (ContainerRule r : containerRules) {
+				writeVarInt(out, r.getChildren().size());
+				for (Pair<Rule, ParseTimeData> child : r.getChildren()) {
+					writeVarInt(out, rules.get(child.key));
+					writeParamReference(out, child.value.getOccurrenceParam());
+					writeContextReference(out, child.value.getDeclaringContext());
+				}
+			}
+			writeVarInt(out, languages.size());
+			for (Entry<String, Language> entry : languages.entrySet()) {
+				Language lang = entry.getValue();
+				writeString(out, Objects.requireNonNull(entry.getKey(), "language name"));
+				writeString(out, lang.getName());
+				writeVarInt(out, getContainerRuleIndex(lang.getRule()));
+			}
+		}
+
+		/**
+		 * Writes the context as the difference from the most similar previous one.
+		 * <p>
+		 * The locals of the contexts are the declarations visible at a given point of the definition, therefore they
+		 * mostly differ only in a few entries from the context of the enclosing rule.
+		 */
+		private void writeContext(DataOutput out, int index) throws IOException {
+			Map<String, Object> locals = contextList.get(index).getLocalsMap();
+			int baseidx = -1;
+			Map<String, Object> baselocals = Collections.emptyMap();
+			int mindiff = locals.size();
+			for (int i = 0; i < index && mindiff > 0; i++) {
+				Map<String, Object> candidate = contextList.get(i).getLocalsMap();
+				int diff = getLocalsDifference(candidate, locals);
+				if (diff < mindiff) {
+					mindiff = diff;
+					baseidx = i;
+					baselocals = candidate;
+				}
+			}
+			writeVarInt(out, baseidx + 1);
+			List<String> removed = new ArrayList<>();
+			for (String name : baselocals.keySet()) {
+				if (!locals.containsKey(name)) {
+					removed.add(name);
+				}
+			}
+			writeVarInt(out, removed.size());
+			for (String name : removed) {
+				writeString(out, name);
+			}
+			List<Entry<String, Object>> added = new ArrayList<>();
+			for (Entry<String, Object> entry : locals.entrySet()) {
+				if (baselocals.get(entry.getKey()) != entry.getValue()) {
+					added.add(entry);
+				}
+			}
+			writeVarInt(out, added.size());
+			for (Entry<String, Object> entry : added) {
+				writeString(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		}
+
+		private static int getLocalsDifference(Map<String, Object> base, Map<String, Object> locals) {
+			int result = 0;
+			for (Entry<String, Object> entry : base.entrySet()) {
+				if (locals.get(entry.getKey()) != entry.getValue()) {
+					++result;
+				}
+			}
+			for (Entry<String, Object> entry : locals.entrySet()) {
+				if (base.get(entry.getKey()) != entry.getValue()) {
+					++result;
+				}
+			}
+			return result;
+		}
+
+		private void writeDeclaredParams(DataOutput out, Rule r) throws IOException {
+			List<Pair<String, Class<?>>> declaredparams = r.getDeclaredParams();
+			writeVarInt(out, declaredparams.size());
+			for (Pair<String, Class<?>> p : declaredparams) {
+				writeString(out, p.key);
+				writeVarInt(out, getDeclaredParamTypeIndex(p.value));
+			}
+		}
+
+		private void writeParam(DataOutput out, InvokeParam<?> param) throws IOException {
+			if (param instanceof RegexParam) {
+				out.writeByte(PARAM_REGEX);
+				writeVarInt(out, patterns.get(getPatternKey(((RegexParam) param).getPattern())));
+			} else if (param instanceof OccurrenceParam) {
+				out.writeByte(PARAM_OCCURRENCE);
+				writeVarInt(out, occurrences.get(((OccurrenceParam) param).getOccurrence().toString()));
+			} else if (param instanceof VarReferenceParam<?>) {
+				VarReferenceParam<?> varref = (VarReferenceParam<?>) param;
+				out.writeByte(PARAM_VARREFERENCE);
+				writeString(out, varref.getVariableName());
+				writeValue(out, varref.getBoundValue());
+			} else {
+				RuleInvocationVarReferenceParam<?> ruleref = (RuleInvocationVarReferenceParam<?>) param;
+				out.writeByte(PARAM_RULEINVOCATIONVARREFERENCE);
+				writeVarInt(out, getContainerRuleIndex(ruleref.getRule()));
+				writeString(out, ruleref.getVariableName());
+			}
+		}
+
+		private void writeValue(DataOutput out, Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(VALUE_NULL);
+			} else if (value instanceof Pattern) {
+				out.writeByte(VALUE_PATTERN);
+				writeVarInt(out, patterns.get(getPatternKey((Pattern) value)));
+			} else if (value instanceof Occurrence) {
+				out.writeByte(VALUE_OCCURRENCE);
+				writeVarInt(out, occurrences.get(value.toString()));
+			} else if (value instanceof RuleDeclaration) {
+				out.writeByte(VALUE_RULEDECLARATION);
+				writeVarInt(out, declarations.get(value));
+			} else {
+				out.writeByte(VALUE_PARAM);
+				writeVarInt(out, params.get(value));
+			}
+		}
+
+		private void writeParamReference(DataOutput out, InvokeParam<?> param) throws IOException {
+			writeVarInt(out, param == null ? 0 : params.get(param) + 1);
+		}
+
+		private void writeContextReference(DataOutput out, DeclaringContext context) throws IOException {
+			if (context == null) {
+				writeVarInt(out, CONTEXT_NULL);
+			} else if (context == DeclaringContext.EMPTY) {
+				writeVarInt(out, CONTEXT_EMPTY);
+			} else {
+				writeVarInt(out, contexts.get(context) + CONTEXT_INDEX_OFFSET);
+			}
+		}
+
+		private void writeString(DataOutput out, String s) throws IOException {
+			if (s == null) {
+				writeVarInt(out, 0);
+				return;
+			}
+			Integer idx = strings.get(s);
+			if (idx == null) {
+				idx = stringList.size();
+				strings.put(s, idx);
+				stringList.add(s);
+			}
+			writeVarInt(out, idx + 1);
+		}
+
+		private int getContainerRuleIndex(Rule rule) {
+			int idx = rules.get(rule);
+			if (idx >= containerRules.size()) {
+				throw new IllegalArgumentException("Only container rules can be referenced by declarations: " + rule);
+			}
+			return idx;
+		}
+
+		private void addRule(Rule rule) {
+			if (rules.containsKey(rule)) {
+				return;
+			}
+			//placeholder until the indexes are assigned
+			rules.put(rule, -1);
+			pendingRules.add(rule);
+			if (rule instanceof ContainerRule) {
+				containerRules.add((ContainerRule) rule);
+			} else {
+				otherRules.add(rule);
+			}
+		}
+
+		private void collectRule(Rule rule) {
+			for (Pair<String, Class<?>> p : rule.getDeclaredParams()) {
+				getDeclaredParamTypeIndex(p.value);
+			}
+			if (rule instanceof ContainerRule) {
+				for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+					addRule(child.key);
+					addParam(child.value.getOccurrenceParam());
+					addContext(child.value.getDeclaringContext());
+				}
+			} else if (rule instanceof ConsumeRule) {
+				addParam(((ConsumeRule) rule).getParam());
+			} else if (rule instanceof InvokeRule) {
+				InvokeRule ir = (InvokeRule) rule;
+				addParam(ir.getRuleParam());
+				for (InvokeParam<?> p : ir.getInvokeParams()) {
+					addParam(p);
+				}
+			} else {
+				throw new IllegalArgumentException("Unsupported rule: " + rule.getClass().getName());
+			}
+		}
+
+		private void addParam(InvokeParam<?> param) {
+			if (param == null || params.containsKey(param)) {
+				return;
+			}
+			param.accept(new InvokeParamVisitor() {
+				@Override
+				public void visit(VarReferenceParam<?> param) {
+					addValue(param.getBoundValue());
+				}
+
+				@Override
+				public void visit(OccurrenceParam param) {
+					addOccurrence(param.getOccurrence());
+				}
+
+				@Override
+				public void visit(RegexParam param) {
+					addPattern(param.getPattern());
+				}
+
+				@Override
+				public void visit(RuleInvocationVarReferenceParam<?> param) {
+					addRule(param.getRule());
+				}
+			});
+			//the parameters are added after the ones they reference, so they can be constructed in order
+			params.put(param, paramList.size());
+			paramList.add(param);
+		}
+
+		private void addValue(Object value) {
+			if (value == null) {
+				return;
+			}
+			if (value instanceof Pattern) {
+				addPattern((Pattern) value);
+			} else if (value instanceof Occurrence) {
+				addOccurrence((Occurrence) value);
+			} else if (value instanceof RuleDeclaration) {
+				addDeclaration((RuleDeclaration) value);
+			} else if (value instanceof InvokeParam<?>) {
+				addParam((InvokeParam<?>) value);
+			} else {
+				throw new IllegalArgumentException("Unsupported value: " + value.getClass().getName());
+			}
+		}
+
+		private void addDeclaration(RuleDeclaration decl) {
+			if (declarations.containsKey(decl)) {
+				return;
+			}
+			declarations.put(decl, declarationList.size());
+			declarationList.add(decl);
+			addRule(decl.getRule());
+			addContext(decl.getDeclarationContext());
+		}
+
+		private void addContext(DeclaringContext context) {
+			if (context == null || context == DeclaringContext.EMPTY || contexts.containsKey(context)) {
+				return;
+			}
+			contexts.put(context, contextList.size());
+			contextList.add(context);
+			for (Object value : context.getLocalsMap().values()) {
+				addValue(value);
+			}
+		}
+
+		private void addPattern(Pattern pattern) {
+			String key = getPatternKey(pattern);
+			if (!patterns.containsKey(key)) {
+				patterns.put(key, patternList.size());
+				patternList.add(pattern);
+			}
+		}
+
+		private void addOccurrence(Occurrence occurrence) {
+			String str = occurrence.toString();
+			if (!occurrences.containsKey(str)) {
+				if (!occurrence.equals(Occurrence.parse(str))) {
+					throw new IllegalArgumentException("Unsupported occurrence: " + str);
+				}
+				occurrences.put(str, occurrenceList.size());
+				occurrenceList.add(str);
+			}
+		}
+	}
+
+	private static final class Reader {
+		private final DataInputStream in;
+
+		private String[] strings;
+		private Pattern[] patterns;
+		private Occurrence[] occurrences;
+		private Rule[] rules;
+		private int containerRuleCount;
+		private RuleDeclaration[] declarations;
+		private InvokeParam<?>[] params;
+		private DeclaringContext[] contexts;
+
+		public Reader(InputStream is) {
+			this.in = new DataInputStream(is);
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public Map<String, Language> read() throws IOException {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Invalid language binary data.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported language binary format version: " + version);
+			}
+			strings = new String[readCount()];
+			byte[] buf = new byte[256];
+			for (int i = 0; i < strings.length; i++) {
+				int len = readVarInt(in);
+				if (len > buf.length) {
+					buf = new byte[Math.max(len, buf.length * 2)];
+				}
+				in.readFully(buf, 0, len);
+				strings[i] = new String(buf, 0, len, StandardCharsets.UTF_8);
+			}
+
+			patterns = new Pattern[readCount()];
+			for (int i = 0; i < patterns.length; i++) {
+				String src = readNonNullString();
+				int flags = readVarInt(in);
+				try {
+					patterns[i] = Pattern.compile(src, flags);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Failed to compile pattern: " + src, e);
+				}
+			}
+			occurrences = new Occurrence[readCount()];
+			for (int i = 0; i < occurrences.length; i++) {
+				String str = readNonNullString();
+				try {
+					occurrences[i] = Occurrence.parse(str);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Failed to parse occurrence: " + str, e);
+				}
+			}
+
+			RuleFactory factory = new RuleFactory();
+			containerRuleCount = readCount();
+			List<Rule> rulelist = new ArrayList<>(containerRuleCount);
+			for (int i = 0; i < containerRuleCount; i++) {
+				byte kind = in.readByte();
+				String idname = readString();
+				ContainerRule rule;
+				switch (kind) {
+					case RULE_INORDER: {
+						rule = factory.createInOrderRule(idname);
+						break;
+					}
+					case RULE_FIRSTORDER: {
+						rule = factory.createFirstOrderRule(idname);
+						break;
+					}
+					case RULE_ANYORDER: {
+						rule = factory.createAnyOrderRule(idname);
+						break;
+					}
+					case RULE_VALUE: {
+						ValueRule vr = factory.createValueRule(idname);
+						vr.setNonEmpty(in.readBoolean());
+						rule = vr;
+						break;
+					}
+					default: {
+						throw new IOException("Invalid container rule kind: " + kind);
+					}
+				}
+				readDeclaredParams(rule);
+				rulelist.add(rule);
+			}
+			rules = rulelist.toArray(new Rule[0]);
+
+			declarations = new RuleDeclaration[readCount()];
+			for (int i = 0; i < declarations.length; i++) {
+				declarations[i] = new RuleDeclaration(getContainerRule(readVarInt(in)));
+			}
+			params = new InvokeParam<?>[readCount()];
+			for (int i = 0; i < params.length; i++) {
+				params[i] = readParam();
+			}
+
+			int otherrulecount = readCount();
+			for (int i = 0; i < otherrulecount; i++) {
+				byte kind = in.readByte();
+				String idname = readString();
+				Rule rule;
+				switch (kind) {
+					case RULE_MATCHES: {
+						rule = factory.createMatchesRule(idname, (InvokeParam<Pattern>) readParamReference());
+						break;
+					}
+					case RULE_SKIP: {
+						rule = factory.createSkipRule(idname, (InvokeParam<Pattern>) readParamReference());
+						break;
+					}
+					case RULE_INVOKE: {
+						InvokeParam<?> ruleparam = readParamReference();
+						String alias = readString();
+						int paramcount = readCount();
+						List<InvokeParam<?>> invokeparams = new ArrayList<>(paramcount);
+						for (int j = 0; j < paramcount; j++) {
+							invokeparams.add(readParamReference());
+						}
+						rule = factory.createInvokeRule(idname, ruleparam, alias, invokeparams);
+						break;
+					}
+					default: {
+						throw new IOException("Invalid rule kind: " + kind);
+					}
+				}
+				readDeclaredParams(rule);
+				rulelist.add(rule);
+			}
+			rules = rulelist.toArray(new Rule[0]);
+
+			contexts = new DeclaringContext[readCount()];
+			for (int i = 0; i < contexts.length; i++) {
+				int baseidx = readVarInt(in);
+				Map<String, Object> localsmap = baseidx == 0 ? new TreeMap<>()
+						: new TreeMap<>(get(contexts, baseidx - 1).getLocalsMap());
+				int removedcount = readCount();
+				for (int j = 0; j < removedcount; j++) {
+					localsmap.remove(readNonNullString());
+				}
+				int addedcount = readCount();
+				for (int j = 0; j < addedcount; j++) {
+					localsmap.put(readNonNullString(), readValue());
+				}
+				List<Pair<String, Object>> locals = new ArrayList<>(localsmap.size());
+				for (Entry<String, Object> entry : localsmap.entrySet()) {
+					locals.add(new Pair<>(entry.getKey(), entry.getValue()));
+				}
+				try {
+					contexts[i] = new DeclaringContext(locals);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid declaring context.", e);
+				}
+			}
+			for (RuleDeclaration decl : declarations) {
+				decl.setDeclarationContext(readContextReference());
+			}
+			for (int i = 0; i < containerRuleCount; i++) {
+				ContainerRule container = (ContainerRule) rules[i];
+				int childcount = readCount();
+				for (int j = 0; j < childcount; j++) {
+					Rule child = get(rules, readVarInt(in));
+					InvokeParam occurrenceparam = readParamReference();
+					container.addChild(child, new ParseTimeData(occurrenceparam, readContextReference()));
+				}
+			}
+
+			Map<String, Language> result = new TreeMap<>();
+			int langcount = readCount();
+			for (int i = 0; i < langcount; i++) {
+				String key = readNonNullString();
+				String name = readString();
+				result.put(key, new Language(name, getContainerRule(readVarInt(in))));
+			}
+			return result;
+		}
+
+		private void readDeclaredParams(Rule rule) throws IOException {
+			int count = readCount();
+			if (count == 0) {
+				return;
+			}
+			List<Pair<String, Class<?>>> declaredparams = rule.getDeclaredParams();
+			for (int i = 0; i < count; i++) {
+				String name = readNonNullString();
+				declaredparams.add(new Pair<>(name, get(DECLARED_PARAM_TYPES, readVarInt(in))));
+			}
+		}
+
+		private InvokeParam<?> readParam() throws IOException {
+			byte kind = in.readByte();
+			switch (kind) {
+				case PARAM_REGEX: {
+					return new RegexParam(get(patterns, readVarInt(in)));
+				}
+				case PARAM_OCCURRENCE: {
+					return new OccurrenceParam(get(occurrences, readVarInt(in)));
+				}
+				case PARAM_VARREFERENCE: {
+					String name = readNonNullString();
+					Object value = readValue();
+					if (value == null) {
+						return new VarReferenceParam<>(name);
+					}
+					return new VarReferenceParam<>(name, value);
+				}
+				case PARAM_RULEINVOCATIONVARREFERENCE: {
+					Rule rule = getContainerRule(readVarInt(in));
+					return new RuleInvocationVarReferenceParam<>(rule, readNonNullString());
+				}
+				default: {
+					throw new IOException("Invalid parameter kind: " + kind);
+				}
+			}
+		}
+
+		private Object readValue() throws IOException {
+			byte kind = in.readByte();
+			switch (kind) {
+				case VALUE_NULL: {
+					return null;
+				}
+				case VALUE_PATTERN: {
+					return get(patterns, readVarInt(in));
+				}
+				case VALUE_OCCURRENCE: {
+					return get(occurrences, readVarInt(in));
+				}
+				case VALUE_RULEDECLARATION: {
+					return get(declarations, readVarInt(in));
+				}
+				case VALUE_PARAM: {
+					//the parameters may only reference the previous ones
+					return get(params, readVarInt(in));
+				}
+				default: {
+					throw new IOException("Invalid value kind: " + kind);
+				}
+			}
+		}
+
+		private InvokeParam<?> readParamReference() throws IOException {
+			int idx = readVarInt(in);
+			if (idx == 0) {
+				return null;
+			}
+			return get(params, idx - 1);
+		}
+
+		private DeclaringContext readContextReference() throws IOException {
+			int idx = readVarInt(in);
+			switch (idx) {
+				case CONTEXT_NULL: {
+					return null;
+				}
+				case CONTEXT_EMPTY: {
+					return DeclaringContext.EMPTY;
+				}
+				default: {
+					return get(contexts, idx - CONTEXT_INDEX_OFFSET);
+				}
+			}
+		}
+
+		private ContainerRule getContainerRule(int idx) throws IOException {
+			if (idx < 0 || idx >= containerRuleCount) {
+				throw new IOException("Invalid container rule index: " + idx);
+			}
+			return (ContainerRule) rules[idx];
+		}
+
+		private int readCount() throws IOException {
+			int result = readVarInt(in);
+			if (result < 0) {
+				throw new IOException("Invalid language binary data count: " + result);
+			}
+			return result;
+		}
+
+		private String readString() throws IOException {
+			int idx = readVarInt(in);
+			if (idx == 0) {
+				return null;
+			}
+			return get(strings, idx - 1);
+		}
+
+		private String readNonNullString() throws IOException {
+			String result = readString();
+			if (result == null) {
+				throw new IOException("Invalid language binary data.");
+			}
+			return result;
+		}
+
+		private static <T> T get(T[] array, int idx) throws IOException {
+			//the elements may not be constructed yet, if the data references forward
+			if (idx < 0 || idx >= array.length || array[idx] == null) {
+				throw new IOException("Invalid language binary data index: " + idx);
+			}
+			return array[idx];
+		}
+	}
+
+	private static byte getRuleKind(Rule rule) {
+		byte[] result = { -1 };
+		rule.accept(new RuleVisitor() {
+			@Override
+			public void visit(InvokeRule rule) {
+				result[0] = RULE_INVOKE;
+			}
+
+			@Override
+			public void visit(ValueRule rule) {
+				result[0] = RULE_VALUE;
+			}
+
+			@Override
+			public void visit(InOrderRule rule) {
+				result[0] = RULE_INORDER;
+			}
+
+			@Override
+			public void visit(FirstOrderRule rule) {
+				result[0] = RULE_FIRSTORDER;
+			}
+
+			@Override
+			public void visit(AnyOrderRule rule) {
+				result[0] = RULE_ANYORDER;
+			}
+
+			@Override
+			public void visit(SkipRule rule) {
+				result[0] = RULE_SKIP;
+			}
+
+			@Override
+			public void visit(MatchesRule rule) {
+				result[0] = RULE_MATCHES;
+			}
+		});
+		return result[0];
+	}
+
+	private static int getDeclaredParamTypeIndex(Class<?> type) {
+		for (int i = 0; i < DECLARED_PARAM_TYPES.length; i++) {
+			if (DECLARED_PARAM_TYPES[i] == type) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported declared parameter type: " + type.getName());
+	}
+
+	private static String getPatternKey(Pattern pattern) {
+		return pattern.flags() + ":" + pattern.pattern();
+	}
+
+	private static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInput in) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+}
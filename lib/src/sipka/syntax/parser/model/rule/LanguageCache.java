@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sipka.syntax.parser.model.ParseFailedException;
+
+/**
+ * Cache of the languages parsed from language definitions.
+ * <p>
+ * The entries are keyed by the SHA-256 hash of the UTF-8 encoded definition, therefore the same definition read from
+ * different sources results in the same language instances. The returned maps are unmodifiable, and are shared by
+ * all callers.
+ * <p>
+ * The languages are softly referenced, so they are evicted if they are no longer used and memory is needed. Modified
+ * definitions have a different hash, so they don't need to be invalidated, the stale entries are evicted eventually.
+ * <p>
+ * The cached languages are {@linkplain Language#freeze() frozen}, so they can be shared between threads for parsing.
+ * <p>
+ * This class is thread safe.
+ */
+public final class LanguageCache {
+	private static final LanguageCache DEFAULT = new LanguageCache();
+
+	private static final class ContentKey {
+		private final byte[] hash;
+		private final int hashCode;
+
+		public ContentKey(byte[] hash) {
+			this.hash = hash;
+			this.hashCode = Arrays.hashCode(hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			ContentKey other = (ContentKey) obj;
+			return Arrays.equals(hash, other.hash);
+		}
+	}
+
+	private static final class LanguagesReference extends SoftReference<Map<String, Language>> {
+		protected final ContentKey key;
+
+		public LanguagesReference(ContentKey key, Map<String, Language> referent,
+				ReferenceQueue<? super Map<String, Language>> q) {
+			super(referent, q);
+			this.key = key;
+		}
+	}
+
+	private final ConcurrentHashMap<ContentKey, LanguagesReference> entries = new ConcurrentHashMap<>();
+	private final ReferenceQueue<Map<String, Language>> referenceQueue = new ReferenceQueue<>();
+
+	/**
+	 * Creates a new cache.
+	 * <p>
+	 * Consider using {@link #getDefault()} to share the languages in the process.
+	 */
+	public LanguageCache() {
+	}
+
+	/**
+	 * Gets the process wide cache instance.
+	 */
+	public static LanguageCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the languages for the given definition, parsing it if not yet cached.
+	 * 
+	 * @see Language#fromString(String)
+	 */
+	public Map<String, Language> fromString(String data) throws ParseFailedException {
+		Objects.requireNonNull(data, "data");
+		return get(data.getBytes(StandardCharsets.UTF_8), data);
+	}
+
+	public Map<String, Language> fromPath(Path path) throws IOException, ParseFailedException {
+		return fromBytes(Files.readAllBytes(path));
+	}
+
+	public Map<String, Language> fromInputStream(InputStream is) throws IOException, ParseFailedException {
+		try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+			byte[] buffer = new byte[1024 * 8];
+			for (int len; (len = is.read(buffer)) > 0;) {
+				os.write(buffer, 0, len);
+			}
+			return fromBytes(os.toByteArray());
+		}
+	}
+
+	/**
+	 * Gets the languages for the given UTF-8 encoded definition, parsing it if not yet cached.
+	 */
+	public Map<String, Language> fromBytes(byte[] utf8data) throws ParseFailedException {
+		Objects.requireNonNull(utf8data, "data");
+		return get(utf8data, null);
+	}
+
+	/**
+	 * Removes the languages of the given definition from the cache.
+	 * <p>
+	 * The languages that were already retrieved are unaffected, the next retrieval will parse the definition again.
+	 * 
+	 * @return <code>true</code> if the definition was cached.
+	 */
+	public boolean invalidate(String data) {
+		Objects.requireNonNull(data, "data");
+		LanguagesReference prev = entries.remove(getKey(data.getBytes(StandardCharsets.UTF_8)));
+		return prev != null && prev.get() != null;
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	private Map<String, Language> get(byte[] utf8data, String data) throws ParseFailedException {
+		expungeStaleEntries();
+		ContentKey key = getKey(utf8data);
+		LanguagesReference ref = entries.get(key);
+		if (ref != null) {
+			Map<String, Language> result = ref.get();
+			if (result != null) {
+				return result;
+			}
+		}
+		if (data == null) {
+			data = new String(utf8data, StandardCharsets.UTF_8);
+		}
+		//parse outside of any locks, if multiple threads parse the same definition concurrently,
+		//the first one to finish is used by all of them
+		Map<String, Language> langs = Language.fromString(data);
+		for (Language lang : langs.values()) {
+			lang.freeze();
+		}
+		Map<String, Language> parsed = Collections.unmodifiableMap(langs);
+		LanguagesReference nref = new LanguagesReference(key, parsed, referenceQueue);
+		while (true) {
+			LanguagesReference prev = entries.putIfAbsent(key, nref);
+			if (prev == null) {
+				return parsed;
+			}
+			Map<String, Language> prevlangs = prev.get();
+			if (prevlangs != null) {
+				return prevlangs;
+			}
+			if (entries.replace(key, prev, nref)) {
+				return parsed;
+			}
+		}
+	}
+
+	private void expungeStaleEntries() {
+		for (LanguagesReference ref; (ref = (LanguagesReference) referenceQueue.poll()) != null;) {
+			entries.remove(ref.key, ref);
+		}
+	}
+
+	private static ContentKey getKey(byte[] utf8data) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//every Java platform is required to support SHA-256
+			throw new AssertionError(e);
+		}
+		return new ContentKey(digest.digest(utf8data));
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+class LeastRecentlyUsedMemoizationPolicy extends MemoizationPolicy {
+	private final int maxEntries;
+
+	public LeastRecentlyUsedMemoizationPolicy(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	@Override
+	int getEntryLimit() {
+		return maxEntries;
+	}
+
+	@Override
+	boolean isEvictOnGrow() {
+		return false;
+	}
+
+	@Override
+	boolean isAccessTracking() {
+		return true;
+	}
+
+	@Override
+	boolean isRetained(int offset, int accessstamp, int frontier, int clock) {
+		//every access increments the clock, so at most half of the entries can be accessed in the last maxEntries / 2 ticks
+		return clock - accessstamp < (maxEntries >>> 1);
+	}
+
+	@Override
+	public int hashCode() {
+		return maxEntries;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LeastRecentlyUsedMemoizationPolicy other = (LeastRecentlyUsedMemoizationPolicy) obj;
+		if (maxEntries != other.maxEntries)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "lru(" + maxEntries + ")";
+	}
+}
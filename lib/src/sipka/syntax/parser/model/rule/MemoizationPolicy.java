@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+/**
+ * Specifies how the parse results of the rules are memoized during parsing.
+ * <p>
+ * The parser memoizes the result of every rule at every offset it is invoked at to avoid exponential parsing times
+ * when backtracking. With the default {@link #UNBOUNDED} policy the results are kept until the parsing finishes,
+ * therefore the memory usage grows with the document size. The bounded policies evict the memoized results, which
+ * are then reparsed if they're needed again. Evicting results never changes the outcome of the parsing.
+ */
+public abstract class MemoizationPolicy {
+	/**
+	 * Policy that keeps all parse results until the parsing is finished.
+	 */
+	public static final MemoizationPolicy UNBOUNDED = new UnboundedMemoizationPolicy();
+
+	/**
+	 * Creates a policy that evicts the parse results which are farther behind the parse frontier than the given
+	 * window size.
+	 * <p>
+	 * The parse frontier is the farthest document offset where a rule parsing was started. The memory used by the
+	 * memoization depends on the window size instead of the document size, which makes the policy suitable for large
+	 * documents which consist of independent statements.
+	 * 
+	 * @param windowsize
+	 *            The number of characters to keep the results for behind the frontier.
+	 * @return The policy.
+	 * @throws IllegalArgumentException
+	 *             If the window size is negative.
+	 */
+	public static MemoizationPolicy window(int windowsize) throws IllegalArgumentException {
+		if (windowsize < 0) {
+			throw new IllegalArgumentException("Negative window size: " + windowsize);
+		}
+		return new WindowMemoizationPolicy(windowsize);
+	}
+
+	/**
+	 * Creates a policy that keeps at most the given number of parse results, evicting the least recently used ones.
+	 * <p>
+	 * The results are evicted in batches. When the limit is reached, the most recently used half of the results are
+	 * kept.
+	 * 
+	 * @param maxentries
+	 *            The maximum number of memoized results.
+	 * @return The policy.
+	 * @throws IllegalArgumentException
+	 *             If the maximum entry count is less than 2.
+	 */
+	public static MemoizationPolicy leastRecentlyUsed(int maxentries) throws IllegalArgumentException {
+		if (maxentries < 2) {
+			throw new IllegalArgumentException("Invalid maximum entry count: " + maxentries);
+		}
+		return new LeastRecentlyUsedMemoizationPolicy(maxentries);
+	}
+
+	/*default*/ MemoizationPolicy() {
+	}
+
+	/**
+	 * Gets the number of entries which triggers the eviction when reached.
+	 */
+	/*default*/ abstract int getEntryLimit();
+
+	/**
+	 * Checks if the results should be evicted before the memo table is grown.
+	 */
+	/*default*/ abstract boolean isEvictOnGrow();
+
+	/**
+	 * Checks if the access stamps of the entries should be updated.
+	 */
+	/*default*/ abstract boolean isAccessTracking();
+
+	/*default*/ abstract boolean isRetained(int offset, int accessstamp, int frontier, int clock);
+}
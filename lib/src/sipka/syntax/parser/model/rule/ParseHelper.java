@@ -15,7 +15,6 @@
  */
 package sipka.syntax.parser.model.rule;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -85,64 +84,22 @@ public class ParseHelper {
 		}
 	}
 
-	public static class RuleParseStateKey {
-		private final Rule rule;
-		private final int offset;
-
-		public RuleParseStateKey(Rule rule, int offset) {
-			this.rule = rule;
-			this.offset = offset;
-		}
-
-		@Override
-		public int hashCode() {
-			return rule.hashCode() ^ offset;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			RuleParseStateKey other = (RuleParseStateKey) obj;
-			if (offset != other.offset)
-				return false;
-			if (!rule.equals(other.rule))
-				return false;
-			return true;
-		}
-	}
-
-	public static class RuleParseStateValue {
-		private ParsingResult result;
-		private ParseContext context;
-
-		public RuleParseStateValue(ParsingResult result, ParseContext context) {
-			this.result = result;
-			this.context = context;
-		}
-
-		public boolean isSuitableContext(ParseContext context) {
-			return context.equals(this.context);
-		}
-
-		public ParsingResult getResult() {
-			return result;
-		}
-	}
-
 	private Set<ParseFail> fails = new HashSet<>();
 
 	private ParseProgressMonitor monitor = ParseProgressMonitor.NULLMONITOR;
 
-	private final Map<RuleParseStateKey, Collection<RuleParseStateValue>> parsedRulesCache = new HashMap<>();
+	private final RuleParseStateTable parsedRulesCache;
 
 	private final Map<Pattern, Matcher> matcherCache = new HashMap<>();
 
+	private final Map<ParseContext, ParseContext> internedContexts = new HashMap<>();
+
 	public ParseHelper() {
+		this(MemoizationPolicy.UNBOUNDED);
+	}
+
+	public ParseHelper(MemoizationPolicy memoizationpolicy) {
+		this.parsedRulesCache = new RuleParseStateTable(memoizationpolicy);
 	}
 
 	public Matcher getMatcher(Pattern pattern, CharSequence input) {
@@ -155,24 +112,63 @@ public class ParseHelper {
 		});
 	}
 
+	/**
+	 * Interns the argument context that was created during parsing.
+	 * <p>
+	 * Structurally equal contexts share a single {@linkplain ParseContext#getMemoizationKey() memoization key} for
+	 * the lifetime of this helper. The key is looked up once and is set on the context, so the memoized parse results
+	 * are matched by comparing the keys by identity.
+	 * 
+	 * @param context
+	 *            The context.
+	 * @return The argument context.
+	 */
+	public ParseContext internContext(ParseContext context) {
+		context.setMemoizationKey(getInternedKey(context));
+		return context;
+	}
+
 	public ParsingResult getExistingParseResult(Rule rule, int offset, ParseContext context) {
-		RuleParseStateKey key = new RuleParseStateKey(rule, offset);
-		Collection<RuleParseStateValue> states = parsedRulesCache.get(key);
-		if (states == null) {
-			return null;
+		return parsedRulesCache.get(rule, offset, getMemoizationKey(context));
+	}
+
+	public void ruleParsed(Rule rule, ParsingResult result, int offset, ParseContext context) {
+		parsedRulesCache.put(rule, offset, getMemoizationKey(context), result);
+	}
+
+	private ParseContext getMemoizationKey(ParseContext context) {
+		ParseContext key = context.getMemoizationKey();
+		if (key != null) {
+			return key;
 		}
-		for (RuleParseStateValue sval : states) {
-			if (sval.isSuitableContext(context)) {
-				return sval.getResult();
-			}
+		//the context wasn't created during parsing (e.g. the root context)
+		//it may be shared, so the key is not set on it
+		return getInternedKey(context);
+	}
+
+	private ParseContext getInternedKey(ParseContext context) {
+		ParseContext key = internedContexts.get(context);
+		if (key == null) {
+			key = context.toMemoizationKey();
+			internedContexts.put(key, key);
 		}
-		return null;
+		return key;
 	}
 
-	public void ruleParsed(Rule rule, ParsingResult result, int offset, ParseContext context) {
-		RuleParseStateKey key = new RuleParseStateKey(rule, offset);
-		RuleParseStateValue stateval = new RuleParseStateValue(result, context);
-		parsedRulesCache.computeIfAbsent(key, x -> new ArrayList<>()).add(stateval);
+	/**
+	 * Resets the state of the helper so it can be used to parse another document.
+	 * <p>
+	 * The allocated memoization table and the cached matchers are kept for reuse.
+	 */
+	public void reset() {
+		fails.clear();
+		monitor = ParseProgressMonitor.NULLMONITOR;
+		parsedRulesCache.clear();
+		internedContexts.clear();
+		for (Matcher m : matcherCache.values()) {
+			//don't keep a reference to the previous input
+			m.reset("");
+		}
 	}
 
 	public void setProgressMonitor(ParseProgressMonitor monitor) {
@@ -183,6 +179,10 @@ public class ParseHelper {
 		return monitor;
 	}
 
+	public MemoizationPolicy getMemoizationPolicy() {
+		return parsedRulesCache.getPolicy();
+	}
+
 //	public void addFail(String pattern, String identifier, DocumentPosition pos) {
 //		int cmp = this.pos.compareTo(pos);
 //		if (cmp < 0) {
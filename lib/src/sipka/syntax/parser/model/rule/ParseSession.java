@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.List;
+import java.util.Objects;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.parse.context.ParseContext;
+import sipka.syntax.parser.model.parse.document.DocumentData;
+import sipka.syntax.parser.model.statement.repair.ReparationRegion;
+
+/**
+ * Reusable state for parsing multiple documents one after the other.
+ * <p>
+ * The session keeps the buffers allocated during parsing (memoization table, matchers, interned contexts) between the
+ * parse calls, so subsequent parsings don't need to allocate them again. This considerably reduces the allocations
+ * when many small documents are parsed.
+ * <p>
+ * The session is not thread safe, it should be confined to a single thread, or externally synchronized. Different
+ * languages can be parsed with the same session.
+ */
+public final class ParseSession {
+	private final MemoizationPolicy memoizationPolicy;
+	private ParseHelper helper;
+
+	public ParseSession() {
+		this(MemoizationPolicy.UNBOUNDED);
+	}
+
+	public ParseSession(MemoizationPolicy memoizationpolicy) throws NullPointerException {
+		Objects.requireNonNull(memoizationpolicy, "memoization policy");
+		this.memoizationPolicy = memoizationpolicy;
+	}
+
+	public MemoizationPolicy getMemoizationPolicy() {
+		return memoizationPolicy;
+	}
+
+	public ParsingResult parseData(Language language, char[] data) throws ParseFailedException {
+		return parseData(language, data, 0, data.length);
+	}
+
+	/**
+	 * Parses the given region of the argument array without copying it.
+	 * 
+	 * @see Language#parseData(char[], int, int, Language.ParseProgressMonitor, MemoizationPolicy)
+	 */
+	public ParsingResult parseData(Language language, char[] data, int offset, int length)
+			throws ParseFailedException, IndexOutOfBoundsException {
+		Language.checkRange(data.length, offset, length);
+		return parseDocument(language, new DocumentData(data, offset, length));
+	}
+
+	/**
+	 * Parses the given region of the argument Latin-1 encoded array without copying it.
+	 * 
+	 * @see Language#parseLatin1Data(byte[], int, int, Language.ParseProgressMonitor, MemoizationPolicy)
+	 */
+	public ParsingResult parseLatin1Data(Language language, byte[] data, int offset, int length)
+			throws ParseFailedException, IndexOutOfBoundsException {
+		Language.checkRange(data.length, offset, length);
+		return parseDocument(language, new DocumentData(data, offset, length));
+	}
+
+	public ParsingResult parseData(Language language, String data) throws ParseFailedException {
+		return parseData(language, data.toCharArray());
+	}
+
+	public ParsingResult repair(ParsingResult parseresult, List<ReparationRegion> reparations)
+			throws ParseFailedException {
+		ParseHelper helper = getHelper();
+		try {
+			return parseresult.getStatement().repair(helper, parseresult.getParsingInformation(), reparations,
+					ParseContext.EMPTY);
+		} finally {
+			helper.reset();
+		}
+	}
+
+	/**
+	 * Releases the buffers retained by the session.
+	 * <p>
+	 * The parsing state is cleared after each parse call automatically, and the memoization table is shrunk if the last
+	 * parse only used a small part of it. Calling this method is only necessary to free all memory retained by the
+	 * session.
+	 */
+	public void reset() {
+		helper = null;
+	}
+
+	private ParsingResult parseDocument(Language language, DocumentData docdata) throws ParseFailedException {
+		language.ensureAnalyzed();
+		ParseHelper helper = getHelper();
+		try {
+			return language.parseDocument(helper, docdata);
+		} finally {
+			helper.reset();
+		}
+	}
+
+	private ParseHelper getHelper() {
+		ParseHelper result = helper;
+		if (result == null) {
+			result = new ParseHelper(memoizationPolicy);
+			helper = result;
+		}
+		return result;
+	}
+}
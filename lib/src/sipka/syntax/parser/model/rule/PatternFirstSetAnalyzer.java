@@ -0,0 +1,573 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.regex.Pattern;
+
+/**
+ * Computes the {@link FirstSet} of regular expressions.
+ * <p>
+ * The analysis is conservative, it supports the common constructs of the {@link Pattern} syntax. If the pattern
+ * contains something that is not supported (e.g. flags), {@link FirstSet#UNKNOWN} is returned.
+ */
+final class PatternFirstSetAnalyzer {
+	private static final class UnsupportedPatternException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedPatternException() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Characters that the pattern can start with. The ASCII characters are tracked individually.
+	 */
+	private static final class CharMask {
+		long low;
+		long high;
+		boolean nonAscii;
+		/**
+		 * <code>true</code> if the ASCII part of the mask contains exactly the characters that can be matched.
+		 * Complementing is only allowed for exact masks.
+		 */
+		boolean exact = true;
+
+		void add(int c) {
+			if (c < 64) {
+				low |= 1L << c;
+			} else if (c < 128) {
+				high |= 1L << c;
+			} else {
+				nonAscii = true;
+			}
+		}
+
+		void addRange(int from, int to) {
+			for (int c = from, end = Math.min(to, 127); c <= end; c++) {
+				add(c);
+			}
+			if (to >= 128) {
+				nonAscii = true;
+			}
+		}
+
+		void add(CharMask mask) {
+			low |= mask.low;
+			high |= mask.high;
+			nonAscii |= mask.nonAscii;
+			exact &= mask.exact;
+		}
+
+		void complement() {
+			low = ~low;
+			high = ~high;
+			nonAscii = true;
+		}
+
+		void setAll() {
+			low = -1L;
+			high = -1L;
+			nonAscii = true;
+			exact = false;
+		}
+	}
+
+	/**
+	 * The first characters and nullability of a part of the pattern.
+	 */
+	private static final class Term {
+		final CharMask chars = new CharMask();
+		boolean nullable;
+
+		Term(boolean nullable) {
+			this.nullable = nullable;
+		}
+
+		Term(CharMask chars) {
+			this.chars.add(chars);
+		}
+	}
+
+	private final String pattern;
+	private int idx;
+
+	private PatternFirstSetAnalyzer(String pattern) {
+		this.pattern = pattern;
+	}
+
+	public static FirstSet analyze(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return FirstSet.UNKNOWN;
+		}
+		PatternFirstSetAnalyzer analyzer = new PatternFirstSetAnalyzer(pattern.pattern());
+		try {
+			Term term = analyzer.parseAlternation();
+			if (analyzer.idx != analyzer.pattern.length()) {
+				return FirstSet.UNKNOWN;
+			}
+			return FirstSet.create(term.chars.low, term.chars.high, term.chars.nonAscii, term.nullable);
+		} catch (UnsupportedPatternException | IndexOutOfBoundsException e) {
+			return FirstSet.UNKNOWN;
+		}
+	}
+
+	private boolean hasNext(char c) {
+		return idx < pattern.length() && pattern.charAt(idx) == c;
+	}
+
+	private char next() {
+		return pattern.charAt(idx++);
+	}
+
+	private void expect(char c) throws UnsupportedPatternException {
+		if (!hasNext(c)) {
+			throw new UnsupportedPatternException();
+		}
+		++idx;
+	}
+
+	private Term parseAlternation() throws UnsupportedPatternException {
+		Term result = parseSequence();
+		while (hasNext('|')) {
+			++idx;
+			Term alt = parseSequence();
+			result.chars.add(alt.chars);
+			result.nullable |= alt.nullable;
+		}
+		return result;
+	}
+
+	private Term parseSequence() throws UnsupportedPatternException {
+		Term result = new Term(true);
+		while (idx < pattern.length()) {
+			char c = pattern.charAt(idx);
+			if (c == '|' || c == ')') {
+				break;
+			}
+			Term term = parseQuantified();
+			if (result.nullable) {
+				result.chars.add(term.chars);
+				result.nullable = term.nullable;
+			}
+		}
+		return result;
+	}
+
+	private Term parseQuantified() throws UnsupportedPatternException {
+		Term term = parseAtom();
+		if (idx >= pattern.length()) {
+			return term;
+		}
+		switch (pattern.charAt(idx)) {
+			case '*':
+			case '?': {
+				++idx;
+				term.nullable = true;
+				break;
+			}
+			case '+': {
+				++idx;
+				break;
+			}
+			case '{': {
+				++idx;
+				int min = parseNumber();
+				while (!hasNext('}')) {
+					next();
+				}
+				++idx;
+				if (min == 0) {
+					term.nullable = true;
+				}
+				break;
+			}
+			default: {
+				return term;
+			}
+		}
+		//reluctant or possessive quantifiers
+		if (hasNext('?') || hasNext('+')) {
+			++idx;
+		}
+		return term;
+	}
+
+	private int parseNumber() throws UnsupportedPatternException {
+		int start = idx;
+		int result = 0;
+		while (idx < pattern.length() && Character.isDigit(pattern.charAt(idx))) {
+			result = result * 10 + (pattern.charAt(idx) - '0');
+			if (result < 0) {
+				throw new UnsupportedPatternException();
+			}
+			++idx;
+		}
+		if (start == idx) {
+			throw new UnsupportedPatternException();
+		}
+		return result;
+	}
+
+	private Term parseAtom() throws UnsupportedPatternException {
+		char c = next();
+		switch (c) {
+			case '(': {
+				return parseGroup();
+			}
+			case '[': {
+				return new Term(parseClass());
+			}
+			case '.': {
+				CharMask mask = new CharMask();
+				mask.setAll();
+				return new Term(mask);
+			}
+			case '^':
+			case '$': {
+				return new Term(true);
+			}
+			case '\\': {
+				return parseEscape();
+			}
+			case '*':
+			case '+':
+			case '?':
+			case '{': {
+				throw new UnsupportedPatternException();
+			}
+			default: {
+				CharMask mask = new CharMask();
+				mask.add(c);
+				return new Term(mask);
+			}
+		}
+	}
+
+	private Term parseGroup() throws UnsupportedPatternException {
+		if (hasNext('?')) {
+			++idx;
+			char kind = next();
+			switch (kind) {
+				case ':':
+				case '>': {
+					break;
+				}
+				case '=':
+				case '!': {
+					//lookahead, doesn't consume
+					parseAlternation();
+					expect(')');
+					return new Term(true);
+				}
+				case '<': {
+					if (hasNext('=') || hasNext('!')) {
+						//lookbehind, doesn't consume
+						++idx;
+						parseAlternation();
+						expect(')');
+						return new Term(true);
+					}
+					//named group
+					while (next() != '>') {
+					}
+					break;
+				}
+				default: {
+					//inline flags
+					throw new UnsupportedPatternException();
+				}
+			}
+		}
+		Term result = parseAlternation();
+		expect(')');
+		return result;
+	}
+
+	private Term parseEscape() throws UnsupportedPatternException {
+		char c = next();
+		switch (c) {
+			case 'b':
+			case 'B':
+			case 'A':
+			case 'G':
+			case 'Z':
+			case 'z': {
+				//boundary matchers
+				return new Term(true);
+			}
+			case 'Q': {
+				int end = pattern.indexOf("\\E", idx);
+				if (end < 0) {
+					end = pattern.length();
+				}
+				Term result;
+				if (end == idx) {
+					result = new Term(true);
+				} else {
+					CharMask mask = new CharMask();
+					mask.add(pattern.charAt(idx));
+					result = new Term(mask);
+				}
+				idx = Math.min(end + 2, pattern.length());
+				return result;
+			}
+			case 'k':
+			case '1':
+			case '2':
+			case '3':
+			case '4':
+			case '5':
+			case '6':
+			case '7':
+			case '8':
+			case '9': {
+				//back reference, can match anything, or empty
+				if (c == 'k') {
+					expect('<');
+					while (next() != '>') {
+					}
+				} else {
+					while (idx < pattern.length() && Character.isDigit(pattern.charAt(idx))) {
+						++idx;
+					}
+				}
+				Term result = new Term(true);
+				result.chars.setAll();
+				return result;
+			}
+			default: {
+				CharMask mask = new CharMask();
+				if (!parseCharacterClassEscape(c, mask)) {
+					mask.add(parseCharacterEscape(c));
+				}
+				return new Term(mask);
+			}
+		}
+	}
+
+	/**
+	 * Parses an escape that represents a set of characters.
+	 * 
+	 * @return <code>true</code> if the escape was a character class and was added to the mask.
+	 */
+	private boolean parseCharacterClassEscape(char c, CharMask mask) throws UnsupportedPatternException {
+		CharMask cls = new CharMask();
+		switch (c) {
+			case 'd':
+			case 'D': {
+				cls.addRange('0', '9');
+				break;
+			}
+			case 'w':
+			case 'W': {
+				cls.addRange('a', 'z');
+				cls.addRange('A', 'Z');
+				cls.addRange('0', '9');
+				cls.add('_');
+				break;
+			}
+			case 's':
+			case 'S': {
+				cls.add(' ');
+				cls.addRange('\t', '\r');
+				break;
+			}
+			case 'h':
+			case 'H': {
+				cls.add(' ');
+				cls.add('\t');
+				cls.nonAscii = true;
+				break;
+			}
+			case 'v':
+			case 'V':
+			case 'R': {
+				cls.addRange('\n', '\r');
+				cls.nonAscii = true;
+				break;
+			}
+			case 'p':
+			case 'P':
+			case 'X':
+			case 'N': {
+				//unicode properties, graphemes, named characters
+				if (hasNext('{')) {
+					while (next() != '}') {
+					}
+				} else if (c == 'p' || c == 'P') {
+					next();
+				}
+				cls.setAll();
+				mask.add(cls);
+				return true;
+			}
+			default: {
+				return false;
+			}
+		}
+		if (Character.isUpperCase(c) && c != 'R') {
+			cls.complement();
+		}
+		mask.add(cls);
+		return true;
+	}
+
+	private int parseCharacterEscape(char c) throws UnsupportedPatternException {
+		switch (c) {
+			case 't':
+				return '\t';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 'f':
+				return '\f';
+			case 'a':
+				return '\u0007';
+			case 'e':
+				return '\u001B';
+			case 'c':
+				return next() ^ 64;
+			case '0': {
+				int result = 0;
+				for (int i = 0; i < 3 && idx < pattern.length(); i++) {
+					char oc = pattern.charAt(idx);
+					if (oc < '0' || oc > '7') {
+						break;
+					}
+					int n = result * 8 + (oc - '0');
+					if (n > 0377) {
+						break;
+					}
+					result = n;
+					++idx;
+				}
+				return result;
+			}
+			case 'x': {
+				if (hasNext('{')) {
+					++idx;
+					int end = pattern.indexOf('}', idx);
+					if (end < 0) {
+						throw new UnsupportedPatternException();
+					}
+					int result = parseHex(idx, end);
+					idx = end + 1;
+					return result;
+				}
+				int result = parseHex(idx, idx + 2);
+				idx += 2;
+				return result;
+			}
+			case 'u': {
+				int result = parseHex(idx, idx + 4);
+				idx += 4;
+				return result;
+			}
+			default: {
+				if (Character.isLetterOrDigit(c)) {
+					throw new UnsupportedPatternException();
+				}
+				return c;
+			}
+		}
+	}
+
+	private int parseHex(int start, int end) throws UnsupportedPatternException {
+		try {
+			return Integer.parseInt(pattern.substring(start, end), 16);
+		} catch (NumberFormatException e) {
+			throw new UnsupportedPatternException();
+		}
+	}
+
+	private CharMask parseClass() throws UnsupportedPatternException {
+		boolean negate = false;
+		if (hasNext('^')) {
+			negate = true;
+			++idx;
+		}
+		CharMask result = new CharMask();
+		boolean compound = false;
+		boolean first = true;
+		while (true) {
+			char c = next();
+			if (c == ']') {
+				if (first) {
+					throw new UnsupportedPatternException();
+				}
+				break;
+			}
+			first = false;
+			if (c == '[') {
+				compound = true;
+				result.add(parseClass());
+				continue;
+			}
+			if (c == '&' && hasNext('&')) {
+				//intersection, approximate with union
+				++idx;
+				compound = true;
+				result.exact = false;
+				continue;
+			}
+			int from;
+			if (c == '\\') {
+				char ec = next();
+				if (ec == 'Q') {
+					int end = pattern.indexOf("\\E", idx);
+					if (end < 0) {
+						throw new UnsupportedPatternException();
+					}
+					for (int i = idx; i < end; i++) {
+						result.add(pattern.charAt(i));
+					}
+					idx = end + 2;
+					continue;
+				}
+				if (parseCharacterClassEscape(ec, result)) {
+					continue;
+				}
+				from = parseCharacterEscape(ec);
+			} else {
+				from = c;
+			}
+			if (hasNext('-') && idx + 1 < pattern.length() && pattern.charAt(idx + 1) != ']') {
+				++idx;
+				char tc = next();
+				int to;
+				if (tc == '\\') {
+					to = parseCharacterEscape(next());
+				} else if (tc == '[') {
+					throw new UnsupportedPatternException();
+				} else {
+					to = tc;
+				}
+				result.addRange(from, to);
+			} else {
+				result.add(from);
+			}
+		}
+		if (negate) {
+			if (compound || !result.exact) {
+				result.setAll();
+			} else {
+				result.complement();
+			}
+		}
+		return result;
+	}
+}
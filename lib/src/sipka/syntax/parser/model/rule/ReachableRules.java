@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.parse.context.DeclaringContext;
+import sipka.syntax.parser.model.parse.params.InvokeParam;
+import sipka.syntax.parser.model.parse.params.OccurrenceParam;
+import sipka.syntax.parser.model.parse.params.RegexParam;
+import sipka.syntax.parser.model.parse.params.RuleInvocationVarReferenceParam;
+import sipka.syntax.parser.model.parse.params.VarReferenceParam;
+import sipka.syntax.parser.model.rule.consume.ConsumeRule;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.model.rule.invoke.InvokeRule;
+import sipka.syntax.parser.util.Pair;
+
+/**
+ * Utility functions for traversing the rules of a grammar.
+ */
+final class ReachableRules {
+	private ReachableRules() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Collects the rules which are reachable from the argument root rule.
+	 * <p>
+	 * The children of container rules, and the rules invoked by {@link InvokeRule InvokeRules} are reachable. Rules
+	 * invoked via parameters are not found.
+	 * 
+	 * @param root
+	 *            The root rule.
+	 * @return The reachable rules, including the root.
+	 */
+	public static List<Rule> collect(Rule root) {
+		List<Rule> result = new ArrayList<>();
+		Set<Rule> found = new HashSet<>();
+		ArrayDeque<Rule> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Rule rule = stack.pop();
+			if (!found.add(rule)) {
+				continue;
+			}
+			result.add(rule);
+			if (rule instanceof ContainerRule) {
+				for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+					stack.push(child.key);
+				}
+			} else if (rule instanceof InvokeRule) {
+				Rule invoked = getInvokedRule((InvokeRule) rule);
+				if (invoked != null) {
+					stack.push(invoked);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Collects all rules which may be used when parsing with the argument root rule.
+	 * <p>
+	 * Unlike {@link #collect(Rule)}, the rules declared in the declaring contexts, and the rules referenced by the
+	 * parameters are found as well.
+	 * 
+	 * @param root
+	 *            The root rule.
+	 * @return The rules, including the root.
+	 */
+	public static List<Rule> collectAll(Rule root) {
+		List<Rule> result = new ArrayList<>();
+		Set<Rule> found = new HashSet<>();
+		Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		ArrayDeque<Object> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Object o = stack.pop();
+			if (o instanceof Rule) {
+				Rule rule = (Rule) o;
+				if (!found.add(rule)) {
+					continue;
+				}
+				result.add(rule);
+				if (rule instanceof ContainerRule) {
+					for (Pair<Rule, ParseTimeData> child : ((ContainerRule) rule).getChildren()) {
+						stack.push(child.key);
+						pushIfNonNull(stack, child.value.getOccurrenceParam());
+						pushIfNonNull(stack, child.value.getDeclaringContext());
+					}
+				} else if (rule instanceof ConsumeRule) {
+					pushIfNonNull(stack, ((ConsumeRule) rule).getParam());
+				} else if (rule instanceof InvokeRule) {
+					InvokeRule invokerule = (InvokeRule) rule;
+					pushIfNonNull(stack, invokerule.getRuleParam());
+					for (InvokeParam<?> param : invokerule.getInvokeParams()) {
+						pushIfNonNull(stack, param);
+					}
+				}
+				continue;
+			}
+			if (!visited.add(o)) {
+				continue;
+			}
+			if (o instanceof DeclaringContext) {
+				for (Object local : ((DeclaringContext) o).getLocalsMap().values()) {
+					pushIfNonNull(stack, local);
+				}
+			} else if (o instanceof RuleDeclaration) {
+				RuleDeclaration decl = (RuleDeclaration) o;
+				stack.push(decl.getRule());
+				pushIfNonNull(stack, decl.getDeclarationContext());
+			} else if (o instanceof VarReferenceParam<?>) {
+				pushIfNonNull(stack, ((VarReferenceParam<?>) o).getBoundValue());
+			} else if (o instanceof RuleInvocationVarReferenceParam<?>) {
+				stack.push(((RuleInvocationVarReferenceParam<?>) o).getRule());
+			}
+		}
+		return result;
+	}
+
+	private static void pushIfNonNull(ArrayDeque<Object> stack, Object o) {
+		if (o != null) {
+			stack.push(o);
+		}
+	}
+
+	/**
+	 * Gets the rule invoked by the argument if it doesn't depend on the parse context.
+	 */
+	public static Rule getInvokedRule(InvokeRule rule) {
+		Object decl = getConstantValue(rule.getRuleParam());
+		if (decl instanceof RuleDeclaration) {
+			return ((RuleDeclaration) decl).getRule();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the value of the parameter if it doesn't depend on the parse context.
+	 */
+	public static Object getConstantValue(InvokeParam<?> param) {
+		if (param instanceof RegexParam) {
+			return ((RegexParam) param).getPattern();
+		}
+		if (param instanceof OccurrenceParam) {
+			return ((OccurrenceParam) param).getOccurrence();
+		}
+		if (param instanceof VarReferenceParam<?>) {
+			Object bound = ((VarReferenceParam<?>) param).getBoundValue();
+			if (bound instanceof InvokeParam<?>) {
+				return getConstantValue((InvokeParam<?>) bound);
+			}
+			return bound;
+		}
+		return null;
+	}
+}
@@ -16,7 +16,9 @@
 package sipka.syntax.parser.model.rule;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import sipka.syntax.parser.model.ParsingCancelledException;
@@ -30,10 +32,16 @@ import sipka.syntax.parser.util.Pair;
 public abstract class Rule {
 	public static final String BUILTIN_VAR_PREFIX = "@";
 	private static final String PARAMETER_VAR_NAME = BUILTIN_VAR_PREFIX + "param";
+	/**
+	 * Counter that is incremented when any rule is modified. Used to detect that the grammar analysis of a language
+	 * is out of date.
+	 */
+	private static final AtomicInteger MODIFICATION_COUNTER = new AtomicInteger();
 
 	private final String identifierName;
 	private List<Pair<String, Class<?>>> params;
 	/*default*/ int ruleId;
+	private volatile boolean frozen;
 
 	public Rule(String identifierName) {
 		this.identifierName = identifierName;
@@ -131,6 +139,46 @@ public abstract class Rule {
 		return params;
 	}
 
+	/**
+	 * Makes the rule unmodifiable.
+	 * <p>
+	 * After this call the methods which modify the rule throw {@link IllegalStateException}, and the returned
+	 * collections are unmodifiable. The rule should be frozen before it is shared between threads.
+	 * 
+	 * @see Language#freeze()
+	 */
+	public final void freeze() {
+		if (frozen) {
+			return;
+		}
+		params = params == null ? Collections.emptyList() : Collections.unmodifiableList(params);
+		frozen = true;
+	}
+
+	public final boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Checks that the rule is not frozen before modifying it.
+	 * <p>
+	 * Should be called by all methods which modify the rule. The call invalidates the grammar analysis of the
+	 * languages which are not frozen.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the rule is frozen.
+	 */
+	protected final void checkNotFrozen() throws IllegalStateException {
+		if (frozen) {
+			throw new IllegalStateException("Rule is frozen: " + this);
+		}
+		MODIFICATION_COUNTER.incrementAndGet();
+	}
+
+	/*default*/ static int getModificationCount() {
+		return MODIFICATION_COUNTER.get();
+	}
+
 	public final int getRuleId() {
 		return ruleId;
 	}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.parse.context.ParseContext;
+
+/**
+ * Open addressing memo table for the parsed rules.
+ * <p>
+ * The entries are keyed by the rule identifier and the document offset packed into a <code>long</code>. Multiple
+ * entries can exist for the same key if the rule was parsed with different contexts. Lookups and insertions don't
+ * allocate, only growing the table does.
+ * <p>
+ * As rule identifiers are only unique in a given {@link RuleFactory}, the rule instances are compared by identity as
+ * well. The contexts are expected to be the interned memoization keys (see
+ * {@link ParseHelper#internContext(ParseContext)}), therefore they are compared by identity too.
+ * <p>
+ * The entries are evicted based on the {@link MemoizationPolicy}. As removing entries from a linear probing table
+ * requires moving the subsequent entries, the eviction is done in batches by rebuilding the table with only the
+ * retained entries.
+ */
+final class RuleParseStateTable {
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	private long[] keys;
+	private Rule[] rules;
+	private ParseContext[] contexts;
+	private ParsingResult[] results;
+	private int[] accessStamps;
+
+	private int size;
+	private int mask;
+	private int growThreshold;
+
+	private final MemoizationPolicy policy;
+	private final int entryLimit;
+	private int frontier;
+	private int clock;
+
+	public RuleParseStateTable() {
+		this(MemoizationPolicy.UNBOUNDED);
+	}
+
+	public RuleParseStateTable(MemoizationPolicy policy) {
+		this.policy = policy;
+		this.entryLimit = policy.getEntryLimit();
+		allocate(INITIAL_CAPACITY);
+	}
+
+	public MemoizationPolicy getPolicy() {
+		return policy;
+	}
+
+	public ParsingResult get(Rule rule, int offset, ParseContext context) {
+		if (offset > frontier) {
+			frontier = offset;
+		}
+		long key = key(rule, offset);
+		final int mask = this.mask;
+		final ParsingResult[] results = this.results;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			ParsingResult r = results[i];
+			if (r == null) {
+				return null;
+			}
+			if (keys[i] == key && rules[i] == rule && contexts[i] == context) {
+				if (accessStamps != null) {
+					accessStamps[i] = clock++;
+				}
+				return r;
+			}
+		}
+	}
+
+	public void put(Rule rule, int offset, ParseContext context, ParsingResult result) {
+		if (size >= entryLimit) {
+			evict(results.length);
+		}
+		if (size >= growThreshold) {
+			if (policy.isEvictOnGrow()) {
+				evict(results.length);
+			}
+			if (size >= growThreshold >>> 1) {
+				//still more than quarter full, grow it
+				rehash(results.length << 1);
+			}
+		}
+		int idx = insert(key(rule, offset), rule, context, result);
+		if (accessStamps != null) {
+			accessStamps[idx] = clock++;
+		}
+		++size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all entries from the table.
+	 * <p>
+	 * If the entries only occupied a small part of the table, it is shrunk to the capacity that the same number of
+	 * entries would need. Clearing the table is therefore proportional to the number of entries of the last parse, and
+	 * a table grown for a large document doesn't stay large for the subsequent small ones.
+	 */
+	public void clear() {
+		if (results.length > INITIAL_CAPACITY && size < results.length >>> 3) {
+			allocate(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(size) << 2));
+		} else {
+			Arrays.fill(rules, null);
+			Arrays.fill(contexts, null);
+			Arrays.fill(results, null);
+		}
+		size = 0;
+		frontier = 0;
+		clock = 0;
+	}
+
+	private void evict(int capacity) {
+		long[] okeys = keys;
+		Rule[] orules = rules;
+		ParseContext[] ocontexts = contexts;
+		ParsingResult[] oresults = results;
+		int[] ostamps = accessStamps;
+		allocate(capacity);
+		int nsize = 0;
+		for (int i = 0; i < oresults.length; i++) {
+			ParsingResult r = oresults[i];
+			if (r == null) {
+				continue;
+			}
+			int stamp = ostamps == null ? 0 : ostamps[i];
+			if (!policy.isRetained((int) okeys[i], stamp, frontier, clock)) {
+				continue;
+			}
+			int idx = insert(okeys[i], orules[i], ocontexts[i], r);
+			if (ostamps != null) {
+				accessStamps[idx] = stamp;
+			}
+			++nsize;
+		}
+		size = nsize;
+	}
+
+	private int insert(long key, Rule rule, ParseContext context, ParsingResult result) {
+		final int mask = this.mask;
+		int i = hash(key) & mask;
+		while (results[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		rules[i] = rule;
+		contexts[i] = context;
+		results[i] = result;
+		return i;
+	}
+
+	private void rehash(int capacity) {
+		long[] okeys = keys;
+		Rule[] orules = rules;
+		ParseContext[] ocontexts = contexts;
+		ParsingResult[] oresults = results;
+		int[] ostamps = accessStamps;
+		allocate(capacity);
+		for (int i = 0; i < oresults.length; i++) {
+			ParsingResult r = oresults[i];
+			if (r != null) {
+				int idx = insert(okeys[i], orules[i], ocontexts[i], r);
+				if (ostamps != null) {
+					accessStamps[idx] = ostamps[i];
+				}
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		rules = new Rule[capacity];
+		contexts = new ParseContext[capacity];
+		results = new ParsingResult[capacity];
+		if (policy.isAccessTracking()) {
+			accessStamps = new int[capacity];
+		}
+		mask = capacity - 1;
+		//keep the load factor at most 0.5 as we're using linear probing
+		growThreshold = capacity >>> 1;
+	}
+
+	private static long key(Rule rule, int offset) {
+		return ((long) rule.ruleId << 32) | (offset & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		//finalization mix of MurmurHash3 to spread the consecutive offsets and rule ids
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule;
+
+class WindowMemoizationPolicy extends MemoizationPolicy {
+	private final int windowSize;
+
+	public WindowMemoizationPolicy(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	@Override
+	int getEntryLimit() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	boolean isEvictOnGrow() {
+		return true;
+	}
+
+	@Override
+	boolean isAccessTracking() {
+		return false;
+	}
+
+	@Override
+	boolean isRetained(int offset, int accessstamp, int frontier, int clock) {
+		return offset >= frontier - windowSize;
+	}
+
+	@Override
+	public int hashCode() {
+		return windowSize;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		WindowMemoizationPolicy other = (WindowMemoizationPolicy) obj;
+		if (windowSize != other.windowSize)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "window(" + windowSize + ")";
+	}
+}
@@ -34,6 +34,9 @@ import sipka.syntax.parser.util.ArrayRangeCharSequence;
 
 public abstract class ConsumeRule extends Rule {
 	private final InvokeParam<Pattern> param;
+	private volatile LiteralPattern literalPattern;
+	private volatile boolean dfaMatching;
+	private volatile PatternDfa patternDfa;
 
 	public ConsumeRule(String identifierName, InvokeParam<Pattern> param) {
 		super(identifierName);
@@ -44,13 +47,47 @@ public abstract class ConsumeRule extends Rule {
 		return param;
 	}
 
+	/**
+	 * Sets whether the patterns should be matched using a deterministic automaton instead of the regex engine.
+	 * <p>
+	 * Only the regular subset of the regex syntax is supported by the automaton. Patterns with unsupported constructs
+	 * are matched by the regex engine regardless of this setting.
+	 * 
+	 * @param dfaMatching
+	 *            <code>true</code> to use the automaton if possible.
+	 */
+	public void setDfaMatching(boolean dfaMatching) throws IllegalStateException {
+		checkNotFrozen();
+		this.dfaMatching = dfaMatching;
+	}
+
+	public boolean isDfaMatching() {
+		return dfaMatching;
+	}
+
+	/**
+	 * Gets the literal strings that the argument pattern matches, if it consists only of literals.
+	 * <p>
+	 * The pattern is expected to be in the format as compiled by
+	 * {@link sipka.syntax.parser.model.rule.RuleFactory#pattern(String)}.
+	 * 
+	 * @param pattern
+	 *            The pattern.
+	 * @return The alternatives of the pattern in the order of precedence, or <code>null</code> if the pattern is not
+	 *             an alternation of literals.
+	 */
+	public static String[] getLiteralAlternatives(Pattern pattern) {
+		return LiteralPattern.forPattern(pattern).getAlternatives();
+	}
+
 	/**
 	 * Notifies the implementation about the successfull match of characters.
 	 * <p>
 	 * Subclasses can implement their own actions to handle the parsing of characters from the input.
 	 * 
 	 * @param matcher
-	 *            The matcher that was used to parse the characters.
+	 *            The matcher that was used to parse the characters, or <code>null</code> if the pattern was matched
+	 *            without the regex engine.
 	 * @param parsed
 	 *            The parsed characters.
 	 * @param context
@@ -65,8 +102,50 @@ public abstract class ConsumeRule extends Rule {
 				new ParsingInformation(this, regionofinterest));
 	}
 
+	private LiteralPattern getLiteralPattern(Pattern pattern) {
+		LiteralPattern result = literalPattern;
+		if (result == null || result.getPattern() != pattern) {
+			result = LiteralPattern.forPattern(pattern);
+			literalPattern = result;
+		}
+		return result;
+	}
+
+	private PatternDfa getPatternDfa(Pattern pattern) {
+		PatternDfa result = patternDfa;
+		if (result == null || result.getPattern() != pattern) {
+			result = PatternDfa.forPattern(pattern);
+			patternDfa = result;
+		}
+		return result;
+	}
+
 	private ArrayRangeCharSequence tryParse(ParseHelper helper, DocumentData s, Pattern pattern, ParseContext context,
 			DocumentRegion outregionofinterest) {
+		LiteralPattern literal = getLiteralPattern(pattern);
+		if (literal.isLiteral()) {
+			int matchlen = literal.match(s, outregionofinterest);
+			if (matchlen < 0) {
+				return null;
+			}
+			ArrayRangeCharSequence parsed = s.subSequence(0, matchlen);
+			charactersConsumed(null, parsed, context);
+			return parsed;
+		}
+		if (dfaMatching) {
+			PatternDfa dfa = getPatternDfa(pattern);
+			if (dfa.isSupported()) {
+				int matchlen = dfa.match(s, outregionofinterest);
+				if (matchlen == PatternDfa.RESULT_NO_MATCH) {
+					return null;
+				}
+				if (matchlen != PatternDfa.RESULT_UNSUPPORTED_INPUT) {
+					ArrayRangeCharSequence parsed = s.subSequence(0, matchlen);
+					charactersConsumed(null, parsed, context);
+					return parsed;
+				}
+			}
+		}
 		AccessTrackingCharSequence trackingcs = new AccessTrackingCharSequence(s);
 		Matcher matcher = helper.getMatcher(pattern, trackingcs);
 
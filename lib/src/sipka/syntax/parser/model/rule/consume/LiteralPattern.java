@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule.consume;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.parse.document.DocumentData;
+import sipka.syntax.parser.model.parse.document.DocumentRegion;
+
+/**
+ * Matcher for patterns that consist of literal strings, or an alternation of them.
+ * <p>
+ * The patterns are expected to be in the format as compiled by
+ * {@link sipka.syntax.parser.model.rule.RuleFactory#pattern(String)}. The matching examines the characters the same
+ * way as the regular expression engine does, so the computed region of interest is the same as it would be with the
+ * regular expression based matching.
+ */
+final class LiteralPattern {
+	private static final String PATTERN_PREFIX = "\\A(?:";
+	private static final String PATTERN_SUFFIX = ")";
+
+	private final Pattern pattern;
+	/**
+	 * The alternatives in the order they are declared, or <code>null</code> if the pattern is not a literal.
+	 */
+	private final char[][] alternatives;
+
+	private LiteralPattern(Pattern pattern, char[][] alternatives) {
+		this.pattern = pattern;
+		this.alternatives = alternatives;
+	}
+
+	public static LiteralPattern forPattern(Pattern pattern) {
+		return new LiteralPattern(pattern, parseAlternatives(pattern));
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public boolean isLiteral() {
+		return alternatives != null;
+	}
+
+	/**
+	 * Gets the literal alternatives in the order they are declared.
+	 * 
+	 * @return The alternatives or <code>null</code> if the pattern is not a literal.
+	 */
+	public String[] getAlternatives() {
+		if (alternatives == null) {
+			return null;
+		}
+		String[] result = new String[alternatives.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new String(alternatives[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Matches the literal at the start of the input.
+	 * 
+	 * @param s
+	 *            The input.
+	 * @param outregionofinterest
+	 *            The region of interest output.
+	 * @return The length of the match, or -1 if the literal didn't match.
+	 */
+	public int match(DocumentData s, DocumentRegion outregionofinterest) {
+		final char[] array = s.array();
+		final byte[] latin1 = s.latin1Array();
+		final int index = s.index();
+		final int length = s.length();
+		final int contiguous = s.getContiguousLength();
+		int maxaccessindex = -1;
+		boolean hitend = false;
+		int result = -1;
+		for (char[] alt : alternatives) {
+			int j = 0;
+			for (; j < alt.length; j++) {
+				if (j >= length) {
+					hitend = true;
+					break;
+				}
+				if (j > maxaccessindex) {
+					maxaccessindex = j;
+				}
+				char c;
+				if (j < contiguous) {
+					c = array != null ? array[index + j] : (char) (latin1[index + j] & 0xFF);
+				} else {
+					//over the end of the current piece
+					c = s.charAt(j);
+				}
+				if (c != alt[j]) {
+					break;
+				}
+			}
+			if (j == alt.length) {
+				result = j;
+				break;
+			}
+		}
+		outregionofinterest.setOffset(s.getDocumentOffset());
+		if (hitend) {
+			outregionofinterest.setLength(length + 1);
+		} else {
+			outregionofinterest.setLength(maxaccessindex + 1);
+		}
+		return result;
+	}
+
+	private static char[][] parseAlternatives(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return null;
+		}
+		String p = pattern.pattern();
+		if (!p.startsWith(PATTERN_PREFIX) || !p.endsWith(PATTERN_SUFFIX)) {
+			return null;
+		}
+		int end = p.length() - PATTERN_SUFFIX.length();
+		List<char[]> result = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = PATTERN_PREFIX.length(); i < end; i++) {
+			char c = p.charAt(i);
+			switch (c) {
+				case '|': {
+					result.add(sb.toString().toCharArray());
+					sb.setLength(0);
+					break;
+				}
+				case '\\': {
+					if (++i >= end) {
+						return null;
+					}
+					char escaped = getEscapedLiteral(p.charAt(i));
+					if (escaped == 0) {
+						return null;
+					}
+					sb.append(escaped);
+					break;
+				}
+				case '(':
+				case ')':
+				case '[':
+				case ']':
+				case '{':
+				case '}':
+				case '?':
+				case '*':
+				case '+':
+				case '.':
+				case '^':
+				case '$': {
+					return null;
+				}
+				default: {
+					if (Character.isSurrogate(c)) {
+						//supplementary characters are matched by code points
+						return null;
+					}
+					sb.append(c);
+					break;
+				}
+			}
+		}
+		result.add(sb.toString().toCharArray());
+		return result.toArray(new char[result.size()][]);
+	}
+
+	/**
+	 * Gets the character that the escape sequence with the given character matches.
+	 * 
+	 * @return The matched character or 0 if the escape sequence is not supported.
+	 */
+	private static char getEscapedLiteral(char c) {
+		switch (c) {
+			case 't':
+				return '\t';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 'f':
+				return '\f';
+			case 'a':
+				return '\u0007';
+			case 'e':
+				return '\u001B';
+			default: {
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+						|| Character.isSurrogate(c) || c >= 0x80) {
+					//character classes, back references, and others
+					return 0;
+				}
+				return c;
+			}
+		}
+	}
+}
@@ -28,7 +28,7 @@ import sipka.syntax.parser.util.ArrayRangeCharSequence;
 
 public class MatchesRule extends ConsumeRule {
 	//TODO complete implementation of replacement
-	private String replacement = null;
+	private final String replacement = null;
 
 	public MatchesRule(String identifierName, InvokeParam<Pattern> param) {
 		super(identifierName, param);
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule.consume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.parse.document.DocumentData;
+import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.rule.consume.PatternDfaCompiler.CharRanges;
+import sipka.syntax.parser.model.rule.consume.PatternDfaCompiler.UnsupportedPatternException;
+
+/**
+ * Table driven deterministic automaton for matching a regular expression at the start of the input.
+ * <p>
+ * Each state of the automaton is the priority ordered list of the automaton threads of the compiled pattern (see
+ * {@link PatternDfaCompiler}). The threads that have lower priority than a matching thread are discarded, which results
+ * in the same leftmost-first match as the backtracking regex engine. The automaton examines the same characters as the
+ * regex engine does, so the region of interest is the same as it would be with the regular expression based
+ * matching.
+ * <p>
+ * The automaton is constructed eagerly. If the pattern is not supported, or the automaton would be too large, the
+ * instance reports to be unsupported, and the regex engine should be used.
+ */
+final class PatternDfa {
+	/**
+	 * Result of {@link #match(DocumentData, DocumentRegion)} if the input cannot be matched by the automaton.
+	 */
+	public static final int RESULT_UNSUPPORTED_INPUT = -2;
+	/**
+	 * Result of {@link #match(DocumentData, DocumentRegion)} if the pattern doesn't match.
+	 */
+	public static final int RESULT_NO_MATCH = -1;
+
+	private static final String PATTERN_PREFIX = "\\A(?:";
+	private static final String PATTERN_SUFFIX = ")";
+
+	private static final int MAX_STATES = 2048;
+	private static final int MAX_TABLE_SIZE = 1 << 18;
+
+	private static final int DEAD_STATE = 0;
+	private static final int START_STATE = 1;
+
+	private final Pattern pattern;
+	private final boolean supported;
+
+	/**
+	 * The first characters of the character classes, sorted.
+	 */
+	private int[] classStarts;
+	private byte[] asciiClasses;
+	private int classCount;
+	/**
+	 * Transition table indexed by <code>state * classCount + class</code>.
+	 */
+	private int[] transitions;
+	private boolean[] accepting;
+	/**
+	 * Whether the state has threads that consume more characters.
+	 */
+	private boolean[] live;
+
+	private PatternDfa(Pattern pattern) {
+		this.pattern = pattern;
+		this.supported = build();
+	}
+
+	public static PatternDfa forPattern(Pattern pattern) {
+		return new PatternDfa(pattern);
+	}
+
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	public boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Matches the pattern at the start of the input.
+	 * 
+	 * @param s
+	 *            The input.
+	 * @param outregionofinterest
+	 *            The region of interest output.
+	 * @return The length of the match, {@link #RESULT_NO_MATCH}, or {@link #RESULT_UNSUPPORTED_INPUT}.
+	 */
+	public int match(DocumentData s, DocumentRegion outregionofinterest) {
+		final char[] array = s.array();
+		final byte[] latin1 = s.latin1Array();
+		final int index = s.index();
+		final int length = s.length();
+		final int contiguous = s.getContiguousLength();
+		final int[] transitions = this.transitions;
+		final boolean[] accepting = this.accepting;
+		final boolean[] live = this.live;
+		final int classcount = this.classCount;
+
+		int state = START_STATE;
+		int result = accepting[state] ? 0 : RESULT_NO_MATCH;
+		boolean hitend = false;
+		int i = 0;
+		while (live[state]) {
+			if (i >= length) {
+				hitend = true;
+				break;
+			}
+			char c;
+			if (i < contiguous) {
+				c = array != null ? array[index + i] : (char) (latin1[index + i] & 0xFF);
+			} else {
+				//over the end of the current piece
+				c = s.charAt(i);
+			}
+			if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				//the regex engine matches code points
+				return RESULT_UNSUPPORTED_INPUT;
+			}
+			state = transitions[state * classcount + getCharClass(c)];
+			++i;
+			if (accepting[state]) {
+				result = i;
+			}
+		}
+		outregionofinterest.setOffset(s.getDocumentOffset());
+		outregionofinterest.setLength(hitend ? length + 1 : i);
+		return result;
+	}
+
+	private int getCharClass(char c) {
+		if (c < 128) {
+			return asciiClasses[c];
+		}
+		int idx = Arrays.binarySearch(classStarts, c);
+		return idx >= 0 ? idx : -idx - 2;
+	}
+
+	private boolean build() {
+		if (pattern.flags() != 0) {
+			return false;
+		}
+		String p = pattern.pattern();
+		if (!p.startsWith(PATTERN_PREFIX) || !p.endsWith(PATTERN_SUFFIX)) {
+			return false;
+		}
+		PatternDfaCompiler nfa;
+		try {
+			nfa = PatternDfaCompiler.compile(p, PATTERN_PREFIX.length(), p.length() - PATTERN_SUFFIX.length());
+		} catch (UnsupportedPatternException e) {
+			return false;
+		}
+		List<CharRanges> charsets = nfa.getCharSets();
+		buildCharClasses(charsets);
+		if (classCount > Byte.MAX_VALUE) {
+			return false;
+		}
+
+		//the representative character of each class, and which character sets contain it
+		boolean[][] classcontained = new boolean[charsets.size()][classCount];
+		for (int s = 0; s < charsets.size(); s++) {
+			CharRanges set = charsets.get(s);
+			for (int c = 0; c < classCount; c++) {
+				classcontained[s][c] = set.contains(classStarts[c]);
+			}
+		}
+
+		Map<ThreadList, Integer> stateindices = new HashMap<>();
+		List<int[]> states = new ArrayList<>();
+		int[] visited = new int[nfa.getInstructionCount()];
+		int[] visitmark = { 0 };
+
+		addState(stateindices, states, new int[0]);
+		addState(stateindices, states,
+				closure(nfa, new int[] { nfa.getStartInstruction() }, 1, visited, ++visitmark[0]));
+
+		int[] table = new int[64 * classCount];
+		int[] nextpcs = new int[nfa.getInstructionCount()];
+		for (int stateidx = 0; stateidx < states.size(); stateidx++) {
+			int[] threads = states.get(stateidx);
+			for (int c = 0; c < classCount; c++) {
+				int count = 0;
+				for (int pc : threads) {
+					if (nfa.getOp(pc) == PatternDfaCompiler.OP_CHAR && classcontained[nfa.getArg(pc)][c]) {
+						nextpcs[count++] = nfa.getOut(pc);
+					}
+				}
+				int[] nthreads = closure(nfa, nextpcs, count, visited, ++visitmark[0]);
+				Integer target = stateindices.get(new ThreadList(nthreads));
+				if (target == null) {
+					if (states.size() >= MAX_STATES) {
+						return false;
+					}
+					target = addState(stateindices, states, nthreads);
+				}
+				int tableidx = stateidx * classCount + c;
+				if (tableidx >= table.length) {
+					if (table.length * 2 > MAX_TABLE_SIZE) {
+						return false;
+					}
+					table = Arrays.copyOf(table, Math.max(table.length * 2, tableidx + 1));
+				}
+				table[tableidx] = target;
+			}
+		}
+		int statecount = states.size();
+		this.transitions = Arrays.copyOf(table, statecount * classCount);
+		this.accepting = new boolean[statecount];
+		this.live = new boolean[statecount];
+		for (int i = 0; i < statecount; i++) {
+			for (int pc : states.get(i)) {
+				if (nfa.getOp(pc) == PatternDfaCompiler.OP_MATCH) {
+					accepting[i] = true;
+				} else {
+					live[i] = true;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static int addState(Map<ThreadList, Integer> stateindices, List<int[]> states, int[] threads) {
+		int idx = states.size();
+		states.add(threads);
+		stateindices.put(new ThreadList(threads), idx);
+		return idx;
+	}
+
+	/**
+	 * Follows the split instructions from the argument instructions, keeping the priority order.
+	 * <p>
+	 * The threads after the first matching one are discarded, as they have lower priority.
+	 */
+	private static int[] closure(PatternDfaCompiler nfa, int[] pcs, int count, int[] visited, int mark) {
+		int[] result = new int[nfa.getInstructionCount()];
+		int resultcount = 0;
+		int[] stack = new int[nfa.getInstructionCount() * 2 + count];
+		int stacksize = 0;
+		for (int i = count - 1; i >= 0; i--) {
+			stack[stacksize++] = pcs[i];
+		}
+		while (stacksize > 0) {
+			int pc = stack[--stacksize];
+			if (visited[pc] == mark) {
+				continue;
+			}
+			visited[pc] = mark;
+			switch (nfa.getOp(pc)) {
+				case PatternDfaCompiler.OP_SPLIT: {
+					stack[stacksize++] = nfa.getOut1(pc);
+					stack[stacksize++] = nfa.getOut(pc);
+					break;
+				}
+				case PatternDfaCompiler.OP_MATCH: {
+					result[resultcount++] = pc;
+					return Arrays.copyOf(result, resultcount);
+				}
+				default: {
+					result[resultcount++] = pc;
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(result, resultcount);
+	}
+
+	private void buildCharClasses(List<CharRanges> charsets) {
+		TreeSet<Integer> bounds = new TreeSet<>();
+		bounds.add(0);
+		//surrogates are never examined, but keep them in separate classes
+		bounds.add((int) Character.MIN_SURROGATE);
+		bounds.add(Character.MAX_SURROGATE + 1);
+		for (CharRanges set : charsets) {
+			int[] ranges = set.ranges;
+			for (int i = 0; i < ranges.length; i += 2) {
+				bounds.add(ranges[i]);
+				if (ranges[i + 1] < 0xFFFF) {
+					bounds.add(ranges[i + 1] + 1);
+				}
+			}
+		}
+		classStarts = new int[bounds.size()];
+		int i = 0;
+		for (Integer b : bounds) {
+			classStarts[i++] = b;
+		}
+		classCount = classStarts.length;
+		asciiClasses = new byte[128];
+		int cls = 0;
+		for (int c = 0; c < 128; c++) {
+			while (cls + 1 < classCount && classStarts[cls + 1] <= c) {
+				++cls;
+			}
+			asciiClasses[c] = (byte) cls;
+		}
+	}
+
+	private static final class ThreadList {
+		private final int[] threads;
+		private final int hash;
+
+		ThreadList(int[] threads) {
+			this.threads = threads;
+			this.hash = Arrays.hashCode(threads);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ThreadList && Arrays.equals(threads, ((ThreadList) obj).threads);
+		}
+	}
+}
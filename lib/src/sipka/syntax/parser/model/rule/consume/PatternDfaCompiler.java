@@ -0,0 +1,706 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.rule.consume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles the regular subset of the {@link java.util.regex.Pattern} syntax to a nondeterministic automaton.
+ * <p>
+ * The automaton instructions are ordered by priority the same way as the backtracking regex engine tries the
+ * alternatives, therefore the first match of the automaton is the same as the match of the regex engine.
+ * <p>
+ * Constructs which are not regular, or which are handled specially by the regex engine are not supported. These are
+ * anchors, boundaries, lookarounds, back references, possessive quantifiers, embedded flags, unicode properties, nested
+ * character classes, and repetitions of subexpressions that can match empty. Characters outside of the basic
+ * multilingual plane are not supported either.
+ */
+final class PatternDfaCompiler {
+	static final int OP_CHAR = 0;
+	static final int OP_SPLIT = 1;
+	static final int OP_MATCH = 2;
+
+	private static final int MAX_INSTRUCTIONS = 4096;
+	private static final int MAX_REPETITION = 256;
+
+	/**
+	 * Thrown if the pattern contains constructs that are not supported.
+	 */
+	static final class UnsupportedPatternException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedPatternException(String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	/**
+	 * Sorted set of characters represented as inclusive ranges.
+	 */
+	static final class CharRanges {
+		static final CharRanges ALL = new CharRanges(new int[] { 0, 0xFFFF });
+
+		/**
+		 * Pairs of inclusive range bounds, sorted and non overlapping.
+		 */
+		final int[] ranges;
+
+		CharRanges(int[] ranges) {
+			this.ranges = ranges;
+		}
+
+		static CharRanges of(int... ranges) {
+			return normalize(ranges.clone(), ranges.length);
+		}
+
+		boolean contains(int c) {
+			for (int i = 0; i < ranges.length; i += 2) {
+				if (c < ranges[i]) {
+					return false;
+				}
+				if (c <= ranges[i + 1]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean isEmpty() {
+			return ranges.length == 0;
+		}
+
+		CharRanges union(CharRanges other) {
+			int[] r = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+			System.arraycopy(other.ranges, 0, r, ranges.length, other.ranges.length);
+			return normalize(r, r.length);
+		}
+
+		CharRanges complement() {
+			int[] r = new int[ranges.length + 2];
+			int count = 0;
+			int next = 0;
+			for (int i = 0; i < ranges.length; i += 2) {
+				if (ranges[i] > next) {
+					r[count++] = next;
+					r[count++] = ranges[i] - 1;
+				}
+				next = ranges[i + 1] + 1;
+			}
+			if (next <= 0xFFFF) {
+				r[count++] = next;
+				r[count++] = 0xFFFF;
+			}
+			return new CharRanges(Arrays.copyOf(r, count));
+		}
+
+		private static CharRanges normalize(int[] r, int len) {
+			int n = len / 2;
+			long[] packed = new long[n];
+			for (int i = 0; i < n; i++) {
+				packed[i] = ((long) r[i * 2] << 32) | r[i * 2 + 1];
+			}
+			Arrays.sort(packed);
+			int[] result = new int[len];
+			int count = 0;
+			for (long p : packed) {
+				int start = (int) (p >>> 32);
+				int end = (int) p;
+				if (count > 0 && start <= result[count - 1] + 1) {
+					if (end > result[count - 1]) {
+						result[count - 1] = end;
+					}
+				} else {
+					result[count++] = start;
+					result[count++] = end;
+				}
+			}
+			return new CharRanges(Arrays.copyOf(result, count));
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(ranges);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof CharRanges && Arrays.equals(ranges, ((CharRanges) obj).ranges);
+		}
+	}
+
+	private static final CharRanges DIGIT = CharRanges.of('0', '9');
+	private static final CharRanges WORD = CharRanges.of('a', 'z', 'A', 'Z', '_', '_', '0', '9');
+	private static final CharRanges SPACE = CharRanges.of(' ', ' ', '\t', '\r');
+	private static final CharRanges HORIZONTAL_SPACE = CharRanges.of(' ', ' ', '\t', '\t', 0xA0, 0xA0, 0x1680,
+			0x1680, 0x180e, 0x180e, 0x2000, 0x200a, 0x202f, 0x202f, 0x205f, 0x205f, 0x3000, 0x3000);
+	private static final CharRanges VERTICAL_SPACE = CharRanges.of('\n', '\r', 0x85, 0x85, 0x2028, 0x2029);
+	private static final CharRanges DOT = CharRanges.of('\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029)
+			.complement();
+
+	private static abstract class Node {
+		abstract boolean isNullable();
+	}
+
+	private static final class SetNode extends Node {
+		final CharRanges chars;
+
+		SetNode(CharRanges chars) {
+			this.chars = chars;
+		}
+
+		@Override
+		boolean isNullable() {
+			return false;
+		}
+	}
+
+	private static final class ConcatNode extends Node {
+		final List<Node> children = new ArrayList<>();
+
+		@Override
+		boolean isNullable() {
+			for (Node n : children) {
+				if (!n.isNullable()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class AlternationNode extends Node {
+		final List<Node> children = new ArrayList<>();
+
+		@Override
+		boolean isNullable() {
+			for (Node n : children) {
+				if (n.isNullable()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class RepeatNode extends Node {
+		final Node child;
+		final int min;
+		/**
+		 * -1 if unbounded.
+		 */
+		final int max;
+		final boolean greedy;
+
+		RepeatNode(Node child, int min, int max, boolean greedy) {
+			this.child = child;
+			this.min = min;
+			this.max = max;
+			this.greedy = greedy;
+		}
+
+		@Override
+		boolean isNullable() {
+			return min == 0 || child.isNullable();
+		}
+	}
+
+	private final String pattern;
+	private final int end;
+	private int pos;
+
+	private final List<CharRanges> charSets = new ArrayList<>();
+	private int[] ops = new int[64];
+	private int[] args = new int[64];
+	private int[] outs = new int[64];
+	private int[] outs1 = new int[64];
+	private int instructionCount;
+
+	private PatternDfaCompiler(String pattern, int start, int end) {
+		this.pattern = pattern;
+		this.pos = start;
+		this.end = end;
+	}
+
+	/**
+	 * Compiles the regular expression in the given range of the argument string.
+	 * 
+	 * @return The compiler holding the compiled instructions.
+	 * @throws UnsupportedPatternException
+	 *             If the pattern is not supported.
+	 */
+	static PatternDfaCompiler compile(String pattern, int start, int end) throws UnsupportedPatternException {
+		PatternDfaCompiler compiler = new PatternDfaCompiler(pattern, start, end);
+		Node root = compiler.parseAlternation();
+		if (compiler.pos != end) {
+			throw new UnsupportedPatternException("Unexpected character at: " + compiler.pos);
+		}
+		int match = compiler.emit(OP_MATCH, 0, -1, -1);
+		compiler.startInstruction = compiler.compile(root, match);
+		return compiler;
+	}
+
+	private int startInstruction;
+
+	int getStartInstruction() {
+		return startInstruction;
+	}
+
+	int getInstructionCount() {
+		return instructionCount;
+	}
+
+	int getOp(int pc) {
+		return ops[pc];
+	}
+
+	int getArg(int pc) {
+		return args[pc];
+	}
+
+	int getOut(int pc) {
+		return outs[pc];
+	}
+
+	int getOut1(int pc) {
+		return outs1[pc];
+	}
+
+	List<CharRanges> getCharSets() {
+		return charSets;
+	}
+
+	private int emit(int op, int arg, int out, int out1) throws UnsupportedPatternException {
+		if (instructionCount >= MAX_INSTRUCTIONS) {
+			throw new UnsupportedPatternException("Pattern too large.");
+		}
+		if (instructionCount == ops.length) {
+			int ncap = ops.length * 2;
+			ops = Arrays.copyOf(ops, ncap);
+			args = Arrays.copyOf(args, ncap);
+			outs = Arrays.copyOf(outs, ncap);
+			outs1 = Arrays.copyOf(outs1, ncap);
+		}
+		int pc = instructionCount++;
+		ops[pc] = op;
+		args[pc] = arg;
+		outs[pc] = out;
+		outs1[pc] = out1;
+		return pc;
+	}
+
+	/**
+	 * Compiles the node to instructions that continue at the given instruction.
+	 * 
+	 * @return The entry instruction of the node.
+	 */
+	private int compile(Node node, int next) throws UnsupportedPatternException {
+		if (node instanceof SetNode) {
+			int setidx = charSets.indexOf(((SetNode) node).chars);
+			if (setidx < 0) {
+				setidx = charSets.size();
+				charSets.add(((SetNode) node).chars);
+			}
+			return emit(OP_CHAR, setidx, next, -1);
+		}
+		if (node instanceof ConcatNode) {
+			List<Node> children = ((ConcatNode) node).children;
+			for (int i = children.size() - 1; i >= 0; i--) {
+				next = compile(children.get(i), next);
+			}
+			return next;
+		}
+		if (node instanceof AlternationNode) {
+			List<Node> children = ((AlternationNode) node).children;
+			int result = compile(children.get(children.size() - 1), next);
+			for (int i = children.size() - 2; i >= 0; i--) {
+				int entry = compile(children.get(i), next);
+				result = emit(OP_SPLIT, 0, entry, result);
+			}
+			return result;
+		}
+		RepeatNode repeat = (RepeatNode) node;
+		int result;
+		if (repeat.max < 0) {
+			int loop = emit(OP_SPLIT, 0, -1, -1);
+			int body = compile(repeat.child, loop);
+			setSplit(loop, body, next, repeat.greedy);
+			result = loop;
+		} else {
+			result = next;
+			for (int i = repeat.min; i < repeat.max; i++) {
+				int body = compile(repeat.child, result);
+				int split = emit(OP_SPLIT, 0, -1, -1);
+				setSplit(split, body, next, repeat.greedy);
+				result = split;
+			}
+		}
+		for (int i = 0; i < repeat.min; i++) {
+			result = compile(repeat.child, result);
+		}
+		return result;
+	}
+
+	private void setSplit(int split, int body, int skip, boolean greedy) {
+		outs[split] = greedy ? body : skip;
+		outs1[split] = greedy ? skip : body;
+	}
+
+	private Node parseAlternation() throws UnsupportedPatternException {
+		Node first = parseConcatenation();
+		if (pos >= end || pattern.charAt(pos) != '|') {
+			return first;
+		}
+		AlternationNode result = new AlternationNode();
+		result.children.add(first);
+		while (pos < end && pattern.charAt(pos) == '|') {
+			++pos;
+			result.children.add(parseConcatenation());
+		}
+		return result;
+	}
+
+	private Node parseConcatenation() throws UnsupportedPatternException {
+		ConcatNode result = new ConcatNode();
+		while (pos < end) {
+			char c = pattern.charAt(pos);
+			if (c == '|' || c == ')') {
+				break;
+			}
+			if (c == '\\' && pos + 1 < end && pattern.charAt(pos + 1) == 'Q') {
+				pos += 2;
+				int quoteend = pattern.indexOf("\\E", pos);
+				if (quoteend < 0 || quoteend > end) {
+					quoteend = end;
+				}
+				for (; pos < quoteend; pos++) {
+					result.children.add(new SetNode(singleChar(pattern.charAt(pos))));
+				}
+				pos = Math.min(end, quoteend + 2);
+				continue;
+			}
+			Node atom = parseAtom();
+			result.children.add(parseQuantifier(atom));
+		}
+		if (result.children.size() == 1) {
+			return result.children.get(0);
+		}
+		return result;
+	}
+
+	private Node parseQuantifier(Node atom) throws UnsupportedPatternException {
+		if (pos >= end) {
+			return atom;
+		}
+		int min;
+		int max;
+		switch (pattern.charAt(pos)) {
+			case '*': {
+				min = 0;
+				max = -1;
+				++pos;
+				break;
+			}
+			case '+': {
+				min = 1;
+				max = -1;
+				++pos;
+				break;
+			}
+			case '?': {
+				min = 0;
+				max = 1;
+				++pos;
+				break;
+			}
+			case '{': {
+				++pos;
+				min = parseNumber();
+				if (pos < end && pattern.charAt(pos) == ',') {
+					++pos;
+					if (pos < end && pattern.charAt(pos) == '}') {
+						max = -1;
+					} else {
+						max = parseNumber();
+					}
+				} else {
+					max = min;
+				}
+				expect('}');
+				if (min > MAX_REPETITION || max > MAX_REPETITION || (max >= 0 && max < min)) {
+					throw new UnsupportedPatternException("Unsupported repetition count.");
+				}
+				break;
+			}
+			default: {
+				return atom;
+			}
+		}
+		boolean greedy = true;
+		if (pos < end) {
+			char c = pattern.charAt(pos);
+			if (c == '?') {
+				greedy = false;
+				++pos;
+			} else if (c == '+') {
+				throw new UnsupportedPatternException("Possessive quantifier.");
+			}
+		}
+		if ((max < 0 || max > 1) && atom.isNullable()) {
+			//the regex engine handles empty iterations specially
+			throw new UnsupportedPatternException("Repetition of nullable expression.");
+		}
+		return new RepeatNode(atom, min, max, greedy);
+	}
+
+	private int parseNumber() throws UnsupportedPatternException {
+		int start = pos;
+		while (pos < end && pattern.charAt(pos) >= '0' && pattern.charAt(pos) <= '9' && pos - start < 6) {
+			++pos;
+		}
+		if (start == pos) {
+			throw new UnsupportedPatternException("Number expected at: " + pos);
+		}
+		return Integer.parseInt(pattern.substring(start, pos));
+	}
+
+	private void expect(char c) throws UnsupportedPatternException {
+		if (pos >= end || pattern.charAt(pos) != c) {
+			throw new UnsupportedPatternException("Expected " + c + " at: " + pos);
+		}
+		++pos;
+	}
+
+	private Node parseAtom() throws UnsupportedPatternException {
+		char c = pattern.charAt(pos++);
+		switch (c) {
+			case '(': {
+				if (pos < end && pattern.charAt(pos) == '?') {
+					++pos;
+					if (pos < end && pattern.charAt(pos) == ':') {
+						++pos;
+					} else if (pos + 1 < end && pattern.charAt(pos) == '<' && Character.isLetter(pattern.charAt(pos + 1))) {
+						//named group
+						int close = pattern.indexOf('>', pos);
+						if (close < 0 || close >= end) {
+							throw new UnsupportedPatternException("Unclosed group name.");
+						}
+						pos = close + 1;
+					} else {
+						throw new UnsupportedPatternException("Unsupported group construct.");
+					}
+				}
+				Node result = parseAlternation();
+				expect(')');
+				return result;
+			}
+			case '[': {
+				return new SetNode(parseClass());
+			}
+			case '.': {
+				return new SetNode(DOT);
+			}
+			case '\\': {
+				return new SetNode(parseEscape(false));
+			}
+			case '^':
+			case '$':
+			case ')':
+			case ']':
+			case '{':
+			case '}':
+			case '*':
+			case '+':
+			case '?': {
+				throw new UnsupportedPatternException("Unsupported character: " + c);
+			}
+			default: {
+				return new SetNode(singleChar(c));
+			}
+		}
+	}
+
+	private static CharRanges singleChar(int c) throws UnsupportedPatternException {
+		if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+			throw new UnsupportedPatternException("Surrogate characters.");
+		}
+		return new CharRanges(new int[] { c, c });
+	}
+
+	private CharRanges parseClass() throws UnsupportedPatternException {
+		boolean negated = false;
+		if (pos < end && pattern.charAt(pos) == '^') {
+			negated = true;
+			++pos;
+		}
+		if (pos < end && pattern.charAt(pos) == ']') {
+			throw new UnsupportedPatternException("Empty character class.");
+		}
+		CharRanges result = new CharRanges(new int[0]);
+		while (true) {
+			if (pos >= end) {
+				throw new UnsupportedPatternException("Unclosed character class.");
+			}
+			char c = pattern.charAt(pos++);
+			if (c == ']') {
+				break;
+			}
+			if (c == '[' || (c == '&' && pos < end && pattern.charAt(pos) == '&')) {
+				throw new UnsupportedPatternException("Nested character class.");
+			}
+			CharRanges item;
+			if (c == '\\') {
+				item = parseEscape(true);
+			} else {
+				item = singleChar(c);
+			}
+			if (pos + 1 < end && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+				//range
+				if (item.ranges.length != 2 || item.ranges[0] != item.ranges[1]) {
+					throw new UnsupportedPatternException("Invalid range start.");
+				}
+				++pos;
+				char rc = pattern.charAt(pos++);
+				if (rc == '[' || rc == '&') {
+					throw new UnsupportedPatternException("Invalid range end.");
+				}
+				CharRanges rangeend = rc == '\\' ? parseEscape(true) : singleChar(rc);
+				if (rangeend.ranges.length != 2 || rangeend.ranges[0] != rangeend.ranges[1]
+						|| rangeend.ranges[0] < item.ranges[0]) {
+					throw new UnsupportedPatternException("Invalid range end.");
+				}
+				item = new CharRanges(new int[] { item.ranges[0], rangeend.ranges[0] });
+				if (pos + 1 < end && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+					throw new UnsupportedPatternException("Ambiguous range.");
+				}
+			}
+			result = result.union(item);
+		}
+		if (negated) {
+			result = result.complement();
+		}
+		return result;
+	}
+
+	private CharRanges parseEscape(boolean inclass) throws UnsupportedPatternException {
+		if (pos >= end) {
+			throw new UnsupportedPatternException("Unterminated escape.");
+		}
+		char c = pattern.charAt(pos++);
+		switch (c) {
+			case 'd':
+				return DIGIT;
+			case 'D':
+				return DIGIT.complement();
+			case 'w':
+				return WORD;
+			case 'W':
+				return WORD.complement();
+			case 's':
+				return SPACE;
+			case 'S':
+				return SPACE.complement();
+			case 'h':
+				return HORIZONTAL_SPACE;
+			case 'H':
+				return HORIZONTAL_SPACE.complement();
+			case 'v':
+				return VERTICAL_SPACE;
+			case 'V':
+				return VERTICAL_SPACE.complement();
+			case 't':
+				return singleChar('\t');
+			case 'n':
+				return singleChar('\n');
+			case 'r':
+				return singleChar('\r');
+			case 'f':
+				return singleChar('\f');
+			case 'a':
+				return singleChar('\u0007');
+			case 'e':
+				return singleChar('\u001B');
+			case 'c': {
+				if (pos >= end) {
+					throw new UnsupportedPatternException("Unterminated control escape.");
+				}
+				return singleChar(pattern.charAt(pos++) ^ 64);
+			}
+			case '0': {
+				int value = 0;
+				int digits = 0;
+				while (pos < end && digits < 3) {
+					char oc = pattern.charAt(pos);
+					if (oc < '0' || oc > '7' || (digits == 2 && value > 037)) {
+						break;
+					}
+					value = value * 8 + (oc - '0');
+					++digits;
+					++pos;
+				}
+				if (digits == 0) {
+					throw new UnsupportedPatternException("Invalid octal escape.");
+				}
+				return singleChar(value);
+			}
+			case 'x': {
+				if (pos < end && pattern.charAt(pos) == '{') {
+					int close = pattern.indexOf('}', pos);
+					if (close < 0 || close >= end) {
+						throw new UnsupportedPatternException("Unclosed hexadecimal escape.");
+					}
+					int value = parseHex(pos + 1, close);
+					pos = close + 1;
+					return singleChar(value);
+				}
+				int value = parseHex(pos, pos + 2);
+				pos += 2;
+				return singleChar(value);
+			}
+			case 'u': {
+				int value = parseHex(pos, pos + 4);
+				pos += 4;
+				return singleChar(value);
+			}
+			default: {
+				if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c >= 0x80) {
+					//anchors, back references, properties, and others
+					throw new UnsupportedPatternException("Unsupported escape: " + c);
+				}
+				return singleChar(c);
+			}
+		}
+	}
+
+	private int parseHex(int start, int hexend) throws UnsupportedPatternException {
+		if (hexend > end || hexend <= start || hexend - start > 6) {
+			throw new UnsupportedPatternException("Invalid hexadecimal escape.");
+		}
+		int value = 0;
+		for (int i = start; i < hexend; i++) {
+			int digit = Character.digit(pattern.charAt(i), 16);
+			if (digit < 0) {
+				throw new UnsupportedPatternException("Invalid hexadecimal escape.");
+			}
+			value = value * 16 + digit;
+		}
+		if (value > 0xFFFF) {
+			throw new UnsupportedPatternException("Supplementary character.");
+		}
+		return value;
+	}
+}
@@ -17,13 +17,16 @@ package sipka.syntax.parser.model.rule.container;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Predicate;
 
+import sipka.syntax.parser.model.occurrence.Occurrence;
 import sipka.syntax.parser.model.parse.ParseTimeData;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.parse.document.DocumentData;
+import sipka.syntax.parser.model.rule.FirstSet;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.ParsingResult;
 import sipka.syntax.parser.model.rule.Rule;
@@ -35,6 +38,9 @@ import sipka.syntax.parser.util.Pair;
 
 public abstract class ContainerRule extends Rule {
 	private final List<Pair<Rule, ParseTimeData>> children = new ArrayList<>();
+	private final List<Pair<Rule, ParseTimeData>> unmodifiableChildren = Collections.unmodifiableList(children);
+	private volatile FirstSet[] childrenFirstSets;
+	private volatile Occurrence[] childrenOccurrences;
 
 	public ContainerRule(String identifierName) {
 		super(identifierName);
@@ -100,16 +106,102 @@ public abstract class ContainerRule extends Rule {
 		}
 	}
 
-	public final ContainerRule addChild(Pair<Rule, ParseTimeData> r) {
-		getChildren().add(r);
+	public final ContainerRule addChild(Pair<Rule, ParseTimeData> r) throws IllegalStateException {
+		checkNotFrozen();
+		children.add(r);
 		return this;
 	}
 
-	public final ContainerRule addChild(Rule r, ParseTimeData pdata) {
+	public final ContainerRule addChild(Rule r, ParseTimeData pdata) throws IllegalStateException {
 		return addChild(new Pair<>(r, pdata));
 	}
 
 	public final Collection<Pair<Rule, ParseTimeData>> getChildren() {
-		return children;
+		return isFrozen() ? unmodifiableChildren : children;
+	}
+
+	/**
+	 * Sets the first sets of the children, in the same order as they were added.
+	 * <p>
+	 * The first sets are computed by the grammar analysis of the language.
+	 * 
+	 * @param firstsets
+	 *            The first sets.
+	 */
+	public final void setChildrenFirstSets(FirstSet[] firstsets) {
+		this.childrenFirstSets = firstsets;
+	}
+
+	/**
+	 * Gets the first sets of the children, in the same order as they were added.
+	 * 
+	 * @return The first sets or <code>null</code> if the grammar was not analyzed, or the children were modified
+	 *             since.
+	 */
+	public final FirstSet[] getChildrenFirstSets() {
+		FirstSet[] result = childrenFirstSets;
+		if (result == null || result.length != children.size()) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the occurrences of the children which don't depend on the parse context, in the same order as they were
+	 * added.
+	 * <p>
+	 * The elements are <code>null</code> for the children whose occurrence needs to be evaluated during parsing.
+	 * 
+	 * @param occurrences
+	 *            The occurrences.
+	 */
+	public final void setChildrenOccurrences(Occurrence[] occurrences) {
+		this.childrenOccurrences = occurrences;
+	}
+
+	/**
+	 * Gets the constant occurrences of the children, in the same order as they were added.
+	 * 
+	 * @return The occurrences or <code>null</code> if the grammar was not analyzed, or the children were modified
+	 *             since.
+	 * @see #getChildOccurrence(Occurrence[], int, ParseTimeData, ParseHelper, ParseContext)
+	 */
+	protected final Occurrence[] getChildrenOccurrences() {
+		Occurrence[] result = childrenOccurrences;
+		if (result == null || result.length != children.size()) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the constant occurrence of a child, or <code>null</code> if it needs to be evaluated in the context.
+	 */
+	protected static Occurrence getConstantOccurrence(Occurrence[] occurrences, int index) {
+		return occurrences == null ? null : occurrences[index];
+	}
+
+	/**
+	 * Gets the occurrence of a child, using the constant occurrence if available.
+	 * 
+	 * @param occurrences
+	 *            The result of {@link #getChildrenOccurrences()}.
+	 * @param index
+	 *            The index of the child.
+	 * @param parsetimedata
+	 *            The parse time data of the child.
+	 * @param helper
+	 *            The parse helper.
+	 * @param rulecontext
+	 *            The context of the child.
+	 * @return The occurrence.
+	 */
+	protected static Occurrence getChildOccurrence(Occurrence[] occurrences, int index, ParseTimeData parsetimedata,
+			ParseHelper helper, ParseContext rulecontext) {
+		Occurrence result = getConstantOccurrence(occurrences, index);
+		if (result != null) {
+			return result;
+		}
+		return parsetimedata.getOccurrence(helper, rulecontext);
 	}
 }
@@ -15,6 +15,7 @@
  */
 package sipka.syntax.parser.model.rule.container.order;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -23,12 +24,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Predicate;
 
+import sipka.syntax.parser.model.occurrence.Occurrence;
 import sipka.syntax.parser.model.parse.OccurrenceCounter;
 import sipka.syntax.parser.model.parse.ParseTimeData;
 import sipka.syntax.parser.model.parse.context.CallingContext;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.parse.document.DocumentData;
 import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.rule.FirstSet;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.ParsingResult;
 import sipka.syntax.parser.model.rule.Rule;
@@ -65,6 +68,48 @@ public class AnyOrderRule extends ContainerRule {
 		}
 	}
 
+	/**
+	 * Index of the children that can successfully parse based on the next character.
+	 * <p>
+	 * The candidates are in the same order as the children. Children that can match empty, or which have unknown
+	 * first sets are candidates for every character.
+	 */
+	private static final class ChildDispatchIndex {
+		private static final int NON_ASCII_INDEX = 128;
+		private static final int END_INDEX = 129;
+
+		final FirstSet[] firstSets;
+		final Pair<Rule, ParseTimeData>[] children;
+		private final int[][] candidates = new int[END_INDEX + 1][];
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public ChildDispatchIndex(Collection<Pair<Rule, ParseTimeData>> children, FirstSet[] firstsets) {
+			this.firstSets = firstsets;
+			this.children = children.toArray(new Pair[children.size()]);
+			for (int i = 0; i < candidates.length; i++) {
+				int[] indices = new int[firstsets.length];
+				int count = 0;
+				for (int j = 0; j < firstsets.length; j++) {
+					FirstSet fs = firstsets[j];
+					if (fs.isNullable() || (i != END_INDEX && fs.canStartWith((char) i))) {
+						indices[count++] = j;
+					}
+				}
+				candidates[i] = count == indices.length ? indices : Arrays.copyOf(indices, count);
+			}
+		}
+
+		public int[] getCandidates(DocumentData s) {
+			if (s.length() == 0) {
+				return candidates[END_INDEX];
+			}
+			char c = s.charAt(0);
+			return candidates[c < NON_ASCII_INDEX ? c : NON_ASCII_INDEX];
+		}
+	}
+
+	private volatile ChildDispatchIndex dispatchIndex;
+
 	public AnyOrderRule(String identifierName) {
 		super(identifierName);
 	}
@@ -74,10 +119,23 @@ public class AnyOrderRule extends ContainerRule {
 		visitor.visit(this);
 	}
 
-	private Map<Rule, ParseContext> getRuleContextMap(ParseContext context) {
+	private ChildDispatchIndex getDispatchIndex() {
+		FirstSet[] firstsets = getChildrenFirstSets();
+		if (firstsets == null) {
+			return null;
+		}
+		ChildDispatchIndex index = dispatchIndex;
+		if (index == null || index.firstSets != firstsets) {
+			index = new ChildDispatchIndex(getChildren(), firstsets);
+			dispatchIndex = index;
+		}
+		return index;
+	}
+
+	private Map<Rule, ParseContext> getRuleContextMap(ParseHelper helper, ParseContext context) {
 		Map<Rule, ParseContext> result = new HashMap<>();
 		for (Pair<Rule, ParseTimeData> rule : getChildren()) {
-			ParseContext rulecontext = CallingContext.merge(rule.value.getDeclaringContext(), context);
+			ParseContext rulecontext = CallingContext.merge(helper, rule.value.getDeclaringContext(), context);
 			result.put(rule.key, rulecontext);
 		}
 		return result;
@@ -85,8 +143,11 @@ public class AnyOrderRule extends ContainerRule {
 
 	private Map<Rule, OccurrenceCounter> createOccurrencesMap(ParseHelper helper, Map<Rule, ParseContext> contextmap) {
 		HashMap<Rule, OccurrenceCounter> result = new HashMap<>();
+		Occurrence[] constoccurrences = getChildrenOccurrences();
+		int childidx = 0;
 		for (Pair<Rule, ParseTimeData> rule : getChildren()) {
-			result.put(rule.key, new OccurrenceCounter(rule.value.getOccurrence(helper, contextmap.get(rule.key))));
+			result.put(rule.key, new OccurrenceCounter(getChildOccurrence(constoccurrences, childidx++, rule.value,
+					helper, contextmap.get(rule.key))));
 		}
 		return result;
 	}
@@ -100,7 +161,7 @@ public class AnyOrderRule extends ContainerRule {
 		DocumentRegion regionofinterest = new DocumentRegion();
 		regionofinterest.setOffset(startoffset);
 
-		Map<Rule, ParseContext> contextmap = getRuleContextMap(context);
+		Map<Rule, ParseContext> contextmap = getRuleContextMap(helper, context);
 		Map<Rule, OccurrenceCounter> occurrences = createOccurrencesMap(helper, contextmap);
 
 		executeParsing(helper, s, result, occurrences, contextmap, regionofinterest);
@@ -122,6 +183,58 @@ public class AnyOrderRule extends ContainerRule {
 	private void executeParsing(ParseHelper helper, DocumentData s, CollectionStatement.Builder result,
 			Map<Rule, OccurrenceCounter> occurrences, Map<Rule, ParseContext> contextmap,
 			DocumentRegion regionofinterest) {
+		ChildDispatchIndex index = getDispatchIndex();
+		if (index == null) {
+			executeParsingAllChildren(helper, s, result, occurrences, contextmap, regionofinterest);
+			return;
+		}
+		Pair<Rule, ParseTimeData>[] children = index.children;
+		int[] candidates = getCandidates(index, s, regionofinterest);
+		for (int i = 0; i < candidates.length;) {
+			Pair<Rule, ParseTimeData> rule = children[candidates[i++]];
+			OccurrenceCounter occounter = occurrences.get(rule.key);
+			if (!occounter.canOccurOnceMore())
+				continue;
+			ParseContext rulecontext = contextmap.get(rule.key);
+			final int slen = s.length();
+			ParsingResult parsed = rule.key.parseStatement(helper, s, rulecontext, rule.value);
+
+			regionofinterest.expandTo(parsed.getParsingInformation().getRegionOfInterest());
+
+			if (!parsed.isSucceeded()) {
+				continue;
+			}
+
+			if (slen == s.length()) {
+				if (!occounter.isValidOccurrenceCount()) {
+					//not valid occurrence count, add as many times as required
+					for (int added = occounter.addAnyMoreRequired(); added-- > 0;) {
+						result.add(parsed);
+					}
+				}
+				//continue with the next rule
+				continue;
+			}
+
+			occounter.addOccurrence();
+			result.add(parsed);
+			candidates = getCandidates(index, s, regionofinterest);
+			i = 0;
+		}
+	}
+
+	private static int[] getCandidates(ChildDispatchIndex index, DocumentData s, DocumentRegion regionofinterest) {
+		int[] candidates = index.getCandidates(s);
+		if (candidates.length != index.children.length) {
+			//some children are not attempted based on the next character
+			regionofinterest.expandTo(s.getDocumentOffset(), 1);
+		}
+		return candidates;
+	}
+
+	private void executeParsingAllChildren(ParseHelper helper, DocumentData s, CollectionStatement.Builder result,
+			Map<Rule, OccurrenceCounter> occurrences, Map<Rule, ParseContext> contextmap,
+			DocumentRegion regionofinterest) {
 		Collection<Pair<Rule, ParseTimeData>> children = getChildren();
 		for (Iterator<Pair<Rule, ParseTimeData>> it = children.iterator(); it.hasNext();) {
 			Pair<Rule, ParseTimeData> rule = it.next();
@@ -176,7 +289,7 @@ public class AnyOrderRule extends ContainerRule {
 		Iterator<ParsingInformation> infoit = childreninfos.listIterator();
 		Iterator<Statement> childstmit = stmchildren.listIterator();
 
-		Map<Rule, ParseContext> contextmap = getRuleContextMap(context);
+		Map<Rule, ParseContext> contextmap = getRuleContextMap(helper, context);
 		Map<Rule, OccurrenceCounter> occurrences = createOccurrencesMap(helper, contextmap);
 
 		while (childstmit.hasNext()) {
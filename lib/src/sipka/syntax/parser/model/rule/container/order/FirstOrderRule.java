@@ -19,12 +19,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Predicate;
 
+import sipka.syntax.parser.model.occurrence.Occurrence;
 import sipka.syntax.parser.model.parse.OccurrenceCounter;
 import sipka.syntax.parser.model.parse.ParseTimeData;
 import sipka.syntax.parser.model.parse.context.CallingContext;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.parse.document.DocumentData;
 import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.rule.FirstSet;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.ParsingResult;
 import sipka.syntax.parser.model.rule.Rule;
@@ -80,10 +82,26 @@ public class FirstOrderRule extends ContainerRule {
 
 		OccurrenceCounter occounter = new OccurrenceCounter();
 
+		FirstSet[] firstsets = getChildrenFirstSets();
+		Occurrence[] occurrences = getChildrenOccurrences();
+		int childidx = 0;
 		for (final Pair<Rule, ParseTimeData> rule : getChildren()) {
+			final int idx = childidx++;
 			ParseTimeData parsetimedata = rule.value;
-			ParseContext rulecontext = CallingContext.merge(parsetimedata.getDeclaringContext(), context);
-			occounter.reset(parsetimedata.getOccurrence(helper, rulecontext));
+			//the context of the child is only created if its occurrence depends on it, or the child is not skipped
+			ParseContext rulecontext = null;
+			Occurrence occurrence = getConstantOccurrence(occurrences, idx);
+			if (occurrence == null) {
+				rulecontext = CallingContext.merge(helper, parsetimedata.getDeclaringContext(), context);
+				occurrence = parsetimedata.getOccurrence(helper, rulecontext);
+			}
+			occounter.reset(occurrence);
+			if (firstsets != null && isSkippable(firstsets[idx], occounter, s, regionofinterest)) {
+				continue;
+			}
+			if (rulecontext == null) {
+				rulecontext = CallingContext.merge(helper, parsetimedata.getDeclaringContext(), context);
+			}
 			result.clear();
 			DocumentData buf = new DocumentData(s);
 
@@ -142,15 +160,24 @@ public class FirstOrderRule extends ContainerRule {
 
 		OccurrenceCounter occounter = new OccurrenceCounter();
 
+		FirstSet[] firstsets = getChildrenFirstSets();
+		Occurrence[] occurrences = getChildrenOccurrences();
+		int childidx = 0;
 		for (final Pair<Rule, ParseTimeData> rule : getChildren()) {
+			final int idx = childidx++;
 			ParseTimeData parsetimedata = rule.value;
-			ParseContext rulecontext = CallingContext.merge(parsetimedata.getDeclaringContext(), context);
+			ParseContext rulecontext = CallingContext.merge(helper, parsetimedata.getDeclaringContext(), context);
 			result.clear();
 
 			DocumentData buf = new DocumentData(s);
 			final int slen = buf.length();
 
-			occounter.reset(parsetimedata.getOccurrence(helper, rulecontext));
+			occounter.reset(getChildOccurrence(occurrences, idx, parsetimedata, helper, rulecontext));
+			FirstSet childfirstset = firstsets == null ? null : firstsets[idx];
+			if (rule != containerinfo.parsedRule && childfirstset != null
+					&& isSkippable(childfirstset, occounter, s, regionofinterest)) {
+				continue;
+			}
 			if (rule == containerinfo.parsedRule) {
 				//try to repair the previous match
 				while (childstmit.hasNext()) {
@@ -222,6 +249,22 @@ public class FirstOrderRule extends ContainerRule {
 		return result.fail(new ParsingInformation(this, regionofinterest));
 	}
 
+	/**
+	 * Checks if the parsing of an alternative can be skipped, as it is known to fail based on the next character.
+	 * <p>
+	 * If the alternative is skipped, the region of interest is expanded with the next character, as the decision was
+	 * based on it.
+	 */
+	private static boolean isSkippable(FirstSet firstset, OccurrenceCounter occounter, DocumentData s,
+			DocumentRegion regionofinterest) {
+		if (occounter.isValidOccurrenceCount() || firstset.canParse(s)) {
+			//the alternative can succeed without any occurrences, or may parse from the next character
+			return false;
+		}
+		regionofinterest.expandTo(s.getDocumentOffset(), 1);
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName() + " [children=" + getChildren().size() + "]";
@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.function.Predicate;
 
+import sipka.syntax.parser.model.occurrence.Occurrence;
 import sipka.syntax.parser.model.parse.OccurrenceCounter;
 import sipka.syntax.parser.model.parse.ParseTimeData;
 import sipka.syntax.parser.model.parse.context.CallingContext;
@@ -79,12 +80,15 @@ public class InOrderRule extends ContainerRule {
 
 		List<OccurrenceCounter> occurrences = new ArrayList<>();
 
+		Occurrence[] constoccurrences = getChildrenOccurrences();
+		int childidx = 0;
 		for (final Pair<Rule, ParseTimeData> rule : getChildren()) {
 			ParseTimeData parsetimedata = rule.value;
 
-			ParseContext rulecontext = CallingContext.merge(parsetimedata.getDeclaringContext(), context);
+			ParseContext rulecontext = CallingContext.merge(helper, parsetimedata.getDeclaringContext(), context);
 
-			OccurrenceCounter occounter = new OccurrenceCounter(parsetimedata.getOccurrence(helper, rulecontext));
+			OccurrenceCounter occounter = new OccurrenceCounter(
+					getChildOccurrence(constoccurrences, childidx++, parsetimedata, helper, rulecontext));
 
 			occurrences.add(occounter);
 			while (occounter.canOccurOnceMore()) {
@@ -149,11 +153,14 @@ public class InOrderRule extends ContainerRule {
 			childinfo = infoit.next();
 			childrule = childinfo.getRule();
 		}
+		Occurrence[] constoccurrences = getChildrenOccurrences();
+		int childidx = 0;
 		for (final Pair<Rule, ParseTimeData> rulepair : getChildren()) {
 			ParseTimeData parsetimedata = rulepair.value;
-			ParseContext rulecontext = CallingContext.merge(parsetimedata.getDeclaringContext(), context);
+			ParseContext rulecontext = CallingContext.merge(helper, parsetimedata.getDeclaringContext(), context);
 
-			OccurrenceCounter occounter = new OccurrenceCounter(parsetimedata.getOccurrence(helper, rulecontext));
+			OccurrenceCounter occounter = new OccurrenceCounter(
+					getChildOccurrence(constoccurrences, childidx++, parsetimedata, helper, rulecontext));
 //			occurrences.add(occounter);
 
 			while (childrule == rulepair.key) {
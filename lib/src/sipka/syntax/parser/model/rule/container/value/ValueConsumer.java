@@ -35,7 +35,13 @@ public class ValueConsumer {
 	}
 
 	public void appendValue(ArrayRangeCharSequence parsed) {
-		appendValue(parsed.array(), parsed.index(), parsed.length());
+		int length = parsed.length();
+		if (length == 0) {
+			return;
+		}
+		ensureCount(length);
+		parsed.getChars(0, length, array, count);
+		count += length;
 	}
 
 	public void appendValue(CharSequence parsed) {
@@ -55,6 +55,14 @@ public class ValueRule extends InOrderRule {
 			return subInformation;
 		}
 
+		@Override
+		protected void setChildren(List<ParsingInformation> children) {
+			if (children.size() != 1) {
+				throw new IllegalArgumentException("Must have a single child: " + children);
+			}
+			this.subInformation = children.get(0);
+		}
+
 		@Override
 		public List<ParsingInformation> getChildren() {
 			return Collections.singletonList(subInformation);
@@ -122,7 +130,8 @@ public class ValueRule extends InOrderRule {
 		return "ValueRule [getIdentifierName()=" + getIdentifierName() + "]";
 	}
 
-	public void setNonEmpty(boolean nonempty) {
+	public void setNonEmpty(boolean nonempty) throws IllegalStateException {
+		checkNotFrozen();
 		this.nonEmpty = nonempty;
 	}
 
@@ -17,18 +17,19 @@ package sipka.syntax.parser.model.rule.invoke;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 import java.util.function.Predicate;
 
 import sipka.syntax.parser.model.FatalParseException;
+import sipka.syntax.parser.model.occurrence.Occurrence;
 import sipka.syntax.parser.model.parse.ParseTimeData;
 import sipka.syntax.parser.model.parse.context.CallingContext;
 import sipka.syntax.parser.model.parse.context.DeclaringContext;
+import sipka.syntax.parser.model.parse.context.ParameterFrame;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.parse.document.DocumentData;
 import sipka.syntax.parser.model.parse.document.DocumentRegion;
 import sipka.syntax.parser.model.parse.params.InvokeParam;
+import sipka.syntax.parser.model.parse.params.OccurrenceParam;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.ParsingResult;
 import sipka.syntax.parser.model.rule.Rule;
@@ -60,6 +61,14 @@ public class InvokeRule extends Rule {
 			return subInformation;
 		}
 
+		@Override
+		protected void setChildren(List<ParsingInformation> children) {
+			if (children.size() != 1) {
+				throw new IllegalArgumentException("Must have a single child: " + children);
+			}
+			this.subInformation = children.get(0);
+		}
+
 		@Override
 		public List<ParsingInformation> getChildren() {
 			return Collections.singletonList(subInformation);
@@ -69,6 +78,11 @@ public class InvokeRule extends Rule {
 	private final InvokeParam<?> ruleParam;
 	private final String alias;
 	private final List<InvokeParam<?>> invokeParams;
+	/**
+	 * The last parse time data passed to the invoked rule. It is reused if the occurrence and the declaring context
+	 * are the same, which is the case unless they're passed as parameters.
+	 */
+	private volatile ParseTimeData invokeParseTimeData;
 
 	public InvokeRule(String identifiername, InvokeParam<?> ruleParam, String alias,
 			List<InvokeParam<?>> invokeParams) {
@@ -124,11 +138,11 @@ public class InvokeRule extends Rule {
 					"Included rule parameter count doesnt match expected: " + dpsize + " got: " + ipsize);
 		}
 
-		NavigableMap<String, Object> varmap;
+		ParameterFrame frame;
 		if (ipsize == 0) {
-			varmap = Collections.emptyNavigableMap();
+			frame = new ParameterFrame(invokerule);
 		} else {
-			varmap = new TreeMap<>();
+			Object[] arguments = new Object[ipsize];
 			for (int i = 0; i < ipsize; i++) {
 				InvokeParam<?> param = invokeParams.get(i);
 				Pair<String, Class<?>> targetParam = declaredparams.get(i);
@@ -140,14 +154,14 @@ public class InvokeRule extends Rule {
 							+ value.getClass().getName() + " to: " + targetParam.value.getName());
 				}
 
-				varmap.put(invokerule.createParameterName(targetParam.key), value);
+				arguments[i] = value;
 			}
+			frame = new ParameterFrame(invokerule, arguments);
 		}
 
-		ParseContext invokecontext = CallingContext.mergeWithBuiltInsAndVariables(context, invokedruledeclcontext,
-				varmap);
+		ParseContext invokecontext = CallingContext.mergeWithParameterFrame(helper, context, frame);
 
-		ParseTimeData invokeparsetimedata = new ParseTimeData(parsedata.getOccurrence(helper, context),
+		ParseTimeData invokeparsetimedata = getInvokeParseTimeData(parsedata.getOccurrence(helper, context),
 				invokedruledeclcontext);
 		ParsingResult result = executor.execute(invokerule, invokecontext, invokeparsetimedata);
 		InvokeParsingInformation usingparsinginfo = new InvokeParsingInformation(this, result.getParsingInformation());
@@ -162,6 +176,16 @@ public class InvokeRule extends Rule {
 				resultstm.getPosition(), Collections.singletonList(resultstm)), usingparsinginfo);
 	}
 
+	private ParseTimeData getInvokeParseTimeData(Occurrence occurrence, DeclaringContext declcontext) {
+		ParseTimeData result = invokeParseTimeData;
+		if (result == null || result.getDeclaringContext() != declcontext
+				|| ((OccurrenceParam) result.getOccurrenceParam()).getOccurrence() != occurrence) {
+			result = new ParseTimeData(occurrence, declcontext);
+			invokeParseTimeData = result;
+		}
+		return result;
+	}
+
 	@Override
 	protected ParsingResult parseStatementImpl(ParseHelper helper, DocumentData s, ParseContext context,
 			ParseTimeData parsedata) {
@@ -17,6 +17,7 @@ package sipka.syntax.parser.model.statement;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -199,6 +200,13 @@ public final class CollectionStatement extends Statement implements Iterable<Sta
 		return children.iterator();
 	}
 
+	@Override
+	protected CollectionStatement copyWith(DocumentRegion position, List<Statement> directchildren) {
+		CollectionStatement result = (CollectionStatement) super.copyWith(position, Collections.emptyList());
+		result.children = directchildren;
+		return result;
+	}
+
 	@Override
 	public CollectionStatement clone() {
 		CollectionStatement result = (CollectionStatement) super.clone();
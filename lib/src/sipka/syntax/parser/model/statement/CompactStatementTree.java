@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import sipka.syntax.parser.util.ArrayRangeCharSequence;
+
+/**
+ * Compact representation of a statement tree.
+ * <p>
+ * The nodes are stored in primitive arrays and referenced by their integer index. Each node has a kind, name, document
+ * region, first child, and next sibling. The values of the value statements are stored in a shared character pool,
+ * while the raw values (and the values of consumed nodes) are views of the parsed document. Collection nodes have
+ * empty values, same as {@link CollectionStatement}.
+ * <p>
+ * A value statement and its sub-statement are represented as a single node. The children of the node are the children
+ * of the sub-statement. The scope queries work the same way as in {@link Statement}.
+ * <p>
+ * The tree is immutable.
+ */
+public final class CompactStatementTree {
+	public static final int NO_NODE = -1;
+
+	/**
+	 * Node kind for unnamed collection statements.
+	 */
+	public static final byte KIND_COLLECTION = 0;
+	/**
+	 * Node kind for named value statements.
+	 */
+	public static final byte KIND_VALUE = 1;
+	/**
+	 * Node kind for consumed statements.
+	 */
+	public static final byte KIND_CONSUMED = 2;
+
+	private static final int NO_NAME = -1;
+
+	private final ArrayRangeCharSequence document;
+	private final int documentOffset;
+
+	private int nodeCount;
+	private byte[] kinds;
+	private int[] names;
+	private int[] offsets;
+	private int[] lengths;
+	private int[] firstChildren;
+	private int[] nextSiblings;
+	private int[] valueIndexes;
+
+	private String[] nameTable;
+	private final Map<String, Integer> nameIds = new HashMap<>();
+
+	private char[] valuePool;
+	private int valuePoolLength;
+	private int[] valueOffsets;
+	private int valueCount;
+
+	private CompactStatementTree(Statement root) {
+		this.document = root.toRawSequence();
+		this.documentOffset = root.getOffset();
+		int capacity = 64;
+		kinds = new byte[capacity];
+		names = new int[capacity];
+		offsets = new int[capacity];
+		lengths = new int[capacity];
+		firstChildren = new int[capacity];
+		nextSiblings = new int[capacity];
+		valueIndexes = new int[capacity];
+		nameTable = new String[8];
+		valuePool = new char[256];
+		valueOffsets = new int[16];
+
+		add(root);
+
+		kinds = Arrays.copyOf(kinds, nodeCount);
+		names = Arrays.copyOf(names, nodeCount);
+		offsets = Arrays.copyOf(offsets, nodeCount);
+		lengths = Arrays.copyOf(lengths, nodeCount);
+		firstChildren = Arrays.copyOf(firstChildren, nodeCount);
+		nextSiblings = Arrays.copyOf(nextSiblings, nodeCount);
+		valueIndexes = Arrays.copyOf(valueIndexes, nodeCount);
+		nameTable = Arrays.copyOf(nameTable, nameIds.size());
+		valuePool = Arrays.copyOf(valuePool, valuePoolLength);
+		valueOffsets = Arrays.copyOf(valueOffsets, valueCount + 1);
+	}
+
+	/**
+	 * Creates the compact representation of the argument statement tree.
+	 * 
+	 * @param root
+	 *            The root statement.
+	 * @return The compact tree. The root node has the index 0.
+	 */
+	public static CompactStatementTree of(Statement root) {
+		return new CompactStatementTree(root);
+	}
+
+	public int getRoot() {
+		return 0;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public byte getKind(int node) {
+		return kinds[node];
+	}
+
+	/**
+	 * Gets the name of the node.
+	 * 
+	 * @param node
+	 *            The node.
+	 * @return The name, or empty string if the node is not a value node.
+	 */
+	public String getName(int node) {
+		int name = names[node];
+		return name == NO_NAME ? "" : nameTable[name];
+	}
+
+	public int getOffset(int node) {
+		return offsets[node];
+	}
+
+	public int getLength(int node) {
+		return lengths[node];
+	}
+
+	public int getEndOffset(int node) {
+		return offsets[node] + lengths[node];
+	}
+
+	public int getFirstChild(int node) {
+		return firstChildren[node];
+	}
+
+	public int getNextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	public CharSequence getValueSequence(int node) {
+		int value = valueIndexes[node];
+		if (value < 0) {
+			if (kinds[node] == KIND_CONSUMED) {
+				return getRawValueSequence(node);
+			}
+			return ArrayRangeCharSequence.EMPTY;
+		}
+		int start = valueOffsets[value];
+		return new ArrayRangeCharSequence(valuePool, start, valueOffsets[value + 1] - start);
+	}
+
+	public String getValue(int node) {
+		return getValueSequence(node).toString();
+	}
+
+	public CharSequence getRawValueSequence(int node) {
+		return new ArrayRangeCharSequence(document, document.index() + offsets[node] - documentOffset, lengths[node]);
+	}
+
+	public String getRawValue(int node) {
+		return getRawValueSequence(node).toString();
+	}
+
+	public int firstScope(int node, String scoper) {
+		Integer name = nameIds.get(scoper);
+		if (name == null) {
+			return NO_NODE;
+		}
+		return firstScope(node, name);
+	}
+
+	public String firstValue(int node, String scoper) {
+		int scope = firstScope(node, scoper);
+		return scope == NO_NODE ? null : getValue(scope);
+	}
+
+	public int[] scopeTo(int node, String scoper) {
+		Integer name = nameIds.get(scoper);
+		if (name == null) {
+			return new int[0];
+		}
+		int[] result = new int[countScopes(node, name)];
+		fillScopes(node, name, result, 0);
+		return result;
+	}
+
+	public List<String> scopeValues(int node, String scoper) {
+		int[] scopes = scopeTo(node, scoper);
+		List<String> result = new ArrayList<>(scopes.length);
+		for (int scope : scopes) {
+			result.add(getValue(scope));
+		}
+		return result;
+	}
+
+	/**
+	 * Collects the values of the nodes with the given name in the subtree of the node.
+	 * 
+	 * @see Statement#collectValues(String, Collection)
+	 */
+	public void collectValues(int node, String statementname, Collection<? super String> result) {
+		Integer name = nameIds.get(statementname);
+		if (name == null) {
+			return;
+		}
+		collectValues(node, name, result);
+	}
+
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Cursor for walking the tree without allocating objects for the nodes.
+	 * <p>
+	 * The cursor starts at the root node.
+	 */
+	public final class Cursor {
+		private int node;
+		private int[] parents = new int[16];
+		private int depth;
+
+		Cursor() {
+		}
+
+		public int getNode() {
+			return node;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+		public byte getKind() {
+			return kinds[node];
+		}
+
+		public String getName() {
+			return CompactStatementTree.this.getName(node);
+		}
+
+		public String getValue() {
+			return CompactStatementTree.this.getValue(node);
+		}
+
+		public int getOffset() {
+			return offsets[node];
+		}
+
+		public int getLength() {
+			return lengths[node];
+		}
+
+		public boolean toFirstChild() {
+			int child = firstChildren[node];
+			if (child == NO_NODE) {
+				return false;
+			}
+			if (depth == parents.length) {
+				parents = Arrays.copyOf(parents, depth * 2);
+			}
+			parents[depth++] = node;
+			node = child;
+			return true;
+		}
+
+		public boolean toNextSibling() {
+			int sibling = nextSiblings[node];
+			if (sibling == NO_NODE) {
+				return false;
+			}
+			node = sibling;
+			return true;
+		}
+
+		public boolean toParent() {
+			if (depth == 0) {
+				return false;
+			}
+			node = parents[--depth];
+			return true;
+		}
+	}
+
+	private int firstScope(int node, int name) {
+		for (int c = firstChildren[node]; c != NO_NODE; c = nextSiblings[c]) {
+			int cname = names[c];
+			if (cname == NO_NAME) {
+				int fs = firstScope(c, name);
+				if (fs != NO_NODE) {
+					return fs;
+				}
+			} else if (cname == name) {
+				return c;
+			}
+		}
+		return NO_NODE;
+	}
+
+	private int countScopes(int node, int name) {
+		int count = 0;
+		for (int c = firstChildren[node]; c != NO_NODE; c = nextSiblings[c]) {
+			int cname = names[c];
+			if (cname == NO_NAME) {
+				count += countScopes(c, name);
+			} else if (cname == name) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	private int fillScopes(int node, int name, int[] result, int index) {
+		for (int c = firstChildren[node]; c != NO_NODE; c = nextSiblings[c]) {
+			int cname = names[c];
+			if (cname == NO_NAME) {
+				index = fillScopes(c, name, result, index);
+			} else if (cname == name) {
+				result[index++] = c;
+			}
+		}
+		return index;
+	}
+
+	private void collectValues(int node, int name, Collection<? super String> result) {
+		if (names[node] == name) {
+			result.add(getValue(node));
+		}
+		for (int c = firstChildren[node]; c != NO_NODE; c = nextSiblings[c]) {
+			collectValues(c, name, result);
+		}
+	}
+
+	private int add(Statement stm) {
+		int node = nodeCount++;
+		ensureNodeCapacity(nodeCount);
+		String name = stm.getName();
+		Statement content = stm;
+		if (name.isEmpty()) {
+			kinds[node] = stm instanceof ConsumedStatement ? KIND_CONSUMED : KIND_COLLECTION;
+			names[node] = NO_NAME;
+			valueIndexes[node] = -1;
+		} else {
+			kinds[node] = KIND_VALUE;
+			names[node] = internName(name);
+			valueIndexes[node] = addValue(stm.toValueSequence());
+			if (stm instanceof ValueStatement) {
+				content = ((ValueStatement) stm).getSubStatement();
+			}
+		}
+		offsets[node] = stm.getOffset();
+		lengths[node] = stm.getLength();
+		firstChildren[node] = NO_NODE;
+		nextSiblings[node] = NO_NODE;
+
+		int prev = NO_NODE;
+		for (Statement child : content.getDirectChildren()) {
+			int c = add(child);
+			//the arrays may have been reallocated, access them through the fields
+			if (prev == NO_NODE) {
+				firstChildren[node] = c;
+			} else {
+				nextSiblings[prev] = c;
+			}
+			prev = c;
+		}
+		return node;
+	}
+
+	private int internName(String name) {
+		Integer id = nameIds.get(name);
+		if (id != null) {
+			return id;
+		}
+		int result = nameIds.size();
+		if (result == nameTable.length) {
+			nameTable = Arrays.copyOf(nameTable, result * 2);
+		}
+		nameTable[result] = name;
+		nameIds.put(name, result);
+		return result;
+	}
+
+	private int addValue(ArrayRangeCharSequence value) {
+		int len = value.length();
+		if (valuePoolLength + len > valuePool.length) {
+			valuePool = Arrays.copyOf(valuePool, Math.max(valuePool.length * 2, valuePoolLength + len));
+		}
+		value.getChars(0, len, valuePool, valuePoolLength);
+		valuePoolLength += len;
+		int result = valueCount++;
+		if (valueCount + 1 > valueOffsets.length) {
+			valueOffsets = Arrays.copyOf(valueOffsets, valueOffsets.length * 2);
+		}
+		valueOffsets[valueCount] = valuePoolLength;
+		return result;
+	}
+
+	private void ensureNodeCapacity(int count) {
+		if (count <= kinds.length) {
+			return;
+		}
+		int ncap = kinds.length * 2;
+		kinds = Arrays.copyOf(kinds, ncap);
+		names = Arrays.copyOf(names, ncap);
+		offsets = Arrays.copyOf(offsets, ncap);
+		lengths = Arrays.copyOf(lengths, ncap);
+		firstChildren = Arrays.copyOf(firstChildren, ncap);
+		nextSiblings = Arrays.copyOf(nextSiblings, ncap);
+		valueIndexes = Arrays.copyOf(valueIndexes, ncap);
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.model.statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.repair.ParsingInformation;
+import sipka.syntax.parser.model.statement.repair.ReparationRegion;
+
+/**
+ * Offset index of the statement regions used during repairing.
+ * <p>
+ * The statements are stored in pre-order, and each entry records the index after its subtree, and the bounds of the
+ * regions (positions and regions of interest) in its subtree. The modifications are applied in a single pass. The
+ * subtrees that are not affected by any of the modifications are skipped, and shifted lazily by the total length
+ * difference of the preceding modifications. Only the statements that overlap with a modification are visited
+ * individually.
+ * <p>
+ * The lazy shifts are recorded for the root of the shifted subtrees, and applied by {@link #build(Collection)}.
+ * <p>
+ * The indexed statements and parsing informations are not modified. The regions are copied before they're first
+ * modified, and the copied nodes are recreated with their ancestors when the new tree is built. The subtrees which
+ * weren't modified are shared between the original and the new tree. Shifting modifies the positions, so only the
+ * subtrees before the first length changing modification are shared.
+ */
+final class RepairRegionIndex {
+	private Statement[] statements;
+	private ParsingInformation[] infos;
+	private DocumentRegion[] positions;
+	private DocumentRegion[] interests;
+	private int[] subtreeEnds;
+	private int[] minStarts;
+	private int[] maxEnds;
+	private int[] pendingShifts;
+	private boolean[] copied;
+	private boolean[] modified;
+	private int size;
+
+	private int[] pendingNodes = new int[16];
+	private int pendingNodeCount;
+
+	public RepairRegionIndex(Statement root, ParsingInformation info) {
+		int capacity = 64;
+		statements = new Statement[capacity];
+		infos = new ParsingInformation[capacity];
+		positions = new DocumentRegion[capacity];
+		interests = new DocumentRegion[capacity];
+		subtreeEnds = new int[capacity];
+		minStarts = new int[capacity];
+		maxEnds = new int[capacity];
+		add(root, info);
+		pendingShifts = new int[size];
+		copied = new boolean[size];
+		modified = new boolean[size];
+	}
+
+	/**
+	 * Applies the modifications to the regions in a single pass.
+	 * <p>
+	 * The modifications must be {@linkplain ReparationRegion#coalesce(CharSequence, List) coalesced}. The regions are
+	 * modified as if the modifications were applied after each other.
+	 * 
+	 * @param reparations
+	 *            The coalesced modifications in descending offset order.
+	 */
+	public void apply(List<ReparationRegion> reparations) {
+		//store the modifications in ascending order
+		int count = reparations.size();
+		int[] offsets = new int[count];
+		int[] deletes = new int[count];
+		int[] inserts = new int[count];
+		//the sum of the length differences of the modifications before a given index
+		int[] deltas = new int[count + 1];
+		for (int k = 0; k < count; k++) {
+			ReparationRegion r = reparations.get(count - 1 - k);
+			offsets[k] = r.getOffset();
+			deletes[k] = r.getLength();
+			inserts[k] = r.getText().length();
+			deltas[k + 1] = deltas[k] + inserts[k] - deletes[k];
+		}
+		for (int i = 0; i < size;) {
+			//the modifications in the range [first, last) need the subtree to be visited
+			//the subtree is after the ones before first, and before the ones starting at last
+			int first = firstNotBefore(offsets, deletes, inserts, minStarts[i]);
+			int last = firstAfter(offsets, inserts, maxEnds[i]);
+			if (first >= last) {
+				int shift = deltas[first];
+				if (shift != 0) {
+					addPendingShift(i, shift);
+				}
+				i = subtreeEnds[i];
+				continue;
+			}
+			copyRegions(i);
+			DocumentRegion spos = positions[i];
+			DocumentRegion regionofinterest = interests[i];
+			for (int k = last - 1; k >= first; k--) {
+				int offset = offsets[k];
+				int deletelength = deletes[k];
+				int insertlength = inserts[k];
+				if (deletelength > 0) {
+					if (regionofinterest.getOverlappingLength(offset, deletelength) > 0) {
+						modified[i] = true;
+					}
+					Statement.applyRegionDelete(spos, offset, deletelength);
+					Statement.applyRegionDelete(regionofinterest, offset, deletelength);
+					checkInside(spos, regionofinterest);
+				}
+				if (insertlength > 0) {
+					//the regions starting after the insertion offset are only shifted
+					if (regionofinterest.getOffset() <= offset && regionofinterest.getEndOffset() > offset) {
+						modified[i] = true;
+					}
+					Statement.applyRegionInsert(spos, offset, insertlength);
+					Statement.applyRegionInsert(regionofinterest, offset, insertlength);
+					checkInside(spos, regionofinterest);
+				}
+			}
+			int shift = deltas[first];
+			if (shift != 0) {
+				shift(i, shift);
+			}
+			++i;
+		}
+	}
+
+	/**
+	 * Gets the index of the first modification that doesn't only shift a region starting at the given offset.
+	 */
+	private static int firstNotBefore(int[] offsets, int[] deletes, int[] inserts, int start) {
+		int low = 0;
+		int high = offsets.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] + deletes[mid] < start) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low < offsets.length && offsets[low] + deletes[low] == start && inserts[low] == 0) {
+			//the deletion ends at the start, only shifts the region
+			++low;
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the index of the first modification that doesn't modify a region ending at the given offset.
+	 */
+	private static int firstAfter(int[] offsets, int[] inserts, int end) {
+		int low = 0;
+		int high = offsets.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] < end) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if (low < offsets.length && offsets[low] == end && inserts[low] > 0) {
+			//the empty regions at the end are shifted by the insertion
+			++low;
+		}
+		return low;
+	}
+
+	/**
+	 * Applies the pending shifts, and builds the new tree with the modified regions.
+	 * 
+	 * @param outmodified
+	 *            The collection to add the new statements to which have overlapping region of interest with any of
+	 *            the modifications.
+	 * @return The new root statement and parsing information.
+	 */
+	public ParsingResult build(Collection<Statement> outmodified) {
+		for (int p = 0; p < pendingNodeCount; p++) {
+			int node = pendingNodes[p];
+			int shift = pendingShifts[node];
+			if (shift == 0) {
+				continue;
+			}
+			pendingShifts[node] = 0;
+			//the shifts are additive, nested pending subtrees are shifted by their own amount as well
+			for (int i = node, end = subtreeEnds[node]; i < end; i++) {
+				shift(i, shift);
+			}
+		}
+		pendingNodeCount = 0;
+
+		if (copied[0]) {
+			//the parent of a copied node is always copied, as it was visited before the child
+			rebuild(0);
+		}
+		for (int i = 0; i < size; i++) {
+			if (modified[i]) {
+				outmodified.add(statements[i]);
+			}
+		}
+		return new ParsingResult(statements[0], infos[0]);
+	}
+
+	private void rebuild(int node) {
+		List<Statement> childstatements = new ArrayList<>();
+		List<ParsingInformation> childinfos = new ArrayList<>();
+		for (int c = node + 1, end = subtreeEnds[node]; c < end; c = subtreeEnds[c]) {
+			if (copied[c]) {
+				rebuild(c);
+			}
+			childstatements.add(statements[c]);
+			childinfos.add(infos[c]);
+		}
+		statements[node] = statements[node].copyWith(positions[node], childstatements);
+		infos[node] = infos[node].copyWith(interests[node], childinfos);
+	}
+
+	private void shift(int node, int shift) {
+		copyRegions(node);
+		DocumentRegion spos = positions[node];
+		DocumentRegion regionofinterest = interests[node];
+		spos.setOffset(spos.getOffset() + shift);
+		regionofinterest.setOffset(regionofinterest.getOffset() + shift);
+	}
+
+	private void addPendingShift(int node, int shift) {
+		if (pendingShifts[node] == 0) {
+			if (pendingNodeCount == pendingNodes.length) {
+				pendingNodes = Arrays.copyOf(pendingNodes, pendingNodeCount * 2);
+			}
+			pendingNodes[pendingNodeCount++] = node;
+		}
+		pendingShifts[node] += shift;
+	}
+
+	private void copyRegions(int node) {
+		if (!copied[node]) {
+			copied[node] = true;
+			positions[node] = new DocumentRegion(positions[node]);
+			interests[node] = new DocumentRegion(interests[node]);
+		}
+	}
+
+	private static void checkInside(DocumentRegion spos, DocumentRegion regionofinterest) {
+		if (!regionofinterest.isInside(spos)) {
+			throw new IllegalStateException(
+					"Statement position is not fully inside its interest region. " + spos + " - " + regionofinterest);
+		}
+	}
+
+	private void add(Statement stm, ParsingInformation info) {
+		int node = size++;
+		if (node == statements.length) {
+			int ncap = node * 2;
+			statements = Arrays.copyOf(statements, ncap);
+			infos = Arrays.copyOf(infos, ncap);
+			positions = Arrays.copyOf(positions, ncap);
+			interests = Arrays.copyOf(interests, ncap);
+			subtreeEnds = Arrays.copyOf(subtreeEnds, ncap);
+			minStarts = Arrays.copyOf(minStarts, ncap);
+			maxEnds = Arrays.copyOf(maxEnds, ncap);
+		}
+		DocumentRegion spos = stm.getPosition();
+		DocumentRegion regionofinterest = info.getRegionOfInterest();
+		statements[node] = stm;
+		infos[node] = info;
+		positions[node] = spos;
+		interests[node] = regionofinterest;
+		int minstart = Math.min(spos.getOffset(), regionofinterest.getOffset());
+		int maxend = Math.max(spos.getEndOffset(), regionofinterest.getEndOffset());
+
+		Iterator<ParsingInformation> infoit = info.getChildren().iterator();
+		Iterator<Statement> stmit = stm.getDirectChildren().iterator();
+		while (infoit.hasNext()) {
+			if (!stmit.hasNext()) {
+				throw new IllegalStateException();
+			}
+			int child = size;
+			add(stmit.next(), infoit.next());
+			//the arrays may have been reallocated, access them through the fields
+			minstart = Math.min(minstart, minStarts[child]);
+			maxend = Math.max(maxend, maxEnds[child]);
+		}
+		if (stmit.hasNext()) {
+			throw new IllegalStateException();
+		}
+		minStarts[node] = minstart;
+		maxEnds[node] = maxend;
+		subtreeEnds[node] = size;
+	}
+}
@@ -18,20 +18,19 @@ package sipka.syntax.parser.model.statement;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.function.Consumer;
 
 import sipka.syntax.parser.model.ParseFailedException;
 import sipka.syntax.parser.model.parse.context.ParseContext;
 import sipka.syntax.parser.model.parse.document.DocumentData;
 import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.parse.document.PieceTable;
 import sipka.syntax.parser.model.rule.Language;
 import sipka.syntax.parser.model.rule.ParseHelper;
 import sipka.syntax.parser.model.rule.ParsingResult;
@@ -43,6 +42,11 @@ import sipka.syntax.parser.util.Pair;
 public abstract class Statement implements Serializable, Cloneable {
 	private static final long serialVersionUID = 4581488159262562627L;
 
+	/**
+	 * The document is compacted into a single array during repairing if its pieces are shorter than this on average.
+	 */
+	private static final int MIN_AVERAGE_PIECE_LENGTH = 256;
+
 	protected DocumentRegion position;
 
 	public Statement(DocumentRegion position) {
@@ -163,6 +167,33 @@ public abstract class Statement implements Serializable, Cloneable {
 		return toRawSequence();
 	}
 
+	/**
+	 * Creates a shallow copy of this statement with the given position and direct children.
+	 * <p>
+	 * Subclasses that have children should override this method.
+	 * 
+	 * @param position
+	 *            The position of the copy.
+	 * @param directchildren
+	 *            The direct children of the copy.
+	 * @return The copy.
+	 * @throws UnsupportedOperationException
+	 *             If the children cannot be replaced.
+	 */
+	protected Statement copyWith(DocumentRegion position, List<Statement> directchildren)
+			throws UnsupportedOperationException {
+		if (!directchildren.isEmpty()) {
+			throw new UnsupportedOperationException("Cannot replace the children of " + getClass());
+		}
+		try {
+			Statement result = (Statement) super.clone();
+			result.position = position;
+			return result;
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("Failed to clone " + this.getClass());
+		}
+	}
+
 	@Override
 	public Statement clone() {
 		try {
@@ -199,33 +230,7 @@ public abstract class Statement implements Serializable, Cloneable {
 		return position;
 	}
 
-	private static void collectAllInformationImpl(Map<Statement, ParsingInformation> result, Statement stm,
-			ParsingInformation info) {
-		result.put(stm, info);
-		Iterator<ParsingInformation> infoit = info.getChildren().iterator();
-		Iterator<Statement> stmit = stm.getDirectChildren().iterator();
-		while (infoit.hasNext()) {
-			if (!stmit.hasNext()) {
-				throw new IllegalStateException();
-			}
-			Statement stmnext = stmit.next();
-			ParsingInformation infonext = infoit.next();
-			collectAllInformationImpl(result, stmnext, infonext);
-		}
-		if (stmit.hasNext()) {
-			throw new IllegalStateException();
-		}
-	}
-
-	private static Map<Statement, ParsingInformation> collectAllInformation(Statement statement,
-			ParsingInformation parsingInformation) {
-		//create identity hashmap as the keys hash will be modified
-		Map<Statement, ParsingInformation> result = new IdentityHashMap<>();
-		collectAllInformationImpl(result, statement, parsingInformation);
-		return result;
-	}
-
-	private static void applyRegionDelete(DocumentRegion region, int deleteoffset, int deletelength) {
+	static void applyRegionDelete(DocumentRegion region, int deleteoffset, int deletelength) {
 		int overlap = region.getOverlappingLength(deleteoffset, deletelength);
 		if (overlap > 0) {
 			if (deleteoffset < region.getOffset()) {
@@ -247,7 +252,7 @@ public abstract class Statement implements Serializable, Cloneable {
 		}
 	}
 
-	private static void applyRegionInsert(DocumentRegion region, int insertoffset, int insertlength) {
+	static void applyRegionInsert(DocumentRegion region, int insertoffset, int insertlength) {
 		if (insertoffset <= region.getOffset()) {
 			//inserted before this statement
 			region.setOffset(region.getOffset() + insertlength);
@@ -259,85 +264,35 @@ public abstract class Statement implements Serializable, Cloneable {
 		}
 	}
 
-	private static int getFinalLength(int original, Iterable<ReparationRegion> reparations, int[] outdiffsum) {
-		int diffsum = 0;
-		for (ReparationRegion rr : reparations) {
-			CharSequence text = rr.getText();
-			int tlen = text.length();
-			int diff = tlen - rr.getLength();
-			original = original + diff;
-			if (diff > 0) {
-				diffsum += diff;
-			}
-		}
-		outdiffsum[0] = diffsum;
-		return original;
-	}
+	private ParsingResult repairImpl(ParseHelper helper, ParsingInformation parsinginfo,
+			List<ReparationRegion> reparations, ParseContext context) throws ParseFailedException {
+		//reuses the pieces of the document if this statement was repaired before
+		PieceTable originalpieces = PieceTable.valueOf(toRawSequence());
+		//descending offset order, based on the original document
+		List<ReparationRegion> coalesced = ReparationRegion.coalesce(originalpieces, reparations);
 
-	private ParsingResult repairImpl(ParsingInformation parsinginfo, List<ReparationRegion> reparations,
-			ParseContext context) throws ParseFailedException {
-		Map<Statement, ParsingInformation> allinformation = collectAllInformation(this, parsinginfo);
-		Collection<Statement> contentmodifiedstatements = Collections
-				.newSetFromMap(new IdentityHashMap<>(allinformation.size()));
-
-		ArrayRangeCharSequence originalrawseq = toRawSequence();
-
-		int[] diffsum = { 0 };
-		int originallength = originalrawseq.length();
-		int newlen = getFinalLength(originallength, reparations, diffsum);
-		char[] nrawarray = Arrays.copyOfRange(originalrawseq.array(), originalrawseq.index(),
-				Math.max(originallength + diffsum[0], newlen));
-		int workinglen = originallength;
-
-		for (ReparationRegion r : reparations) {
-			int regionoffset = r.getOffset();
-			int deletelength = r.getLength();
-			CharSequence rtext = r.getText();
-			int insertlength = rtext == null ? 0 : rtext.length();
-			r.apply(nrawarray, workinglen);
-			workinglen += insertlength - deletelength;
-			if (deletelength > 0) {
-				for (Entry<Statement, ParsingInformation> entry : allinformation.entrySet()) {
-					Statement s = entry.getKey();
-					DocumentRegion spos = s.getPosition();
-					DocumentRegion regionofinterest = entry.getValue().getRegionOfInterest();
-					int interestoverlap = regionofinterest.getOverlappingLength(regionoffset, deletelength);
-					if (interestoverlap > 0) {
-						contentmodifiedstatements.add(entry.getKey());
-					}
-					applyRegionDelete(spos, regionoffset, deletelength);
-					applyRegionDelete(regionofinterest, regionoffset, deletelength);
-
-					if (!regionofinterest.isInside(spos)) {
-						throw new IllegalStateException("Statement position is not fully inside its interest region. "
-								+ spos + " - " + regionofinterest);
-					}
-				}
-			}
-			if (insertlength > 0) {
-				for (Entry<Statement, ParsingInformation> entry : allinformation.entrySet()) {
-					Statement s = entry.getKey();
-					DocumentRegion spos = s.getPosition();
-					DocumentRegion regionofinterest = entry.getValue().getRegionOfInterest();
-					int interestoverlap = regionofinterest.getOverlappingLength(regionoffset, insertlength);
-					if (interestoverlap > 0) {
-						contentmodifiedstatements.add(entry.getKey());
-					}
-					applyRegionInsert(spos, regionoffset, insertlength);
-					applyRegionInsert(regionofinterest, regionoffset, insertlength);
-
-					if (!regionofinterest.isInside(spos)) {
-						throw new IllegalStateException("Statement position is not fully inside its interest region. "
-								+ spos + " - " + regionofinterest);
-					}
-				}
-			}
+		//the unmodified characters are not copied
+		PieceTable npieces = originalpieces;
+		for (ReparationRegion r : coalesced) {
+			npieces = npieces.replace(r.getOffset(), r.getLength(), r.getText());
+		}
+		int newlen = npieces.length();
+		if (npieces.getPieceCount() > 1 && newlen / npieces.getPieceCount() < MIN_AVERAGE_PIECE_LENGTH) {
+			//too fragmented, the accesses through the piece table would slow down parsing
+			npieces = npieces.compact();
 		}
 
-		if (contentmodifiedstatements.contains(this)) {
-			DocumentData ndocdata = new DocumentData(nrawarray, 0, newlen);
-			ParsingResult repaired = parsinginfo.getRule().repairStatement(new ParseHelper(), this, parsinginfo,
-					ndocdata, context, contentmodifiedstatements::contains, Language.PARSE_ONCE());
+		RepairRegionIndex regionindex = new RepairRegionIndex(this, parsinginfo);
+		regionindex.apply(coalesced);
+		Collection<Statement> contentmodifiedstatements = Collections.newSetFromMap(new IdentityHashMap<>());
+		ParsingResult adjusted = regionindex.build(contentmodifiedstatements);
+		Statement nstatement = adjusted.getStatement();
+
+		if (contentmodifiedstatements.contains(nstatement)) {
+			DocumentData ndocdata = new DocumentData(npieces);
+			ParsingResult repaired = parsinginfo.getRule().repairStatement(helper, nstatement,
+					adjusted.getParsingInformation(), ndocdata, context, contentmodifiedstatements::contains,
+					Language.PARSE_ONCE());
 			if (repaired == null || repaired.getStatement() == null
 					|| repaired.getStatement().getEndOffset() != newlen) {
 				//TODO diagnostics
@@ -345,18 +300,31 @@ public abstract class Statement implements Serializable, Cloneable {
 			}
 			return repaired;
 		}
-		return new ParsingResult(this, parsinginfo);
+		return adjusted;
 	}
 
 	public final ParsingResult repair(ParsingInformation parsinginfo, List<ReparationRegion> reparations,
 			ParseContext context) throws ParseFailedException {
+		return repair(new ParseHelper(), parsinginfo, reparations, context);
+	}
+
+	/**
+	 * Repairs the statement using the given helper.
+	 * <p>
+	 * The helper should be {@linkplain ParseHelper#reset() reset} before it is used for another parsing.
+	 * <p>
+	 * This statement and the parsing information are not modified, therefore both versions can be used after the call.
+	 * The result shares the subtrees with them which precede the reparations. As the statement positions are
+	 * absolute, the statements after a reparation that changes the length of the document are copied with their
+	 * shifted positions. An edit near the start of the document therefore copies most of the tree.
+	 */
+	public final ParsingResult repair(ParseHelper helper, ParsingInformation parsinginfo,
+			List<ReparationRegion> reparations, ParseContext context) throws ParseFailedException {
 		if (reparations.isEmpty()) {
 			return new ParsingResult(this, parsinginfo);
 		}
 
-		Statement stm = this.clone();
-		ParsingInformation infoclone = parsinginfo.clone();
-		return stm.repairImpl(infoclone, reparations, context);
+		return repairImpl(helper, parsinginfo, reparations, context);
 	}
 
 	public final ParsingResult repair(ParsingInformation parsinginfo, List<ReparationRegion> reparations)
@@ -102,6 +102,16 @@ public final class ValueStatement extends Statement {
 		return subStatement.toRawSequence();
 	}
 
+	@Override
+	protected ValueStatement copyWith(DocumentRegion position, List<Statement> directchildren) {
+		if (directchildren.size() != 1) {
+			throw new IllegalArgumentException("Value statement must have a single child: " + directchildren);
+		}
+		ValueStatement result = (ValueStatement) super.copyWith(position, Collections.emptyList());
+		result.subStatement = directchildren.get(0);
+		return result;
+	}
+
 	@Override
 	public ValueStatement clone() {
 		ValueStatement result = (ValueStatement) super.clone();
@@ -44,6 +44,11 @@ public class CollectionParsingInformation extends ParsingInformation {
 		return result;
 	}
 
+	@Override
+	protected void setChildren(List<ParsingInformation> children) {
+		this.children = children;
+	}
+
 	@Override
 	public List<ParsingInformation> getChildren() {
 		return children;
@@ -46,6 +46,45 @@ public class ParsingInformation implements Cloneable {
 		}
 	}
 
+	/**
+	 * Creates a shallow copy of this information with the given region of interest and children.
+	 * 
+	 * @param regionofinterest
+	 *            The region of interest of the copy.
+	 * @param children
+	 *            The children of the copy.
+	 * @return The copy.
+	 * @throws IllegalArgumentException
+	 *             If the children are not applicable to this information.
+	 */
+	public ParsingInformation copyWith(DocumentRegion regionofinterest, List<ParsingInformation> children)
+			throws IllegalArgumentException {
+		try {
+			ParsingInformation result = (ParsingInformation) super.clone();
+			result.regionOfInterest = regionofinterest;
+			result.setChildren(children);
+			return result;
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Sets the children of a newly {@linkplain #copyWith(DocumentRegion, List) copied} information.
+	 * <p>
+	 * Subclasses that have children should override this method.
+	 * 
+	 * @param children
+	 *            The children.
+	 * @throws IllegalArgumentException
+	 *             If the children are not applicable to this information.
+	 */
+	protected void setChildren(List<ParsingInformation> children) throws IllegalArgumentException {
+		if (!children.isEmpty()) {
+			throw new IllegalArgumentException("Parsing information cannot have children: " + children);
+		}
+	}
+
 	public Rule getRule() {
 		return rule;
 	}
@@ -15,6 +15,9 @@
  */
 package sipka.syntax.parser.model.statement.repair;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import sipka.syntax.parser.util.ArrayRangeCharSequence;
@@ -72,17 +75,131 @@ public class ReparationRegion {
 		}
 
 		if (tlen > 0) {
-			if (text instanceof String) {
-				((String) text).getChars(0, tlen, chars, offset);
-			} else if (text instanceof ArrayRangeCharSequence) {
-				ArrayRangeCharSequence arange = (ArrayRangeCharSequence) text;
-				System.arraycopy(arange.array(), arange.index(), chars, offset, tlen);
-			} else {
-				for (int i = 0; i < tlen; i++) {
-					chars[offset + i] = text.charAt(i);
+			getTextChars(chars, offset);
+		}
+	}
+
+	/**
+	 * Copies the replacement text to the given array.
+	 * 
+	 * @param dst
+	 *            The destination array.
+	 * @param dstbegin
+	 *            The index to start copying to.
+	 */
+	public void getTextChars(char[] dst, int dstbegin) {
+		int tlen = text.length();
+		if (text instanceof String) {
+			((String) text).getChars(0, tlen, dst, dstbegin);
+		} else if (text instanceof ArrayRangeCharSequence) {
+			((ArrayRangeCharSequence) text).getChars(0, tlen, dst, dstbegin);
+		} else {
+			for (int i = 0; i < tlen; i++) {
+				dst[dstbegin + i] = text.charAt(i);
+			}
+		}
+	}
+
+	/**
+	 * Coalesces the reparations into a minimal set of disjoint modifications.
+	 * <p>
+	 * The argument reparations are applied after each other, the offset of a reparation is based on the document
+	 * that is the result of the previous reparations. The overlapping or adjacent reparations are merged into a single
+	 * one, and the reparations that don't modify the document are removed.
+	 * <p>
+	 * The offsets of the returned reparations are based on the original document. They are ordered by descending
+	 * offset, and there is at least one unmodified character between them. Therefore applying them after each other
+	 * results in the same document as applying the argument reparations.
+	 * 
+	 * @param document
+	 *            The original document.
+	 * @param reparations
+	 *            The reparations to coalesce.
+	 * @return The coalesced reparations.
+	 * @throws IndexOutOfBoundsException
+	 *             If a reparation is out of range of the document that it is applied to.
+	 */
+	public static List<ReparationRegion> coalesce(CharSequence document, List<ReparationRegion> reparations)
+			throws IndexOutOfBoundsException {
+		//the coalesced modifications in ascending order
+		//offsets and lengths are based on the original document
+		List<ReparationRegion> result = new ArrayList<>();
+		int doclen = document.length();
+		for (ReparationRegion r : reparations) {
+			int offset = r.offset;
+			int end = offset + r.length;
+			CharSequence text = r.text;
+			if (end > doclen) {
+				throw new IndexOutOfBoundsException(
+						"Reparation end offset is out of range for data length: " + end + " - " + doclen);
+			}
+			doclen += text.length() - r.length;
+			if (r.length == 0 && text.length() == 0) {
+				continue;
+			}
+			//find the first overlapping or adjacent modification
+			int first = 0;
+			int delta = 0;
+			int size = result.size();
+			while (first < size) {
+				ReparationRegion m = result.get(first);
+				if (m.offset + delta + m.text.length() >= offset) {
+					break;
+				}
+				delta += m.text.length() - m.length;
+				++first;
+			}
+			int firstdelta = delta;
+			int last = first;
+			while (last < size) {
+				ReparationRegion m = result.get(last);
+				if (m.offset + delta > end) {
+					break;
+				}
+				delta += m.text.length() - m.length;
+				++last;
+			}
+			if (first == last) {
+				result.add(first, new ReparationRegion(offset - firstdelta, r.length, text));
+				continue;
+			}
+			//merge the modifications in the range [first, last)
+			ReparationRegion firstm = result.get(first);
+			ReparationRegion lastm = result.get(last - 1);
+			int firststart = firstm.offset + firstdelta;
+			int lastend = lastm.offset + lastm.length + delta;
+			int mergedstart = Math.min(offset, firststart);
+			int mergedend = Math.max(end, lastend);
+			int origstart = offset < firststart ? offset - firstdelta : firstm.offset;
+			int origend = end > lastend ? end - delta : lastm.offset + lastm.length;
+
+			//the contents of the merged range in the current document
+			StringBuilder sb = new StringBuilder(mergedend - mergedstart);
+			int pos = mergedstart;
+			int mdelta = firstdelta;
+			for (int i = first; i < last; i++) {
+				ReparationRegion m = result.get(i);
+				int mstart = m.offset + mdelta;
+				if (pos < mstart) {
+					sb.append(document, pos - mdelta, mstart - mdelta);
 				}
+				sb.append(m.text);
+				mdelta += m.text.length() - m.length;
+				pos = m.offset + mdelta + m.length;
+			}
+			if (pos < mergedend) {
+				sb.append(document, pos - mdelta, mergedend - mdelta);
+			}
+			sb.replace(offset - mergedstart, end - mergedstart, text.toString());
+
+			List<ReparationRegion> merged = result.subList(first, last);
+			merged.clear();
+			if (origend > origstart || sb.length() > 0) {
+				merged.add(new ReparationRegion(origstart, origend - origstart, sb.toString()));
 			}
 		}
+		Collections.reverse(result);
+		return result;
 	}
 
 	public void apply(StringBuilder chars) {
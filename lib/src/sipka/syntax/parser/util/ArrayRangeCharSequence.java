@@ -15,10 +15,20 @@
  */
 package sipka.syntax.parser.util;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Character sequence view of an array range.
+ * <p>
+ * The sequence is either backed by a <code>char</code> array, or by a <code>byte</code> array of ISO-8859-1 (Latin-1)
+ * encoded characters. The latter uses half the memory for inputs that only contain such characters, and the
+ * characters are only decoded when accessed.
+ */
 public class ArrayRangeCharSequence implements CharSequence {
 	public static final ArrayRangeCharSequence EMPTY = new ArrayRangeCharSequence(new char[0], 0, 0);
 
 	protected final char[] array;
+	protected final byte[] latin1Array;
 	protected int index;
 	protected int length;
 
@@ -28,6 +38,31 @@ public class ArrayRangeCharSequence implements CharSequence {
 
 	public ArrayRangeCharSequence(char[] subject, int index, int length) {
 		this.array = subject;
+		this.latin1Array = null;
+		this.index = index;
+		this.length = length;
+	}
+
+	public ArrayRangeCharSequence(byte[] latin1subject, int index, int length) {
+		this.array = null;
+		this.latin1Array = latin1subject;
+		this.index = index;
+		this.length = length;
+	}
+
+	/**
+	 * Creates a new sequence for the given range of the array that backs the argument sequence.
+	 * 
+	 * @param backing
+	 *            The sequence to take the backing array from.
+	 * @param index
+	 *            The start index in the backing array.
+	 * @param length
+	 *            The length of the sequence.
+	 */
+	public ArrayRangeCharSequence(ArrayRangeCharSequence backing, int index, int length) {
+		this.array = backing.array();
+		this.latin1Array = backing.latin1Array();
 		this.index = index;
 		this.length = length;
 	}
@@ -52,10 +87,28 @@ public class ArrayRangeCharSequence implements CharSequence {
 		return array;
 	}
 
+	/**
+	 * Gets the backing <code>char</code> array.
+	 * 
+	 * @return The array or <code>null</code> if the sequence is {@linkplain #isLatin1() Latin-1 backed}.
+	 */
 	public char[] array() {
 		return array;
 	}
 
+	/**
+	 * Gets the backing Latin-1 encoded array.
+	 * 
+	 * @return The array or <code>null</code> if the sequence is backed by a <code>char</code> array.
+	 */
+	public byte[] latin1Array() {
+		return latin1Array;
+	}
+
+	public boolean isLatin1() {
+		return latin1Array != null;
+	}
+
 	public int index() {
 		return index;
 	}
@@ -70,7 +123,37 @@ public class ArrayRangeCharSequence implements CharSequence {
 		if (index < 0 || index >= length) {
 			throw new IndexOutOfBoundsException("Index out of bounds: " + index + " length: " + length);
 		}
-		return array[this.index + index];
+		if (array != null) {
+			return array[this.index + index];
+		}
+		return (char) (latin1Array[this.index + index] & 0xFF);
+	}
+
+	/**
+	 * Copies the characters of the sequence to the argument array.
+	 * 
+	 * @param srcbegin
+	 *            The index of the first character to copy.
+	 * @param srcend
+	 *            The index after the last character to copy.
+	 * @param dst
+	 *            The destination array.
+	 * @param dstbegin
+	 *            The start offset in the destination array.
+	 * @see String#getChars(int, int, char[], int)
+	 */
+	public void getChars(int srcbegin, int srcend, char[] dst, int dstbegin) {
+		if (srcbegin < 0 || srcbegin > srcend || srcend > length) {
+			throw new IndexOutOfBoundsException(srcbegin + " - " + srcend + " is not in range of 0 - " + length);
+		}
+		if (array != null) {
+			System.arraycopy(array, this.index + srcbegin, dst, dstbegin, srcend - srcbegin);
+			return;
+		}
+		final byte[] latin1 = this.latin1Array;
+		for (int i = this.index + srcbegin, end = this.index + srcend; i < end; i++) {
+			dst[dstbegin++] = (char) (latin1[i] & 0xFF);
+		}
 	}
 
 	@Override
@@ -78,11 +161,14 @@ public class ArrayRangeCharSequence implements CharSequence {
 		if (start < 0 || end < 0 || end > length || start > length) {
 			throw new IndexOutOfBoundsException(start + " - " + end + " is not in range of 0 - " + length);
 		}
-		return new ArrayRangeCharSequence(array, this.index + start, end - start);
+		return new ArrayRangeCharSequence(this, this.index + start, end - start);
 	}
 
 	@Override
 	public String toString() {
-		return String.valueOf(array, index, length);
+		if (array != null) {
+			return String.valueOf(array, index, length);
+		}
+		return new String(latin1Array, index, length, StandardCharsets.ISO_8859_1);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,893 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sipka.syntax.parser.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.occurrence.Occurrence;
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.parse.params.InvokeParam;
+import sipka.syntax.parser.model.parse.params.OccurrenceParam;
+import sipka.syntax.parser.model.parse.params.RegexParam;
+import sipka.syntax.parser.model.parse.params.RuleInvocationVarReferenceParam;
+import sipka.syntax.parser.model.parse.params.VarReferenceParam;
+import sipka.syntax.parser.model.rule.FirstSet;
+import sipka.syntax.parser.model.rule.GeneratedParser;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.Rule;
+import sipka.syntax.parser.model.rule.RuleDeclaration;
+import sipka.syntax.parser.model.rule.RuleVisitor;
+import sipka.syntax.parser.model.rule.consume.ConsumeRule;
+import sipka.syntax.parser.model.rule.consume.MatchesRule;
+import sipka.syntax.parser.model.rule.consume.SkipRule;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.model.rule.container.order.AnyOrderRule;
+import sipka.syntax.parser.model.rule.container.order.FirstOrderRule;
+import sipka.syntax.parser.model.rule.container.order.InOrderRule;
+import sipka.syntax.parser.model.rule.container.value.ValueRule;
+import sipka.syntax.parser.model.rule.invoke.InvokeRule;
+import sipka.syntax.parser.model.statement.Statement;
+
+/**
+ * Generates the source code of a recursive descent parser for languages.
+ * <p>
+ * A method is generated for each rule, specialized for the arguments it is invoked with, therefore the parameters
+ * are resolved during the generation. The patterns are compiled into static fields, literal patterns are matched by
+ * comparing the characters directly, the occurrences are checked inline, and the alternatives of the first order
+ * rules are dispatched on the next character based on the first sets of the grammar analysis.
+ * <p>
+ * The generated parser produces the same statements as the parsing of the language. The results of the invoked
+ * rules are memoized.
+ */
+final class ParserJavaGenerator {
+	private static final String CANONICAL_NAME_STATEMENT = Statement.class.getCanonicalName();
+	private static final String CANONICAL_NAME_GENERATEDPARSER = GeneratedParser.class.getCanonicalName();
+	private static final String CANONICAL_NAME_PARSEFAILEDEXCEPTION = ParseFailedException.class.getCanonicalName();
+	private static final String CANONICAL_NAME_OCCURRENCE = Occurrence.class.getCanonicalName();
+	private static final String CANONICAL_NAME_PATTERN = Pattern.class.getCanonicalName();
+	private static final String CANONICAL_NAME_ARRAYLIST = ArrayList.class.getCanonicalName();
+
+	private static final String METHOD_RULE_PREFIX = "r";
+	private static final String METHOD_MEMOIZED_RULE_PREFIX = "m";
+	private static final String METHOD_PATTERN_PREFIX = "e";
+	private static final String FIELD_OCCURRENCE_PREFIX = "o";
+
+	private static final Pattern PATTERN_OCCURRENCE_BOUNDS = Pattern
+			.compile("(\\*)|(\\+)|(\\?)|([0-9]+)|([0-9]+)\\+|([0-9]+)-|([0-9]+)-([0-9]+)");
+
+	/**
+	 * The maximum number of rule methods, to bound the specializations of rules which pass different arguments to
+	 * themselves.
+	 */
+	private static final int MAX_RULE_METHODS = 1 << 14;
+	/**
+	 * The maximum number of alternatives for dispatching a first order rule. The possible alternatives are stored in
+	 * the bits of an <code>int</code>.
+	 */
+	private static final int MAX_DISPATCH_ALTERNATIVES = 32;
+	private static final int PROBED_OCCURRENCE_COUNT = 64;
+
+	/**
+	 * The arguments of a rule invocation known during the generation.
+	 */
+	private static final class Frame {
+		protected final Rule rule;
+		protected final Object[] arguments;
+
+		public Frame(Rule rule, Object[] arguments) {
+			this.rule = rule;
+			this.arguments = arguments;
+		}
+
+		@Override
+		public int hashCode() {
+			return rule.hashCode() * 31 + Arrays.hashCode(arguments);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Frame other = (Frame) obj;
+			return rule == other.rule && Arrays.equals(arguments, other.arguments);
+		}
+	}
+
+	private static final class RuleMethod {
+		protected final Rule rule;
+		protected final Frame frame;
+		protected final int index;
+
+		public RuleMethod(Rule rule, Frame frame, int index) {
+			this.rule = rule;
+			this.frame = frame;
+			this.index = index;
+		}
+
+		public String getName() {
+			return METHOD_RULE_PREFIX + index;
+		}
+
+		public String getMemoizedName() {
+			return METHOD_MEMOIZED_RULE_PREFIX + index;
+		}
+	}
+
+	/**
+	 * The Java expressions that evaluate an occurrence for a count variable.
+	 */
+	private static final class OccurrenceCode {
+		private final Occurrence occurrence;
+		private final String field;
+		private final int min;
+		private final int max;
+
+		public OccurrenceCode(Occurrence occurrence, int min, int max) {
+			this.occurrence = occurrence;
+			this.field = null;
+			this.min = min;
+			this.max = max;
+		}
+
+		public OccurrenceCode(Occurrence occurrence, String field) {
+			this.occurrence = occurrence;
+			this.field = field;
+			this.min = 0;
+			this.max = 0;
+		}
+
+		public boolean isValidAtZero() {
+			return occurrence.isValidOccurrenceCount(0);
+		}
+
+		public String canAcceptMore(String var) {
+			if (field != null) {
+				return field + ".canAcceptMore(" + var + ")";
+			}
+			return var + " < " + max;
+		}
+
+		public String isValidOccurrenceCount(String var) {
+			if (field != null) {
+				return field + ".isValidOccurrenceCount(" + var + ")";
+			}
+			if (min == max) {
+				return var + " == " + min;
+			}
+			if (min == 0) {
+				if (max == Integer.MAX_VALUE) {
+					return "true";
+				}
+				return var + " <= " + max;
+			}
+			if (max == Integer.MAX_VALUE) {
+				return var + " >= " + min;
+			}
+			return var + " >= " + min + " && " + var + " <= " + max;
+		}
+
+		public String getRequiredMoreCount(String var) {
+			if (field != null) {
+				return field + ".getRequiredMoreCount(" + var + ")";
+			}
+			if (min == 0) {
+				return "0";
+			}
+			return "(" + var + " < " + min + " ? " + min + " - " + var + " : 0)";
+		}
+	}
+
+	private final Map<Frame, Map<Rule, RuleMethod>> ruleMethods = new HashMap<>();
+	private final ArrayDeque<RuleMethod> pendingMethods = new ArrayDeque<>();
+	private final Set<RuleMethod> memoizedMethods = new LinkedHashSet<>();
+	private int ruleMethodCount;
+
+	private final Map<String, String> patternMethods = new HashMap<>();
+	private final List<String> regexPatterns = new ArrayList<>();
+	private final Map<Occurrence, OccurrenceCode> occurrenceCodes = new HashMap<>();
+
+	private final StringBuilder fields = new StringBuilder();
+	private final StringBuilder methods = new StringBuilder();
+	private final StringBuilder patterns = new StringBuilder();
+
+	private ParserJavaGenerator() {
+	}
+
+	public static String generate(String classname, Map<String, Language> languages) {
+		ParserJavaGenerator generator = new ParserJavaGenerator();
+		Map<String, RuleMethod> roots = new LinkedHashMap<>();
+		for (Entry<String, Language> entry : languages.entrySet()) {
+			Language lang = entry.getValue();
+			lang.ensureAnalyzed();
+			roots.put(entry.getKey(), generator.getRuleMethod(lang.getRule(), null));
+		}
+		generator.generateRuleMethods();
+
+		StringBuilder sb = new StringBuilder();
+		String simplename = RuleJavaGenerator.appendPackageDeclarationGetSimpleName(classname, sb);
+		sb.append("public final class ");
+		sb.append(simplename);
+		sb.append(" extends ");
+		sb.append(CANONICAL_NAME_GENERATEDPARSER);
+		sb.append(" {\n");
+		sb.append("private static final ");
+		sb.append(CANONICAL_NAME_PATTERN);
+		sb.append("[] PATTERNS = {\n");
+		for (String p : generator.regexPatterns) {
+			sb.append(p);
+			sb.append(",\n");
+		}
+		sb.append("};\n");
+		sb.append(generator.fields);
+
+		sb.append("private ");
+		sb.append(simplename);
+		sb.append("(char[] data) {\n");
+		sb.append("super(data, PATTERNS);\n");
+		sb.append("}\n");
+		for (Entry<String, RuleMethod> entry : roots.entrySet()) {
+			appendParseMethods(sb, simplename, entry.getKey(), entry.getValue());
+		}
+		sb.append(generator.methods);
+		sb.append(generator.patterns);
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	private static void appendParseMethods(StringBuilder sb, String simplename, String languagename,
+			RuleMethod root) {
+		sb.append("public static ");
+		sb.append(CANONICAL_NAME_STATEMENT);
+		sb.append(" parse");
+		sb.append(languagename);
+		sb.append("(CharSequence data) throws ");
+		sb.append(CANONICAL_NAME_PARSEFAILEDEXCEPTION);
+		sb.append(" {\n");
+		sb.append("return parse");
+		sb.append(languagename);
+		sb.append("(toCharArray(data));\n");
+		sb.append("}\n");
+
+		sb.append("public static ");
+		sb.append(CANONICAL_NAME_STATEMENT);
+		sb.append(" parse");
+		sb.append(languagename);
+		sb.append("(char[] data) throws ");
+		sb.append(CANONICAL_NAME_PARSEFAILEDEXCEPTION);
+		sb.append(" {\n");
+		sb.append(simplename);
+		sb.append(" parser = new ");
+		sb.append(simplename);
+		sb.append("(data);\n");
+		sb.append("return parser.parsed(parser.");
+		sb.append(root.getName());
+		sb.append("(0));\n");
+		sb.append("}\n");
+	}
+
+	private RuleMethod getRuleMethod(Rule rule, Frame frame) {
+		Map<Rule, RuleMethod> framemethods = ruleMethods.computeIfAbsent(frame, x -> new HashMap<>());
+		RuleMethod result = framemethods.get(rule);
+		if (result == null) {
+			if (ruleMethodCount >= MAX_RULE_METHODS) {
+				throw new IllegalArgumentException("Too many rule specializations: " + ruleMethodCount);
+			}
+			result = new RuleMethod(rule, frame, ruleMethodCount++);
+			framemethods.put(rule, result);
+			pendingMethods.add(result);
+		}
+		return result;
+	}
+
+	private void generateRuleMethods() {
+		while (!pendingMethods.isEmpty()) {
+			RuleMethod method = pendingMethods.poll();
+			methods.append("private ");
+			methods.append(CANONICAL_NAME_STATEMENT);
+			methods.append(" ");
+			methods.append(method.getName());
+			methods.append("(int offset) {\n");
+			method.rule.accept(new RuleVisitor() {
+				@Override
+				public void visit(MatchesRule rule) {
+					appendConsumeBody(method, rule, true);
+				}
+
+				@Override
+				public void visit(SkipRule rule) {
+					appendConsumeBody(method, rule, false);
+				}
+
+				@Override
+				public void visit(AnyOrderRule rule) {
+					appendAnyOrderBody(method, rule);
+				}
+
+				@Override
+				public void visit(FirstOrderRule rule) {
+					appendFirstOrderBody(method, rule);
+				}
+
+				@Override
+				public void visit(InOrderRule rule) {
+					appendInOrderBody(method, rule, null);
+				}
+
+				@Override
+				public void visit(ValueRule rule) {
+					appendInOrderBody(method, rule, rule);
+				}
+
+				@Override
+				public void visit(InvokeRule rule) {
+					appendInvokeBody(method, rule);
+				}
+			});
+			methods.append("}\n");
+		}
+		for (RuleMethod method : memoizedMethods) {
+			methods.append("private ");
+			methods.append(CANONICAL_NAME_STATEMENT);
+			methods.append(" ");
+			methods.append(method.getMemoizedName());
+			methods.append("(int offset) {\n");
+			methods.append("MemoEntry memo = getMemoized(");
+			methods.append(method.index);
+			methods.append(", offset);\n");
+			methods.append("if (memo != null) {\n");
+			methods.append("return replay(memo);\n");
+			methods.append("}\n");
+			methods.append("return memoize(");
+			methods.append(method.index);
+			methods.append(", offset, getValueLength(), ");
+			methods.append(method.getName());
+			methods.append("(offset));\n");
+			methods.append("}\n");
+		}
+	}
+
+	private void appendConsumeBody(RuleMethod method, ConsumeRule rule, boolean matches) {
+		Object pattern = evaluate(rule.getParam(), method.frame);
+		if (!(pattern instanceof Pattern)) {
+			throw new IllegalArgumentException("Pattern not found for rule: " + rule);
+		}
+		methods.append("int length = ");
+		methods.append(getPatternMethod((Pattern) pattern));
+		methods.append("(offset);\n");
+		methods.append("if (length < 0) {\n");
+		methods.append("return null;\n");
+		methods.append("}\n");
+		if (matches) {
+			methods.append("appendValue(offset, length);\n");
+		}
+		methods.append("return consumed(offset, length);\n");
+	}
+
+	private void appendInvokeBody(RuleMethod method, InvokeRule rule) {
+		Object ruleval = evaluate(rule.getRuleParam(), method.frame);
+		if (!(ruleval instanceof RuleDeclaration)) {
+			throw new IllegalArgumentException("Referenced object is not a rule: " + rule.getRuleParam() + ".");
+		}
+		RuleDeclaration invokedruledecl = (RuleDeclaration) ruleval;
+		Rule invokedrule = invokedruledecl.getRule();
+		if (invokedruledecl.getDeclarationContext() == null) {
+			throw new IllegalArgumentException("Referenced rule was not defined: " + invokedrule + ".");
+		}
+		List<Pair<String, Class<?>>> declaredparams = invokedrule.getDeclaredParams();
+		List<InvokeParam<?>> invokeparams = rule.getInvokeParams();
+		if (declaredparams.size() != invokeparams.size()) {
+			throw new IllegalArgumentException("Included rule parameter count doesnt match expected: "
+					+ declaredparams.size() + " got: " + invokeparams.size());
+		}
+		Object[] arguments = new Object[invokeparams.size()];
+		for (int i = 0; i < arguments.length; i++) {
+			Object value = evaluate(invokeparams.get(i), method.frame);
+			Class<?> paramtype = declaredparams.get(i).value;
+			if (!paramtype.isInstance(value)) {
+				throw new IllegalArgumentException("Included parameter cannot be converted from: "
+						+ (value == null ? "null" : value.getClass().getName()) + " to: " + paramtype.getName());
+			}
+			arguments[i] = value;
+		}
+		RuleMethod invoked = getRuleMethod(invokedrule, new Frame(invokedrule, arguments));
+		memoizedMethods.add(invoked);
+
+		methods.append(CANONICAL_NAME_STATEMENT);
+		methods.append(" parsed = ");
+		methods.append(invoked.getMemoizedName());
+		methods.append("(offset);\n");
+		methods.append("if (parsed == null) {\n");
+		methods.append("return null;\n");
+		methods.append("}\n");
+		methods.append("return invoked(parsed, ");
+		appendStringLiteral(methods, rule.getAlias());
+		methods.append(");\n");
+	}
+
+	private void appendContainerStart() {
+		methods.append("final int startoffset = offset;\n");
+		methods.append("final int valuestart = getValueLength();\n");
+		methods.append(CANONICAL_NAME_ARRAYLIST);
+		methods.append("<");
+		methods.append(CANONICAL_NAME_STATEMENT);
+		methods.append("> children = new ");
+		methods.append(CANONICAL_NAME_ARRAYLIST);
+		methods.append("<>();\n");
+	}
+
+	/**
+	 * Appends the loop that parses a child as many times as its occurrence allows.
+	 * <p>
+	 * The loop is the same as in the container rules. The <code>count</code> variable contains the number of
+	 * occurrences after the loop.
+	 */
+	private void appendChildOccurrenceLoop(RuleMethod child, OccurrenceCode occurrence, String offsetvar) {
+		methods.append("while (");
+		methods.append(occurrence.canAcceptMore("count"));
+		methods.append(") {\n");
+		methods.append(CANONICAL_NAME_STATEMENT);
+		methods.append(" parsed = ");
+		methods.append(child.getName());
+		methods.append("(");
+		methods.append(offsetvar);
+		methods.append(");\n");
+		methods.append("if (parsed == null) {\n");
+		methods.append("break;\n");
+		methods.append("}\n");
+		methods.append("int length = parsed.getLength();\n");
+		methods.append("if (length == 0) {\n");
+		appendAddRequiredOccurrences(occurrence, "count");
+		methods.append("break;\n");
+		methods.append("}\n");
+		methods.append(offsetvar);
+		methods.append(" += length;\n");
+		methods.append("++count;\n");
+		methods.append("children.add(parsed);\n");
+		methods.append("}\n");
+	}
+
+	/**
+	 * Appends the handling of an empty match, which counts as any more occurrences that are required.
+	 */
+	private void appendAddRequiredOccurrences(OccurrenceCode occurrence, String countvar) {
+		methods.append("if (!(");
+		methods.append(occurrence.isValidOccurrenceCount(countvar));
+		methods.append(")) {\n");
+		methods.append("int added = ");
+		methods.append(occurrence.getRequiredMoreCount(countvar));
+		methods.append(";\n");
+		methods.append(countvar);
+		methods.append(" += added;\n");
+		methods.append("while (added-- > 0) {\n");
+		methods.append("children.add(parsed);\n");
+		methods.append("}\n");
+		methods.append("}\n");
+	}
+
+	private void appendInOrderBody(RuleMethod method, InOrderRule rule, ValueRule valuerule) {
+		appendContainerStart();
+		for (Pair<Rule, ParseTimeData> child : rule.getChildren()) {
+			RuleMethod childmethod = getRuleMethod(child.key, method.frame);
+			OccurrenceCode occurrence = getChildOccurrence(child, method.frame);
+			methods.append("{\n");
+			methods.append("int count = 0;\n");
+			appendChildOccurrenceLoop(childmethod, occurrence, "offset");
+			methods.append("if (!(");
+			methods.append(occurrence.isValidOccurrenceCount("count"));
+			methods.append(")) {\n");
+			methods.append("return failed(valuestart);\n");
+			methods.append("}\n");
+			methods.append("}\n");
+		}
+		if (valuerule == null) {
+			methods.append("return collection(startoffset, offset, children);\n");
+		} else {
+			methods.append("return value(");
+			appendStringLiteral(methods, valuerule.getIdentifierName());
+			methods.append(", valuestart, collection(startoffset, offset, children), ");
+			methods.append(valuerule.isNonEmpty());
+			methods.append(");\n");
+		}
+	}
+
+	private void appendFirstOrderBody(RuleMethod method, FirstOrderRule rule) {
+		Collection<Pair<Rule, ParseTimeData>> children = rule.getChildren();
+		List<OccurrenceCode> occurrences = new ArrayList<>();
+		for (Pair<Rule, ParseTimeData> child : children) {
+			occurrences.add(getChildOccurrence(child, method.frame));
+		}
+		appendContainerStart();
+		boolean[] guarded = appendFirstOrderDispatch(rule, occurrences);
+		int i = 0;
+		for (Pair<Rule, ParseTimeData> child : children) {
+			RuleMethod childmethod = getRuleMethod(child.key, method.frame);
+			OccurrenceCode occurrence = occurrences.get(i);
+			if (guarded != null && guarded[i]) {
+				methods.append("if ((alternatives & ");
+				methods.append(1 << i);
+				methods.append(") != 0) {\n");
+			} else {
+				methods.append("{\n");
+			}
+			methods.append("children.clear();\n");
+			methods.append("int altoffset = offset;\n");
+			methods.append("int count = 0;\n");
+			appendChildOccurrenceLoop(childmethod, occurrence, "altoffset");
+			methods.append("if (");
+			methods.append(occurrence.isValidOccurrenceCount("count"));
+			methods.append(") {\n");
+			methods.append("return collection(startoffset, altoffset, children);\n");
+			methods.append("}\n");
+			methods.append("}\n");
+			++i;
+		}
+		methods.append("return failed(valuestart);\n");
+	}
+
+	/**
+	 * Appends the computation of the alternatives that may succeed based on the next character.
+	 * <p>
+	 * The bits of the <code>alternatives</code> variable are set for the indexes of the possible alternatives.
+	 * 
+	 * @return The alternatives that need to be checked against the variable, or <code>null</code> if there is no
+	 *             dispatching.
+	 */
+	private boolean[] appendFirstOrderDispatch(FirstOrderRule rule, List<OccurrenceCode> occurrences) {
+		FirstSet[] firstsets = rule.getChildrenFirstSets();
+		int size = occurrences.size();
+		if (firstsets == null || size > MAX_DISPATCH_ALTERNATIVES) {
+			return null;
+		}
+		boolean[] guarded = new boolean[size];
+		boolean anyguarded = false;
+		int unguardedmask = 0;
+		for (int i = 0; i < size; i++) {
+			//an alternative can be skipped if it can't succeed without parsing, and can't start with the next character
+			guarded[i] = !occurrences.get(i).isValidAtZero() && !firstsets[i].isNullable();
+			if (guarded[i]) {
+				anyguarded = true;
+			} else {
+				unguardedmask |= 1 << i;
+			}
+		}
+		if (!anyguarded) {
+			return null;
+		}
+		int nonasciimask = getStartCharacterMask(firstsets, guarded, unguardedmask, '\u0080');
+		Map<Integer, List<Character>> asciimasks = new TreeMap<>();
+		for (char c = 0; c < 128; c++) {
+			int mask = getStartCharacterMask(firstsets, guarded, unguardedmask, c);
+			if (mask != nonasciimask) {
+				asciimasks.computeIfAbsent(mask, x -> new ArrayList<>()).add(c);
+			}
+		}
+		methods.append("final int alternatives;\n");
+		methods.append("if (offset >= data.length) {\n");
+		methods.append("alternatives = ");
+		methods.append(unguardedmask);
+		methods.append(";\n");
+		methods.append("} else {\n");
+		methods.append("switch (data[offset]) {\n");
+		for (Entry<Integer, List<Character>> entry : asciimasks.entrySet()) {
+			for (Character c : entry.getValue()) {
+				methods.append("case '");
+				methods.append(RuleJavaGenerator.toEscapedCharacter(c));
+				methods.append("':\n");
+			}
+			methods.append("alternatives = ");
+			methods.append(entry.getKey());
+			methods.append(";\n");
+			methods.append("break;\n");
+		}
+		methods.append("default:\n");
+		methods.append("alternatives = ");
+		methods.append(nonasciimask);
+		methods.append(";\n");
+		methods.append("break;\n");
+		methods.append("}\n");
+		methods.append("}\n");
+		return guarded;
+	}
+
+	private static int getStartCharacterMask(FirstSet[] firstsets, boolean[] guarded, int unguardedmask, char c) {
+		int result = unguardedmask;
+		for (int i = 0; i < guarded.length; i++) {
+			if (guarded[i] && firstsets[i].canStartWith(c)) {
+				result |= 1 << i;
+			}
+		}
+		return result;
+	}
+
+	private void appendAnyOrderBody(RuleMethod method, AnyOrderRule rule) {
+		//the occurrences are counted per rule, the occurrence of the last child with the same rule is used
+		Map<Rule, Integer> counterindexes = new LinkedHashMap<>();
+		Map<Rule, OccurrenceCode> counteroccurrences = new HashMap<>();
+		for (Pair<Rule, ParseTimeData> child : rule.getChildren()) {
+			counterindexes.putIfAbsent(child.key, counterindexes.size());
+			counteroccurrences.put(child.key, getChildOccurrence(child, method.frame));
+		}
+		appendContainerStart();
+		for (Integer idx : counterindexes.values()) {
+			methods.append("int count");
+			methods.append(idx);
+			methods.append(" = 0;\n");
+		}
+		methods.append("anyorder:\n");
+		methods.append("while (true) {\n");
+		for (Pair<Rule, ParseTimeData> child : rule.getChildren()) {
+			RuleMethod childmethod = getRuleMethod(child.key, method.frame);
+			String countvar = "count" + counterindexes.get(child.key);
+			OccurrenceCode occurrence = counteroccurrences.get(child.key);
+			methods.append("if (");
+			methods.append(occurrence.canAcceptMore(countvar));
+			methods.append(") {\n");
+			methods.append(CANONICAL_NAME_STATEMENT);
+			methods.append(" parsed = ");
+			methods.append(childmethod.getName());
+			methods.append("(offset);\n");
+			methods.append("if (parsed != null) {\n");
+			methods.append("int length = parsed.getLength();\n");
+			methods.append("if (length == 0) {\n");
+			appendAddRequiredOccurrences(occurrence, countvar);
+			methods.append("} else {\n");
+			methods.append("offset += length;\n");
+			methods.append("++");
+			methods.append(countvar);
+			methods.append(";\n");
+			methods.append("children.add(parsed);\n");
+			methods.append("continue anyorder;\n");
+			methods.append("}\n");
+			methods.append("}\n");
+			methods.append("}\n");
+		}
+		methods.append("break;\n");
+		methods.append("}\n");
+		for (Entry<Rule, Integer> entry : counterindexes.entrySet()) {
+			methods.append("if (!(");
+			methods.append(counteroccurrences.get(entry.getKey()).isValidOccurrenceCount("count" + entry.getValue()));
+			methods.append(")) {\n");
+			methods.append("return failed(valuestart);\n");
+			methods.append("}\n");
+		}
+		methods.append("return collection(startoffset, offset, children);\n");
+	}
+
+	private OccurrenceCode getChildOccurrence(Pair<Rule, ParseTimeData> child, Frame frame) {
+		Object occurrence = evaluate(child.value.getOccurrenceParam(), frame);
+		if (!(occurrence instanceof Occurrence)) {
+			throw new IllegalArgumentException("Occurrence not found for rule: " + child.key);
+		}
+		return getOccurrenceCode((Occurrence) occurrence);
+	}
+
+	private OccurrenceCode getOccurrenceCode(Occurrence occurrence) {
+		OccurrenceCode result = occurrenceCodes.get(occurrence);
+		if (result != null) {
+			return result;
+		}
+		result = createInlineOccurrenceCode(occurrence);
+		if (result == null) {
+			String occstr = occurrence.toString();
+			Occurrence parsed;
+			try {
+				parsed = Occurrence.parse(occstr);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unsupported occurrence: " + occstr, e);
+			}
+			if (!occurrence.equals(parsed)) {
+				throw new IllegalArgumentException("Unsupported occurrence: " + occstr);
+			}
+			String field = FIELD_OCCURRENCE_PREFIX + occurrenceCodes.size();
+			fields.append("private static final ");
+			fields.append(CANONICAL_NAME_OCCURRENCE);
+			fields.append(" ");
+			fields.append(field);
+			fields.append(" = ");
+			fields.append(CANONICAL_NAME_OCCURRENCE);
+			fields.append(".parse(");
+			appendStringLiteral(fields, occstr);
+			fields.append(");\n");
+			result = new OccurrenceCode(occurrence, field);
+		}
+		occurrenceCodes.put(occurrence, result);
+		return result;
+	}
+
+	/**
+	 * Creates the inline code for occurrences which accept the counts in a range, and require the missing ones up to
+	 * the lower bound.
+	 * 
+	 * @return The code or <code>null</code> if the occurrence is not a simple range.
+	 */
+	private static OccurrenceCode createInlineOccurrenceCode(Occurrence occurrence) {
+		Matcher m = PATTERN_OCCURRENCE_BOUNDS.matcher(occurrence.toString());
+		if (!m.matches()) {
+			return null;
+		}
+		int min;
+		int max;
+		try {
+			if (m.group(1) != null) {
+				min = 0;
+				max = Integer.MAX_VALUE;
+			} else if (m.group(2) != null) {
+				min = 1;
+				max = Integer.MAX_VALUE;
+			} else if (m.group(3) != null) {
+				min = 0;
+				max = 1;
+			} else if (m.group(4) != null) {
+				min = Integer.parseInt(m.group(4));
+				max = min;
+			} else if (m.group(5) != null) {
+				min = Integer.parseInt(m.group(5));
+				max = Integer.MAX_VALUE;
+			} else if (m.group(6) != null) {
+				min = 0;
+				max = Integer.parseInt(m.group(6));
+			} else {
+				min = Integer.parseInt(m.group(7));
+				max = Integer.parseInt(m.group(8));
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		//verify that the occurrence behaves as expected, as the string representation is not a contract
+		int probeend = (int) Math.min((long) Math.max(min, max == Integer.MAX_VALUE ? 0 : max) + 2,
+				PROBED_OCCURRENCE_COUNT);
+		for (int c = 0; c <= probeend; c++) {
+			if (occurrence.isValidOccurrenceCount(c) != (c >= min && c <= max)
+					|| occurrence.canAcceptMore(c) != (c < max)
+					|| occurrence.getRequiredMoreCount(c) != (c < min ? min - c : 0)) {
+				return null;
+			}
+		}
+		return new OccurrenceCode(occurrence, min, max);
+	}
+
+	/**
+	 * Gets the name of the method that matches the pattern.
+	 * <p>
+	 * The method returns the length of the match or -1 if the pattern doesn't match at the offset.
+	 */
+	private String getPatternMethod(Pattern pattern) {
+		String key = pattern.flags() + ":" + pattern.pattern();
+		String result = patternMethods.get(key);
+		if (result != null) {
+			return result;
+		}
+		result = METHOD_PATTERN_PREFIX + patternMethods.size();
+		patternMethods.put(key, result);
+
+		patterns.append("private int ");
+		patterns.append(result);
+		patterns.append("(int offset) {\n");
+		String[] literals = ConsumeRule.getLiteralAlternatives(pattern);
+		if (literals == null) {
+			StringBuilder compile = new StringBuilder();
+			compile.append(CANONICAL_NAME_PATTERN);
+			compile.append(".compile(");
+			appendStringLiteral(compile, pattern.pattern());
+			compile.append(", ");
+			compile.append(pattern.flags());
+			compile.append(")");
+			patterns.append("return matchPattern(");
+			patterns.append(regexPatterns.size());
+			patterns.append(", offset);\n");
+			regexPatterns.add(compile.toString());
+		} else {
+			patterns.append("final char[] data = this.data;\n");
+			for (String literal : literals) {
+				int len = literal.length();
+				if (len == 0) {
+					patterns.append("return 0;\n");
+					patterns.append("}\n");
+					return result;
+				}
+				patterns.append("if (offset + ");
+				patterns.append(len);
+				patterns.append(" <= data.length");
+				for (int i = 0; i < len; i++) {
+					patterns.append(" && data[offset");
+					if (i > 0) {
+						patterns.append(" + ");
+						patterns.append(i);
+					}
+					patterns.append("] == '");
+					patterns.append(RuleJavaGenerator.toEscapedCharacter(literal.charAt(i)));
+					patterns.append("'");
+				}
+				patterns.append(") {\n");
+				patterns.append("return ");
+				patterns.append(len);
+				patterns.append(";\n");
+				patterns.append("}\n");
+			}
+			patterns.append("return -1;\n");
+		}
+		patterns.append("}\n");
+		return result;
+	}
+
+	/**
+	 * Evaluates the parameter for the arguments of the rule invocation.
+	 * <p>
+	 * The variable references are expected to be bound during the construction of the language, as the declaring
+	 * contexts are not searched.
+	 */
+	private static Object evaluate(InvokeParam<?> param, Frame frame) {
+		Object result;
+		if (param instanceof RegexParam) {
+			result = ((RegexParam) param).getPattern();
+		} else if (param instanceof OccurrenceParam) {
+			result = ((OccurrenceParam) param).getOccurrence();
+		} else if (param instanceof VarReferenceParam<?>) {
+			VarReferenceParam<?> varref = (VarReferenceParam<?>) param;
+			result = varref.getBoundValue();
+			if (result == null) {
+				throw new IllegalArgumentException("Unresolved variable reference: " + varref.getVariableName());
+			}
+		} else if (param instanceof RuleInvocationVarReferenceParam<?>) {
+			RuleInvocationVarReferenceParam<?> ruleref = (RuleInvocationVarReferenceParam<?>) param;
+			result = getArgument(ruleref, frame);
+		} else {
+			throw new IllegalArgumentException("Unsupported parameter: " + param);
+		}
+		if (result instanceof InvokeParam<?>) {
+			return evaluate((InvokeParam<?>) result, frame);
+		}
+		return result;
+	}
+
+	private static Object getArgument(RuleInvocationVarReferenceParam<?> param, Frame frame) {
+		if (frame != null && frame.rule == param.getRule()) {
+			List<Pair<String, Class<?>>> declaredparams = param.getRule().getDeclaredParams();
+			for (int i = 0; i < declaredparams.size(); i++) {
+				if (param.getVariableName().equals(declaredparams.get(i).key)) {
+					return frame.arguments[i];
+				}
+			}
+		}
+		throw new IllegalArgumentException("Rule parameter not found: " + param.getVariableName());
+	}
+
+	private static void appendStringLiteral(StringBuilder sb, String s) {
+		if (s == null) {
+			sb.append("null");
+		} else {
+			sb.append(RuleJavaGenerator.getConstantExpression(s));
+		}
+	}
+}
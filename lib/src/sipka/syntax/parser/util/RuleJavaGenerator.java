@@ -126,7 +126,30 @@ public class RuleJavaGenerator {
 		return sb.toString();
 	}
 
-	private static String appendPackageDeclarationGetSimpleName(String classname, StringBuilder sb) {
+	/**
+	 * Generates a standalone parser class for the languages.
+	 * <p>
+	 * The generated class contains a <code>parse&lt;name&gt;</code> method for each language, which parse the input
+	 * without interpreting the rules, and produce the same statements as {@link Language#parseData(String)}.
+	 * 
+	 * @param classname
+	 *            The fully qualified name of the generated class.
+	 * @param languages
+	 *            The languages mapped to their names used in the method names.
+	 * @return The source code of the class.
+	 * @throws IllegalArgumentException
+	 *             If a parameter of a rule cannot be resolved during the generation.
+	 */
+	public static String generateParserJavaClass(String classname, Map<String, Language> languages)
+			throws IllegalArgumentException {
+		return ParserJavaGenerator.generate(classname, languages);
+	}
+
+	public static String generateParserJavaClass(Language lang, String classname) throws IllegalArgumentException {
+		return ParserJavaGenerator.generate(classname, Collections.singletonMap("Language", lang));
+	}
+
+	static String appendPackageDeclarationGetSimpleName(String classname, StringBuilder sb) {
 		int dotidx = classname.lastIndexOf('.');
 		String simplename = classname.substring(dotidx + 1);
 		String pkg;
@@ -234,7 +257,7 @@ public class RuleJavaGenerator {
 		buf.append('\"');
 	}
 
-	private static String toEscapedCharacter(char ch) {
+	static String toEscapedCharacter(char ch) {
 		if (ch >= 32 && ch <= 126) {
 			switch (ch) {
 				case '\'': {
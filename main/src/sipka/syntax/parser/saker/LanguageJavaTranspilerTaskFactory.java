@@ -54,6 +54,12 @@ import saker.nest.utils.FrontendTaskFactory;
 		info = @NestInformation("Sets an identifier for the task.\n"
 				+ "This identifier will be used to determine the output directory for the transpilation.\n"
 				+ "If not set, the name of the language file will be used."))
+@NestParameterInformation(value = "Parser",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies whether a parser should be generated instead of the language objects.\n"
+				+ "If set to true, the generated class will contain static parse<language-name>() methods that parse "
+				+ "the input with code specialized for the rules of the language, without interpreting them.\n"
+				+ "The default is false."))
 public class LanguageJavaTranspilerTaskFactory extends FrontendTaskFactory<Object> {
 	private static final long serialVersionUID = 1L;
 
@@ -72,6 +78,9 @@ public class LanguageJavaTranspilerTaskFactory extends FrontendTaskFactory<Objec
 			@SakerInput(value = { "Identifier" })
 			public String identifierOption;
 
+			@SakerInput(value = { "Parser" })
+			public boolean parserOption;
+
 			@Override
 			public Object run(TaskContext taskcontext) throws Exception {
 				if (saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_006) {
@@ -90,7 +99,8 @@ public class LanguageJavaTranspilerTaskFactory extends FrontendTaskFactory<Objec
 
 				LanguageTranspilerWorkerTaskIdentifier workertaskid = new LanguageTranspilerWorkerTaskIdentifier(
 						identifier);
-				taskcontext.startTask(workertaskid, new LanguageTranspilerWorkerTaskFactory(inpath, classname), null);
+				taskcontext.startTask(workertaskid, new LanguageTranspilerWorkerTaskFactory(inpath, classname,
+						parserOption), null);
 				SimpleStructuredObjectTaskResult result = new SimpleStructuredObjectTaskResult(workertaskid);
 				taskcontext.reportSelfTaskOutputChangeDetector(new EqualityTaskOutputChangeDetector(result));
 				return result;
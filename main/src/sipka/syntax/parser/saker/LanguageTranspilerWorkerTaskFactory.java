@@ -22,6 +22,7 @@ import saker.build.task.TaskFactory;
 import saker.build.thirdparty.saker.util.io.SerialUtils;
 import saker.build.trace.BuildTrace;
 import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.LanguageCache;
 import sipka.syntax.parser.util.RuleJavaGenerator;
 
 public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<LanguageTranspilerTaskOutputImpl>,
@@ -30,6 +31,7 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 
 	private SakerPath inputPath;
 	private String className;
+	private boolean parser;
 
 	/**
 	 * For {@link Externalizable}.
@@ -38,10 +40,15 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 	}
 
 	public LanguageTranspilerWorkerTaskFactory(SakerPath inputPath, String className) {
+		this(inputPath, className, false);
+	}
+
+	public LanguageTranspilerWorkerTaskFactory(SakerPath inputPath, String className, boolean parser) {
 		SakerPathFiles.requireAbsolutePath(inputPath);
 		Objects.requireNonNull(className, "class name");
 		this.inputPath = inputPath;
 		this.className = className;
+		this.parser = parser;
 	}
 
 	@Override
@@ -72,13 +79,19 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 		taskcontext.getTaskUtilities().reportInputFileDependency(null, f);
 		Map<String, Language> langs;
 		try (InputStream is = f.openInputStream()) {
-			langs = Language.fromInputStream(is);
+			//use the shared cache, so the same language files are not parsed again in the build daemon
+			langs = LanguageCache.getDefault().fromInputStream(is);
 		}
 		SakerDirectory outputdir = SakerPathFiles.requireBuildDirectory(taskcontext)
 				.getDirectoryCreate(LanguageJavaTranspilerTaskFactory.TASK_NAME)
 				.getDirectoryCreate(taskid.getIdentifier());
 
-		String genclassstr = RuleJavaGenerator.generateLanguageJavaClass(className, langs);
+		String genclassstr;
+		if (parser) {
+			genclassstr = RuleJavaGenerator.generateParserJavaClass(className, langs);
+		} else {
+			genclassstr = RuleJavaGenerator.generateLanguageJavaClass(className, langs);
+		}
 		SakerPath outfilepath = SakerPath.valueOf(className.replace('.', '/') + ".java");
 
 		//clear any previous file state
@@ -105,12 +118,14 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 	public void writeExternal(ObjectOutput out) throws IOException {
 		out.writeObject(inputPath);
 		out.writeObject(className);
+		out.writeBoolean(parser);
 	}
 
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		inputPath = SerialUtils.readExternalObject(in);
 		className = SerialUtils.readExternalObject(in);
+		parser = in.readBoolean();
 	}
 
 	@Override
@@ -119,6 +134,7 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 		int result = 1;
 		result = prime * result + ((className == null) ? 0 : className.hashCode());
 		result = prime * result + ((inputPath == null) ? 0 : inputPath.hashCode());
+		result = prime * result + (parser ? 1231 : 1237);
 		return result;
 	}
 
@@ -141,12 +157,15 @@ public class LanguageTranspilerWorkerTaskFactory implements TaskFactory<Language
 				return false;
 		} else if (!inputPath.equals(other.inputPath))
 			return false;
+		if (parser != other.parser)
+			return false;
 		return true;
 	}
 
 	@Override
 	public String toString() {
-		return "LanguageTranspilerWorkerTaskFactory[inputPath=" + inputPath + ", className=" + className + "]";
+		return "LanguageTranspilerWorkerTaskFactory[inputPath=" + inputPath + ", className=" + className + ", parser="
+				+ parser + "]";
 	}
 
 }
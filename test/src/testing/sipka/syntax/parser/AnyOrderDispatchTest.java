@@ -0,0 +1,40 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class AnyOrderDispatchTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Statement stm = parseStatement("a=1 12 b! @head c=2 #comment");
+		assertEquals(stm.scopeValues("header"), Arrays.asList("head"));
+		assertEquals(stm.scopeValues("assignment"), Arrays.asList("a1", "c2"));
+		assertEquals(stm.scopeValues("flag"), Arrays.asList("b"));
+		assertEquals(stm.scopeValues("number"), Arrays.asList("12"));
+		assertEquals(stm.scopeValues("comment"), Arrays.asList("comment"));
+
+		//missing header
+		assertException(ParseFailedException.class, () -> parseStatement("a=1 b!"));
+		//too many numbers
+		assertException(ParseFailedException.class, () -> parseStatement("@h 1 2 3"));
+
+		ParsingResult result = parseData("@h x! 1");
+		assertEquals(result.getStatement().scopeValues("flag"), Arrays.asList("x"));
+
+		//the replaced first character requires a different child
+		result = repair(result, listOf(rr(3, 2, "9")));
+		assertEquals(result.getStatement().scopeValues("flag"), Arrays.asList());
+		assertEquals(result.getStatement().scopeValues("number"), Arrays.asList("9", "1"));
+
+		result = repair(result, listOf(rr(3, 0, "y=")));
+		assertEquals(result.getStatement().scopeValues("number"), Arrays.asList("1"));
+		assertEquals(result.getStatement().scopeValues("assignment"), Arrays.asList("y9"));
+	}
+
+}
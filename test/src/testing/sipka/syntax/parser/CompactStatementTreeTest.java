@@ -0,0 +1,91 @@
+package testing.sipka.syntax.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.statement.CompactStatementTree;
+import sipka.syntax.parser.model.statement.Statement;
+import sipka.syntax.parser.model.statement.ValueStatement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class CompactStatementTreeTest extends ParserTestCase {
+	private static final String[] SCOPES = { "assignment", "key", "number", "word", "nonexistent" };
+
+	@Override
+	public Language getLanguage() throws IOException, ParseFailedException {
+		return getSharedLanguage("assignments.lang");
+	}
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		String input = "ab x=1,2 cd yy=34 ef";
+		Statement stm = parseData(input).getStatement();
+		CompactStatementTree tree = CompactStatementTree.of(stm);
+
+		assertCompactEquals(tree, tree.getRoot(), stm);
+		assertEquals(tree.getOffset(tree.getRoot()), 0);
+		assertEquals(tree.getEndOffset(tree.getRoot()), input.length());
+
+		assertEquals(tree.scopeValues(tree.getRoot(), "word"), Arrays.asList("ab", "cd", "ef"));
+		int assignment = tree.firstScope(tree.getRoot(), "assignment");
+		assertEquals(tree.getKind(assignment), CompactStatementTree.KIND_VALUE);
+		assertEquals(tree.getRawValue(assignment), "x=1,2");
+		assertEquals(tree.firstValue(assignment, "key"), "x");
+		assertEquals(tree.scopeValues(assignment, "number"), Arrays.asList("1", "2"));
+		assertEquals(tree.firstScope(tree.getRoot(), "nonexistent"), CompactStatementTree.NO_NODE);
+
+		List<String> values = new ArrayList<>();
+		tree.collectValues(tree.getRoot(), "number", values);
+		assertEquals(values, Arrays.asList("1", "2", "34"));
+
+		//walk the tree with a cursor, and count the nodes
+		CompactStatementTree.Cursor cursor = tree.cursor();
+		int count = 1;
+		while (true) {
+			if (cursor.toFirstChild() || cursor.toNextSibling()) {
+				++count;
+				continue;
+			}
+			boolean found = false;
+			while (cursor.toParent()) {
+				if (cursor.toNextSibling()) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				break;
+			}
+			++count;
+		}
+		assertEquals(count, tree.getNodeCount());
+		assertEquals(cursor.getNode(), tree.getRoot());
+		assertEquals(getLanguage().parseCompact(input).scopeValues(0, "word"), Arrays.asList("ab", "cd", "ef"));
+	}
+
+	private static void assertCompactEquals(CompactStatementTree tree, int node, Statement stm) {
+		assertEquals(tree.getName(node), stm.getName());
+		assertEquals(tree.getOffset(node), stm.getOffset());
+		assertEquals(tree.getLength(node), stm.getLength());
+		assertEquals(tree.getValue(node), stm.getValue());
+		assertEquals(tree.getRawValue(node), stm.getRawValue());
+		for (String scope : SCOPES) {
+			assertEquals(tree.scopeValues(node, scope), stm.scopeValues(scope));
+			assertEquals(tree.firstValue(node, scope), stm.firstValue(scope));
+		}
+		Statement content = stm instanceof ValueStatement ? ((ValueStatement) stm).getSubStatement() : stm;
+		int child = tree.getFirstChild(node);
+		for (Statement c : content.getDirectChildren()) {
+			assertNotEquals(child, CompactStatementTree.NO_NODE);
+			assertCompactEquals(tree, child, c);
+			child = tree.getNextSibling(child);
+		}
+		assertEquals(child, CompactStatementTree.NO_NODE);
+	}
+
+}
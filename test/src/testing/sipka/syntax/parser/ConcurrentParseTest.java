@@ -0,0 +1,63 @@
+package testing.sipka.syntax.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class ConcurrentParseTest extends ParserTestCase {
+	private static final String[] TOKENS = { "while", "for", "-12", "34", "abc", "x1", "[a,b1,c]", "[z]", "{@h x! y!}",
+			"{ }", "{q! @w}" };
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = getLanguage();
+		lang.freeze();
+		assertTrue(lang.isFrozen());
+
+		ContainerRule root = lang.getRule();
+		assertException(IllegalStateException.class, () -> root.addChild(root.getChildren().iterator().next()));
+		assertException(UnsupportedOperationException.class, () -> root.getChildren().clear());
+
+		Random random = new Random(1234);
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			StringBuilder sb = new StringBuilder();
+			int count = 1 + random.nextInt(40);
+			for (int j = 0; j < count; j++) {
+				if (j > 0) {
+					sb.append(' ');
+				}
+				sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+			}
+			inputs.add(sb.toString());
+		}
+		List<String> expected = new ArrayList<>();
+		for (String in : inputs) {
+			expected.add(printStatement(lang.parseData(in).getStatement()));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int round = 0; round < 8; round++) {
+				for (String in : inputs) {
+					futures.add(executor.submit(() -> printStatement(lang.parseData(in).getStatement())));
+				}
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				assertEquals(futures.get(i).get(), expected.get(i % inputs.size()));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class ConstantOccurrenceTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Statement stm = parseStatement("ab,1,cd");
+		assertEquals(stm.scopeValues("word"), Arrays.asList("a", "b", "c", "d"));
+		assertEquals(stm.scopeValues("small"), Arrays.asList("1"));
+
+		ParsingResult result = parseData("x,1");
+		assertEquals(result.getStatement().scopeValues("small"), Arrays.asList("1"));
+		assertEquals(result.getStatement().scopeValues("big"), Arrays.asList());
+
+		result = repair(result, listOf(rr(3, 0, "23")));
+		assertEquals(result.getStatement().scopeValues("small"), Arrays.asList("1", "2", "3"));
+
+		assertException(ParseFailedException.class, () -> parseStatement("a,;b"));
+	}
+
+}
@@ -0,0 +1,41 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class DfaMatchingTest extends ParserTestCase {
+	private static final String INPUT = "int x = -12.5e3; // comment\n" //
+			+ "if (x <<= 3) interface inx \"str\"\"ing\" $a1 ++ -- = == 0.1234\n";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language regexlang = getLanguage();
+		Language dfalang = getLanguage();
+		dfalang.setDfaMatching(true);
+
+		ParsingResult regexresult = regexlang.parseData(INPUT);
+		ParsingResult dfaresult = dfalang.parseData(INPUT);
+		assertResultsEqual(regexresult, dfaresult);
+
+		assertEquals(dfaresult.getStatement().scopeValues("keyword"), Arrays.asList("int", "if", "interface"));
+		assertEquals(dfaresult.getStatement().scopeValues("number"), Arrays.asList("-12.5e3", "3", "0.123", "4"));
+		assertEquals(dfaresult.getStatement().scopeValues("string"), Arrays.asList("\"str\"", "\"ing\""));
+		assertEquals(dfaresult.getStatement().scopeValues("operator"),
+				Arrays.asList("=", ";", "(", "<<=", ")", "++", "--", "=", "=="));
+
+		//the regions of interest must be the same for the incremental repair
+		for (int i = 0; i < INPUT.length(); i += 7) {
+			regexresult = repair(regexresult, listOf(rr(i, 1, " ")));
+			dfaresult = repair(dfaresult, listOf(rr(i, 1, " ")));
+			assertResultsEqual(regexresult, dfaresult);
+		}
+	}
+
+	private static void assertResultsEqual(ParsingResult expected, ParsingResult actual) {
+		assertEquals(printResult(actual), printResult(expected));
+	}
+}
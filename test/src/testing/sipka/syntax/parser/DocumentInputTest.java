@@ -0,0 +1,64 @@
+package testing.sipka.syntax.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParseSession;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class DocumentInputTest extends ParserTestCase {
+	private static final String DEFINITION = "language test {\n\tvalue word * {\n\t\tmatches \"[^ ]+\" 1;\n\t\tskip \" \" ?;\n\t}\n}";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = Language.fromString(DEFINITION).get("test");
+
+		char[] array = "xx ab cd yy".toCharArray();
+		ParsingResult region = lang.parseData(array, 3, 5);
+		assertEquals(region.getStatement().scopeValues("word"), Arrays.asList("ab", "cd"));
+		List<Statement> words = region.getStatement().scopeTo("word");
+		assertEquals(words.get(0).getOffset(), 0);
+		assertEquals(words.get(1).getOffset(), 3);
+		assertEquals(region.getStatement().getEndOffset(), 5);
+
+		ParsingResult repaired = repair(region, listOf(rr(3, 0, "ef ")));
+		assertEquals(repaired.getStatement().scopeValues("word"), Arrays.asList("ab", "ef", "cd"));
+
+		assertEquals(new ParseSession().parseData(lang, array, 3, 5).getStatement().scopeValues("word"),
+				Arrays.asList("ab", "cd"));
+		assertException(IndexOutOfBoundsException.class, () -> lang.parseData(array, 8, 4));
+		assertException(IndexOutOfBoundsException.class, () -> lang.parseData(array, -1, 2));
+
+		CharBuffer heapbuffer = CharBuffer.wrap(array, 6, 2);
+		assertEquals(lang.parseData(heapbuffer).getStatement().scopeValues("word"), Arrays.asList("cd"));
+		assertEquals(heapbuffer.position(), 6);
+
+		CharBuffer directbuffer = ByteBuffer.allocateDirect(16).asCharBuffer();
+		directbuffer.put("gh ij").flip();
+		assertEquals(lang.parseData(directbuffer).getStatement().scopeValues("word"), Arrays.asList("gh", "ij"));
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			sb.append("w").append(i).append(' ');
+		}
+		String large = sb.toString();
+		ParsingResult fromreader = lang.parseReader(new StringReader(large));
+		assertEquals(fromreader.getStatement().scopeTo("word").size(), 10000);
+		assertEquals(fromreader.getStatement().getEndOffset(), large.length());
+
+		String unicode = "\u00e1rv\u00edz t\u0171r\u0151";
+		assertEquals(lang.parseInputStream(new ByteArrayInputStream(unicode.getBytes(StandardCharsets.UTF_8)))
+				.getStatement().scopeValues("word"), Arrays.asList("\u00e1rv\u00edz", "t\u0171r\u0151"));
+		assertEquals(lang.parseReader(new StringReader("")).getStatement().scopeValues("word"), Arrays.asList());
+	}
+
+}
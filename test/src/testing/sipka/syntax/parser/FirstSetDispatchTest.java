@@ -0,0 +1,62 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.occurrence.Occurrence;
+import sipka.syntax.parser.model.parse.ParseTimeData;
+import sipka.syntax.parser.model.parse.context.DeclaringContext;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.rule.RuleFactory;
+import sipka.syntax.parser.model.rule.container.ContainerRule;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class FirstSetDispatchTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Statement stm = parseStatement("while x -12 LeT 3 for #abc");
+		assertEquals(stm.scopeValues("loop"), Arrays.asList("while", "for"));
+		assertEquals(stm.scopeValues("let"), Arrays.asList("LeT"));
+		assertEquals(stm.scopeValues("name"), Arrays.asList("x"));
+		assertEquals(stm.scopeValues("number"), Arrays.asList("-12", "3"));
+		assertEquals(stm.scopeValues("tag"), Arrays.asList("abc"));
+
+		ParsingResult result = parseData("a 1");
+		assertEquals(result.getStatement().scopeValues("number"), Arrays.asList("1"));
+
+		//changing the first character needs to dispatch to a different alternative
+		result = repair(result, listOf(rr(2, 1, "while")));
+		assertEquals(result.getStatement().scopeValues("number"), Arrays.asList());
+		assertEquals(result.getStatement().scopeValues("loop"), Arrays.asList("while"));
+
+		result = repair(result, listOf(rr(2, 0, "-1"), rr(9, 0, "x")));
+		assertEquals(result.getStatement().scopeValues("number"), Arrays.asList("-1"));
+		assertEquals(result.getStatement().scopeValues("loop"), Arrays.asList("while"));
+		assertEquals(result.getStatement().scopeValues("name"), Arrays.asList("a", "x"));
+
+		testModifiedAfterParsing();
+	}
+
+	private static void testModifiedAfterParsing() throws Exception {
+		Language lang = Language.fromString("language test {\n\tfirstorder * {\n\t\tvalue item 1 {\n"
+				+ "\t\t\tfirstorder 1 {\n\t\t\t\tmatches \"[0-9]+\" 1;\n\t\t\t}\n\t\t}\n"
+				+ "\t\tskip \" \" 1;\n\t}\n}").get("test");
+		assertEquals(lang.parseData("1 2").getStatement().scopeValues("item"), Arrays.asList("1", "2"));
+		assertException(ParseFailedException.class, () -> lang.parseData("1 a"));
+
+		//add an alternative to the nested rule, the FIRST set of the item needs to be recomputed
+		ContainerRule items = (ContainerRule) lang.getRule().getChildren().iterator().next().key;
+		ContainerRule item = (ContainerRule) items.getChildren().iterator().next().key;
+		ContainerRule nested = (ContainerRule) item.getChildren().iterator().next().key;
+		RuleFactory factory = new RuleFactory();
+		nested.addChild(factory.createMatchesRule(factory.pattern("[a-z]+")),
+				new ParseTimeData(Occurrence.ONCE, DeclaringContext.EMPTY));
+		assertEquals(lang.parseData("1 a").getStatement().scopeValues("item"), Arrays.asList("1", "a"));
+	}
+
+}
@@ -0,0 +1,27 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class InvokeParametersTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Statement stm = parseStatement("ab,cd,ef;12:34");
+		assertEquals(stm.scopeValues("first"), Arrays.asList("ab", "12"));
+		assertEquals(stm.scopeValues("next"), Arrays.asList("cd", "ef", "34"));
+
+		stm = parseStatement("ab;1");
+		assertEquals(stm.scopeValues("first"), Arrays.asList("ab", "1"));
+		assertEquals(stm.scopeValues("next"), Arrays.asList());
+
+		//the second list accepts at most one tail
+		assertException(ParseFailedException.class, () -> parseStatement("ab;1:2:3"));
+		assertException(ParseFailedException.class, () -> parseStatement("ab;x"));
+	}
+
+}
@@ -0,0 +1,47 @@
+package testing.sipka.syntax.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class LanguageBinaryTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = getLanguage();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		lang.toBinary(baos);
+		byte[] bytes = baos.toByteArray();
+
+		Map<String, Language> loaded = Language.fromBinary(new ByteArrayInputStream(bytes));
+		assertEquals(loaded.keySet(), setOf(lang.getName()));
+		Language loadedlang = loaded.get(lang.getName());
+
+		Statement stm = loadedlang.parseData("ab,cd;1,2,3").getStatement();
+		assertEquals(stm.scopeValues("first"), Arrays.asList("ab", "1"));
+		assertEquals(stm.scopeValues("next"), Arrays.asList("cd", "2", "3"));
+
+		stm = loadedlang.parseData("a,b,c,d;1").getStatement();
+		assertEquals(stm.scopeValues("next"), Arrays.asList("b", "c", "d"));
+		assertException(ParseFailedException.class, () -> parseStatement("a,b,c;1"));
+		assertException(ParseFailedException.class, () -> loadedlang.parseData("a,b,c;1"));
+
+		//the format is stable for the loaded languages
+		baos.reset();
+		loadedlang.toBinary(baos);
+		assertTrue(Arrays.equals(bytes, baos.toByteArray()));
+
+		assertException(IOException.class,
+				() -> Language.fromBinary(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2))));
+		assertException(IOException.class, () -> Language.fromBinary(new ByteArrayInputStream(new byte[16])));
+	}
+
+}
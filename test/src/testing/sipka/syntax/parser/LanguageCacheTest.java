@@ -0,0 +1,53 @@
+package testing.sipka.syntax.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.LanguageCache;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class LanguageCacheTest extends ParserTestCase {
+	private static final String DEFINITION = "language test {\n\tvalue word + {\n\t\tmatches \"[a-z]+\" 1;\n\t\tskip \" \" ?;\n\t}\n}";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		LanguageCache cache = new LanguageCache();
+
+		Map<String, Language> langs = cache.fromString(DEFINITION);
+		assertIdentityEquals(cache.fromString(new String(DEFINITION.toCharArray())), langs);
+		assertIdentityEquals(cache.fromBytes(DEFINITION.getBytes("UTF-8")), langs);
+		assertNotIdentityEquals(cache.fromString(DEFINITION + "\n"), langs);
+		assertEquals(langs.get("test").parseData("ab cd").getStatement().scopeValues("word").size(), 2);
+
+		assertTrue(cache.invalidate(DEFINITION));
+		assertFalse(cache.invalidate(DEFINITION));
+		Map<String, Language> reparsed = cache.fromString(DEFINITION);
+		assertNotIdentityEquals(reparsed, langs);
+		assertIdentityEquals(cache.fromString(DEFINITION), reparsed);
+
+		cache.invalidateAll();
+		//concurrent retrievals share the same instance
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Map<String, Language>>> futures = new ArrayList<>();
+			Callable<Map<String, Language>> task = () -> cache.fromString(DEFINITION);
+			for (int i = 0; i < 16; i++) {
+				futures.add(executor.submit(task));
+			}
+			Map<String, Language> first = futures.get(0).get();
+			for (Future<Map<String, Language>> f : futures) {
+				assertIdentityEquals(f.get(), first);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
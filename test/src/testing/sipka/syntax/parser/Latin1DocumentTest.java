@@ -0,0 +1,61 @@
+package testing.sipka.syntax.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParseSession;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.util.ArrayRangeCharSequence;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class Latin1DocumentTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = getLanguage();
+		String input = "let x=12; caf\u00e9 -3 ;let yy=4";
+		byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+
+		String expected = printStatement(lang.parseData(input).getStatement());
+		ParsingResult result = lang.parseLatin1Data(bytes);
+		assertTrue(((ArrayRangeCharSequence) result.getStatement().getRawValueSequence()).isLatin1());
+		assertEquals(printStatement(result.getStatement()), expected);
+		assertEquals(result.getStatement().scopeValues("name"), Arrays.asList("caf\u00e9"));
+		assertEquals(result.getStatement().scopeValues("assignment"), Arrays.asList("x12", "yy4"));
+
+		byte[] padded = ("##" + input + "##").getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(printStatement(new ParseSession().parseLatin1Data(lang, padded, 2, bytes.length).getStatement()),
+				expected);
+
+		ParsingResult repaired = repair(result, listOf(rr(10, 4, "\u00fcber")));
+		assertEquals(repaired.getStatement().scopeValues("name"), Arrays.asList("\u00fcber"));
+		assertEquals(repaired.getStatement().scopeValues("assignment"), Arrays.asList("x12", "yy4"));
+
+		lang.setDfaMatching(true);
+		assertEquals(printStatement(lang.parseLatin1Data(bytes).getStatement()), expected);
+		lang.setDfaMatching(false);
+
+		Path file = Files.createTempFile("latin1", ".txt");
+		try {
+			Files.write(file, bytes);
+			assertEquals(printStatement(lang.parseMappedFile(file, StandardCharsets.ISO_8859_1).getStatement()),
+					expected);
+
+			String ascii = "let a=1; b";
+			Files.write(file, ascii.getBytes(StandardCharsets.UTF_8));
+			assertEquals(lang.parseMappedFile(file, StandardCharsets.UTF_8).getStatement().scopeValues("name"),
+					Arrays.asList("b"));
+
+			Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+			assertEquals(printStatement(lang.parseMappedFile(file, StandardCharsets.UTF_8).getStatement()),
+					expected);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class LiteralConsumeTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Statement stm = parseStatement("include in as inx {\t\\|}");
+		assertEquals(stm.scopeValues("keyword"), Arrays.asList("include", "in", "as", "in"));
+		assertEquals(stm.scopeValues("name"), Arrays.asList("x"));
+		assertEquals(stm.scopeValues("block"), Arrays.asList("\t\\|"));
+
+		ParsingResult result = parseData("a includ");
+		assertEquals(result.getStatement().scopeValues("keyword"), Arrays.asList("in"));
+		assertEquals(result.getStatement().scopeValues("name"), Arrays.asList("a", "clud"));
+
+		//appending to the end of the input needs to reparse the literal
+		result = repair(result, listOf(rr(8, 0, "e")));
+		assertEquals(result.getStatement().scopeValues("keyword"), Arrays.asList("include"));
+		assertEquals(result.getStatement().scopeValues("name"), Arrays.asList("a"));
+
+		result = repair(result, listOf(rr(2, 1, "a")));
+		assertEquals(result.getStatement().scopeValues("keyword"), Arrays.asList());
+		assertEquals(result.getStatement().scopeValues("name"), Arrays.asList("a", "anclude"));
+	}
+
+}
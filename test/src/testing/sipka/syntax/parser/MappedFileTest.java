@@ -0,0 +1,59 @@
+package testing.sipka.syntax.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.Language.ParseProgressMonitor;
+import sipka.syntax.parser.model.rule.MemoizationPolicy;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class MappedFileTest extends ParserTestCase {
+	private static final String DEFINITION = "language test {\n\tvalue word * {\n\t\tmatches \"[^ ]+\" 1;\n\t\tskip \" \" ?;\n\t}\n}";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = Language.fromString(DEFINITION).get("test");
+
+		StringBuilder sb = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			String word = "\u00e1" + i + "\u0151\ud83d\ude00";
+			expected.add(word);
+			sb.append(word).append(' ');
+		}
+		String content = sb.toString();
+
+		Path file = Files.createTempFile("mapped", ".txt");
+		try {
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+			ParsingResult result = lang.parseMappedFile(file, StandardCharsets.UTF_8);
+			assertEquals(result.getStatement().scopeValues("word"), expected);
+			assertEquals(result.getStatement().getEndOffset(), content.length());
+
+			result = lang.parseMappedFile(file, StandardCharsets.UTF_8, ParseProgressMonitor.NULLMONITOR,
+					MemoizationPolicy.window(64));
+			assertEquals(result.getStatement().scopeValues("word"), expected);
+
+			Files.write(file, "ab cd".getBytes(StandardCharsets.UTF_16LE));
+			assertEquals(lang.parseMappedFile(file, StandardCharsets.UTF_16LE).getStatement().scopeValues("word"),
+					listOf("ab", "cd"));
+
+			Files.write(file, new byte[0]);
+			assertEquals(lang.parseMappedFile(file, StandardCharsets.UTF_8).getStatement().scopeValues("word"),
+					listOf());
+
+			Files.write(file, "ab  cd".getBytes(StandardCharsets.UTF_8));
+			assertException(ParseFailedException.class, () -> lang.parseMappedFile(file, StandardCharsets.UTF_8));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
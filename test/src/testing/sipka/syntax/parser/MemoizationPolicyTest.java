@@ -0,0 +1,33 @@
+package testing.sipka.syntax.parser;
+
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.MemoizationPolicy;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class MemoizationPolicyTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			if (i % 3 == 0) {
+				sb.append("abc:def;\n");
+			} else {
+				sb.append("x = ").append(i).append(";\n");
+			}
+		}
+		String data = sb.toString().replace(" = ", "=");
+
+		Language lang = getLanguage();
+		String expected = printResult(lang.parseData(data, MemoizationPolicy.UNBOUNDED));
+		assertEquals(printResult(lang.parseData(data, MemoizationPolicy.window(0))), expected);
+		assertEquals(printResult(lang.parseData(data, MemoizationPolicy.window(16))), expected);
+		assertEquals(printResult(lang.parseData(data, MemoizationPolicy.leastRecentlyUsed(2))), expected);
+		assertEquals(printResult(lang.parseData(data, MemoizationPolicy.leastRecentlyUsed(100))), expected);
+
+		assertException(IllegalArgumentException.class, () -> MemoizationPolicy.window(-1));
+		assertException(IllegalArgumentException.class, () -> MemoizationPolicy.leastRecentlyUsed(1));
+	}
+}
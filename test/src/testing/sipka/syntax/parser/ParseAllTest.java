@@ -0,0 +1,73 @@
+package testing.sipka.syntax.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.MemoizationPolicy;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class ParseAllTest extends ParserTestCase {
+	private static final String DEFINITION = "language test {\n\tvalue word + {\n\t\tmatches \"[a-z]+\" 1;\n\t\tskip \" \" ?;\n\t}\n}";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language lang = Language.fromString(DEFINITION).get("test");
+		lang.freeze();
+
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = 0; j <= i % 7; j++) {
+				if (j > 0) {
+					sb.append(' ');
+				}
+				sb.append((char) ('a' + (i + j) % 26));
+			}
+			inputs.add(sb.toString());
+		}
+		//a large input first, the sessions that parsed it are reused for the small ones
+		StringBuilder large = new StringBuilder("x");
+		for (int i = 0; i < 3000; i++) {
+			large.append(" y");
+		}
+		inputs.add(0, large.toString());
+		inputs.add("1 fails");
+
+		//the same thread runs all tasks, the helpers are reused
+		assertResults(inputs, lang.parseAll(inputs, Runnable::run));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertResults(inputs, lang.parseAll(inputs, executor));
+			assertResults(inputs, lang.parseAll(inputs, executor, MemoizationPolicy.window(4)));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(lang.parseAll(Arrays.asList(), Runnable::run).isEmpty());
+	}
+
+	private static void assertResults(List<String> inputs, List<CompletableFuture<ParsingResult>> results)
+			throws Exception {
+		assertEquals(results.size(), inputs.size());
+		for (int i = 0; i < inputs.size() - 1; i++) {
+			String in = inputs.get(i);
+			assertEquals(results.get(i).get().getStatement().scopeValues("word"), Arrays.asList(in.split(" ")));
+		}
+		try {
+			results.get(inputs.size() - 1).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ParseFailedException, e.toString());
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package testing.sipka.syntax.parser;
+
+import java.util.Arrays;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.MemoizationPolicy;
+import sipka.syntax.parser.model.rule.ParseSession;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class ParseSessionTest extends ParserTestCase {
+	private static final String DEFINITION = "language test {\n\tvalue word + {\n\t\tmatches \"[a-z]+\" 1;\n\t\tskip \" \" ?;\n\t}\n}\n"
+			+ "language numbers {\n\tvalue number + {\n\t\tmatches \"[0-9]+\" 1;\n\t\tskip \",\" ?;\n\t}\n}";
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		Language words = Language.fromString(DEFINITION).get("test");
+		Language numbers = Language.fromString(DEFINITION).get("numbers");
+
+		testSession(new ParseSession(), words, numbers);
+		testSession(new ParseSession(MemoizationPolicy.leastRecentlyUsed(16)), words, numbers);
+	}
+
+	private static void testSession(ParseSession session, Language words, Language numbers) throws Exception {
+		for (int i = 0; i < 100; i++) {
+			assertEquals(session.parseData(words, "ab cd ef").getStatement().scopeValues("word"),
+					Arrays.asList("ab", "cd", "ef"));
+			assertEquals(session.parseData(numbers, "1,23").getStatement().scopeValues("number"),
+					Arrays.asList("1", "23"));
+		}
+		//a failure doesn't affect later parsings
+		assertException(ParseFailedException.class, () -> session.parseData(words, "ab 1"));
+		ParsingResult result = session.parseData(words, "ab cd");
+		assertEquals(result.getStatement().scopeValues("word"), Arrays.asList("ab", "cd"));
+
+		ParsingResult repaired = session.repair(result, listOf(rr(2, 1, "x")));
+		assertEquals(repaired.getStatement().scopeValues("word"), Arrays.asList("abxcd"));
+		//the original is unchanged
+		assertEquals(result.getStatement().scopeValues("word"), Arrays.asList("ab", "cd"));
+
+		//a large document grows the memoization table, the next small ones still parse correctly
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("w ");
+		}
+		assertEquals(session.parseData(words, sb.toString()).getStatement().scopeValues("word").size(), 5000);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(session.parseData(words, "ab cd").getStatement().scopeValues("word"),
+					Arrays.asList("ab", "cd"));
+		}
+
+		session.reset();
+		assertEquals(session.parseData(words, "xy").getStatement().scopeValues("word"), Arrays.asList("xy"));
+	}
+
+}
@@ -0,0 +1,78 @@
+package testing.sipka.syntax.parser;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.statement.Statement;
+import sipka.syntax.parser.util.RuleJavaGenerator;
+import testing.saker.SakerTest;
+
+/**
+ * Tests that the generated parser produces the same statements as the language.
+ * <p>
+ * The generated source is only compiled if a Java compiler is available in the test environment.
+ */
+@SakerTest
+public class ParserGeneratingTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		String source = RuleJavaGenerator.generateParserJavaClass(getLanguage(), "test.GeneratedTestParser");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			System.out.println("Java compiler not available, skipping the compilation of the generated parser.");
+			return;
+		}
+		Path tempdir = Files.createTempDirectory("parsergen");
+		try {
+			Path srcfile = tempdir.resolve("test/GeneratedTestParser.java");
+			Files.createDirectories(srcfile.getParent());
+			Files.write(srcfile, source.getBytes(StandardCharsets.UTF_8));
+			String classpath = Paths.get(Statement.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+					.toString();
+			int res = compiler.run(null, null, null, "-nowarn", "-cp", classpath, "-d", tempdir.toString(),
+					srcfile.toString());
+			assertEquals(res, 0);
+			try (URLClassLoader cl = new URLClassLoader(new URL[] { tempdir.toUri().toURL() },
+					Statement.class.getClassLoader())) {
+				Method parsemethod = cl.loadClass("test.GeneratedTestParser").getMethod("parseLanguage",
+						CharSequence.class);
+				for (String input : Arrays.asList("if!", "12 <ab,cd> else! while!<x> 3", "<a> <b,c,d>  if!if!",
+						"")) {
+					Statement expected = parseStatement(input);
+					Statement generated = (Statement) parsemethod.invoke(null, input);
+					assertEquals(printStatement(generated), printStatement(expected));
+					assertEquals(generated.scopeValues("first"), expected.scopeValues("first"));
+				}
+				for (String input : Arrays.asList("1 2 3", "if", "<ab,>", "<>")) {
+					assertException(ParseFailedException.class, () -> parseStatement(input));
+					assertException(ParseFailedException.class, () -> {
+						try {
+							parsemethod.invoke(null, input);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+				}
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(tempdir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+}
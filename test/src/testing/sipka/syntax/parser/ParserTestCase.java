@@ -1,6 +1,8 @@
 package testing.sipka.syntax.parser;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -48,6 +50,17 @@ public abstract class ParserTestCase extends SakerTestCase {
 		}
 	}
 
+	/**
+	 * Gets a language that is shared by multiple tests.
+	 * 
+	 * @param filename
+	 *            The file name of the language in the test contents directory of this package.
+	 */
+	protected static Language getSharedLanguage(String filename) throws IOException, ParseFailedException {
+		return getTestLanguageFromPath(Paths.get("test/resources/testcontents/"
+				+ ParserTestCase.class.getPackage().getName().replace('.', '/') + '/' + filename));
+	}
+
 	private static Language getTestLanguageFromPath(Path path)
 			throws IOException, ParseFailedException, AssertionError {
 		Language lang = Language.fromFile(path.toFile()).get("test");
@@ -61,6 +74,29 @@ public abstract class ParserTestCase extends SakerTestCase {
 		return stm;
 	}
 
+	/**
+	 * Prints the statement tree into a string.
+	 */
+	protected static String printStatement(Statement stm) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (PrintStream ps = new PrintStream(baos)) {
+			stm.prettyprintAll(ps);
+		}
+		return baos.toString();
+	}
+
+	/**
+	 * Prints the statement tree and the parsing information structure of the result into a string.
+	 */
+	protected static String printResult(ParsingResult result) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (PrintStream ps = new PrintStream(baos)) {
+			result.getStatement().prettyprintAll(ps);
+			result.printInformationStructure(ps);
+		}
+		return baos.toString();
+	}
+
 	public ParsingResult parseData(String data) throws ParseFailedException, IOException {
 		ParsingResult result = getLanguage().parseData(data);
 		validateResultConsistency(result);
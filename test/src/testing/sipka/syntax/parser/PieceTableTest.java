@@ -0,0 +1,151 @@
+package testing.sipka.syntax.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.parse.document.DocumentData;
+import sipka.syntax.parser.model.parse.document.PieceTable;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import sipka.syntax.parser.util.ArrayRangeCharSequence;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class PieceTableTest extends ParserTestCase {
+
+	@Override
+	public Language getLanguage() throws IOException, ParseFailedException {
+		return getSharedLanguage("assignments.lang");
+	}
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		PieceTable table = PieceTable.valueOf(ArrayRangeCharSequence.valueOf("abcdef"));
+		PieceTable modified = table.replace(2, 2, "xyz");
+		assertEquals(modified.toString(), "abxyzef");
+		assertEquals(modified.getPieceCount(), 3);
+		assertEquals(table.toString(), "abcdef");
+		assertEquals(modified.replace(0, 7, "").length(), 0);
+		assertException(IndexOutOfBoundsException.class, () -> table.replace(4, 3, ""));
+
+		long seed = System.currentTimeMillis();
+		System.out.println("Seed: " + seed);
+		testRandomEdits(new Random(seed), 5000);
+		testDocumentData(new Random(seed));
+		testRepair();
+	}
+
+	private static void testRandomEdits(Random r, int iterationcount) {
+		StringBuilder sb = new StringBuilder("0123456789");
+		PieceTable table = PieceTable.valueOf(ArrayRangeCharSequence.valueOf(sb));
+		List<PieceTable> versions = new ArrayList<>();
+		List<String> contents = new ArrayList<>();
+		for (int i = 0; i < iterationcount; i++) {
+			int offset = r.nextInt(sb.length() + 1);
+			int length = r.nextInt(Math.min(10, sb.length() - offset) + 1);
+			String text = randomText(r, r.nextInt(5));
+			sb.replace(offset, offset + length, text);
+			table = table.replace(offset, length, text);
+			assertEquals(table.length(), sb.length());
+			if (i % 100 == 0) {
+				assertEquals(table.toString(), sb.toString());
+				versions.add(table);
+				contents.add(sb.toString());
+			}
+			if (sb.length() > 0) {
+				int idx = r.nextInt(sb.length());
+				assertEquals(table.charAt(idx), sb.charAt(idx));
+				int end = idx + r.nextInt(sb.length() - idx + 1);
+				assertEquals(table.subSequence(idx, end).toString(), sb.substring(idx, end));
+				char[] chars = new char[end - idx];
+				table.getChars(idx, end, chars, 0);
+				assertEquals(new String(chars), sb.substring(idx, end));
+			}
+		}
+		//the previous versions are not modified
+		for (int i = 0; i < versions.size(); i++) {
+			assertEquals(versions.get(i).toString(), contents.get(i));
+		}
+	}
+
+	private static void testDocumentData(Random r) {
+		StringBuilder sb = new StringBuilder(randomText(r, 1000));
+		PieceTable table = PieceTable.valueOf(ArrayRangeCharSequence.valueOf(sb));
+		for (int i = 0; i < 100; i++) {
+			int offset = r.nextInt(sb.length() + 1);
+			String text = randomText(r, 1 + r.nextInt(5));
+			sb.insert(offset, text);
+			table = table.replace(offset, 0, text);
+		}
+		DocumentData doc = new DocumentData(table);
+		while (doc.length() > 0) {
+			int docoffset = doc.getDocumentOffset();
+			assertEquals(doc.toString(), sb.substring(docoffset));
+			assertTrue(doc.getContiguousLength() > 0, "contiguous");
+			for (int i = 0; i < Math.min(doc.length(), 20); i++) {
+				assertEquals(doc.charAt(i), sb.charAt(docoffset + i));
+			}
+			int end = Math.min(doc.length(), r.nextInt(20));
+			assertEquals(doc.subSequence(0, end).toString(), sb.substring(docoffset, docoffset + end));
+
+			DocumentData copy = new DocumentData(doc);
+			copy.removeFromStart(1 + r.nextInt(Math.min(copy.length(), 10)));
+			assertEquals(doc.getDocumentOffset(), docoffset);
+			doc = copy;
+		}
+	}
+
+	private void testRepair() throws Throwable {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("a=").append(i).append(' ');
+		}
+		ParsingResult result = parseData(sb.toString());
+		Object originalarray = backingArray(firstNumber(result.getStatement()));
+
+		//edits without accessing the raw value of the document between them
+		int[] positions = { 4000, 10, 2000, 3000, 1000, 6 };
+		for (int pos : positions) {
+			//insert at the start of an assignment
+			int offset = sb.indexOf(" ", pos) + 1;
+			result = repair(result, listOf(rr(offset, 0, "x=5 ")));
+			sb.insert(offset, "x=5 ");
+		}
+		Statement stm = result.getStatement();
+		Statement expected = parseData(sb.toString()).getStatement();
+		List<String> numbers = new ArrayList<>();
+		stm.collectValues("number", numbers);
+		List<String> expectednumbers = new ArrayList<>();
+		expected.collectValues("number", expectednumbers);
+		assertEquals(numbers, expectednumbers);
+		for (Statement assignment : stm.scopeTo("assignment")) {
+			//the raw values view the original document, or the inserted texts
+			Statement number = assignment.firstScope("number");
+			Object backing = backingArray(number);
+			assertTrue(backing == originalarray || java.lang.reflect.Array.getLength(backing) < 10,
+					number.getRawValue());
+		}
+		assertEquals(stm.getRawValue(), sb.toString());
+	}
+
+	private static Statement firstNumber(Statement stm) {
+		return stm.firstScope("assignment").firstScope("number");
+	}
+
+	private static Object backingArray(Statement stm) {
+		ArrayRangeCharSequence value = (ArrayRangeCharSequence) stm.getRawValueSequence();
+		return value.isLatin1() ? value.latin1Array() : value.array();
+	}
+
+	private static String randomText(Random r, int len) {
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append((char) ('a' + r.nextInt(26)));
+		}
+		return sb.toString();
+	}
+}
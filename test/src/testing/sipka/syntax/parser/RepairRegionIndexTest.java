@@ -0,0 +1,96 @@
+package testing.sipka.syntax.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import sipka.syntax.parser.model.statement.repair.ReparationRegion;
+import testing.saker.SakerTest;
+
+/**
+ * Tests that the statement positions are the same after repairing with multiple reparation regions as if the input
+ * was parsed from scratch.
+ */
+@SakerTest
+public class RepairRegionIndexTest extends ParserTestCase {
+	private static final String CHARACTERS = "abc123=, ";
+
+	@Override
+	public Language getLanguage() throws IOException, ParseFailedException {
+		return getSharedLanguage("assignments.lang");
+	}
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		testWithSeed(1234L);
+		testWithSeed(System.currentTimeMillis());
+	}
+
+	private void testWithSeed(long seed) throws Exception {
+		System.out.println("Seed: " + seed);
+		Random r = new Random(seed);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("key=").append(i).append(",").append(i * 3).append(" w ");
+		}
+		ParsingResult result = parseData(sb.toString());
+
+		for (int i = 0; i < 500; i++) {
+			StringBuilder nsb = new StringBuilder(sb);
+			List<ReparationRegion> regions = new ArrayList<>();
+			int count = 1 + r.nextInt(4);
+			for (int j = 0; j < count; j++) {
+				int editoffset = nsb.length() == 0 ? 0 : r.nextInt(nsb.length());
+				int editlen = Math.min(r.nextInt(4), nsb.length() - editoffset);
+				ReparationRegion rr = rr(editoffset, editlen, generateRandomText(r, r.nextInt(4)));
+				rr.apply(nsb);
+				regions.add(rr);
+			}
+			ParsingResult expected;
+			try {
+				expected = parseData(nsb.toString());
+			} catch (ParseFailedException e) {
+				//the modification results in invalid input
+				continue;
+			}
+			try {
+				ParsingResult nresult = repair(result, regions);
+				assertEquals(nresult.getStatement().getRawValue(), nsb.toString());
+				assertStatementsEqual(nresult.getStatement(), expected.getStatement());
+				result = nresult;
+				sb = nsb;
+			} catch (Throwable e) {
+				System.err.println("index: " + i);
+				System.err.println(regions);
+				System.err.println(sb);
+				throw e;
+			}
+		}
+	}
+
+	private static void assertStatementsEqual(Statement stm, Statement expected) {
+		assertEquals(stm.getName(), expected.getName());
+		assertEquals(stm.getValue(), expected.getValue());
+		assertEquals(stm.getPosition(), expected.getPosition());
+		List<Statement> children = stm.getDirectChildren();
+		List<Statement> expectedchildren = expected.getDirectChildren();
+		assertEquals(children.size(), expectedchildren.size());
+		for (int i = 0; i < children.size(); i++) {
+			assertStatementsEqual(children.get(i), expectedchildren.get(i));
+		}
+	}
+
+	private static String generateRandomText(Random r, int len) {
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append(CHARACTERS.charAt(r.nextInt(CHARACTERS.length())));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,74 @@
+package testing.sipka.syntax.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import sipka.syntax.parser.model.statement.repair.ReparationRegion;
+import testing.saker.SakerTest;
+
+@SakerTest
+public class ReparationCoalesceTest extends ParserTestCase {
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		//typing a word character by character
+		List<ReparationRegion> typing = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			typing.add(rr(3 + i, 0, "x"));
+		}
+		List<ReparationRegion> coalesced = ReparationRegion.coalesce("abcdef", typing);
+		assertEquals(coalesced.size(), 1);
+		assertEquals(coalesced.get(0).getOffset(), 3);
+		assertEquals(coalesced.get(0).getLength(), 0);
+		assertEquals(coalesced.get(0).getText().toString(), "xxxxx");
+
+		//insertion and its removal
+		assertEmpty(ReparationRegion.coalesce("abcdef", listOf(rr(2, 0, "xy"), rr(2, 2, ""))));
+		assertEmpty(ReparationRegion.coalesce("abcdef", listOf(rr(2, 0, ""), rr(0, 0, ""))));
+
+		//disjoint modifications are kept in descending order
+		coalesced = ReparationRegion.coalesce("abcdef", listOf(rr(0, 1, "x"), rr(4, 1, "yy")));
+		assertEquals(coalesced.size(), 2);
+		assertEquals(coalesced.get(0).getOffset(), 4);
+		assertEquals(coalesced.get(1).getOffset(), 0);
+
+		assertException(IndexOutOfBoundsException.class,
+				() -> ReparationRegion.coalesce("abc", listOf(rr(2, 0, ""), rr(2, 2, ""))));
+
+		long seed = System.currentTimeMillis();
+		System.out.println("Seed: " + seed);
+		Random r = new Random(seed);
+		for (int i = 0; i < 10000; i++) {
+			String document = randomText(r, r.nextInt(20));
+			StringBuilder expected = new StringBuilder(document);
+			List<ReparationRegion> regions = new ArrayList<>();
+			int count = r.nextInt(8);
+			for (int j = 0; j < count; j++) {
+				int offset = r.nextInt(expected.length() + 1);
+				int length = r.nextInt(Math.min(4, expected.length() - offset) + 1);
+				ReparationRegion rr = rr(offset, length, randomText(r, r.nextInt(4)));
+				rr.apply(expected);
+				regions.add(rr);
+			}
+			coalesced = ReparationRegion.coalesce(document, regions);
+			StringBuilder actual = new StringBuilder(document);
+			int prevoffset = Integer.MAX_VALUE;
+			for (ReparationRegion c : coalesced) {
+				assertTrue(c.getOffset() + c.getLength() < prevoffset, regions + " - " + coalesced);
+				assertTrue(c.getLength() > 0 || c.getText().length() > 0);
+				prevoffset = c.getOffset();
+				c.apply(actual);
+			}
+			assertEquals(actual.toString(), expected.toString(), regions + " - " + coalesced);
+		}
+	}
+
+	private static String randomText(Random r, int len) {
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append((char) ('a' + r.nextInt(3)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package testing.sipka.syntax.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import sipka.syntax.parser.model.ParseFailedException;
+import sipka.syntax.parser.model.parse.document.DocumentRegion;
+import sipka.syntax.parser.model.rule.Language;
+import sipka.syntax.parser.model.rule.ParsingResult;
+import sipka.syntax.parser.model.statement.Statement;
+import testing.saker.SakerTest;
+
+/**
+ * Tests that repairing doesn't modify the original statement tree, and shares the subtrees before the edit with it.
+ */
+@SakerTest
+public class SharedRepairTest extends ParserTestCase {
+
+	@Override
+	public Language getLanguage() throws IOException, ParseFailedException {
+		return getSharedLanguage("assignments.lang");
+	}
+
+	@Override
+	protected void runTestImpl() throws Throwable {
+		String data = "first=1,2 second=3 third=4,5,6";
+		ParsingResult result = parseData(data);
+		Statement stm = result.getStatement();
+		List<Statement> originals = new ArrayList<>();
+		List<DocumentRegion> originalpositions = new ArrayList<>();
+		collect(stm, originals, originalpositions);
+
+		//modify the last value
+		ParsingResult last = repair(result, listOf(rr(data.length() - 1, 1, "789")));
+		assertEquals(last.getStatement().getRawValue(), "first=1,2 second=3 third=4,5,789");
+		assertEquals(numbers(last.getStatement()), listOf("1", "2", "3", "4", "5", "789"));
+		assertUnmodified(stm, originals, originalpositions);
+
+		Statement firstassignment = stm.firstScope("assignment");
+		Statement secondassignment = stm.scopeTo("assignment").get(1);
+		assertIdentityEquals(last.getStatement().firstScope("assignment"), firstassignment);
+		assertIdentityEquals(last.getStatement().scopeTo("assignment").get(1), secondassignment);
+
+		//modify the first value, the subsequent statements are shifted
+		ParsingResult first = repair(result, listOf(rr(6, 1, "123")));
+		assertEquals(first.getStatement().getRawValue(), "first=123,2 second=3 third=4,5,6");
+		assertEquals(numbers(first.getStatement()), listOf("123", "2", "3", "4", "5", "6"));
+		assertEquals(first.getStatement().scopeTo("assignment").get(1).getOffset(),
+				secondassignment.getOffset() + 2);
+		//the shifted statements are copies, as the positions are absolute
+		assertTrue(first.getStatement().scopeTo("assignment").get(1) != secondassignment, "shifted copy");
+		assertUnmodified(stm, originals, originalpositions);
+
+		//the versions are independent
+		assertEquals(last.getStatement().getRawValue(), "first=1,2 second=3 third=4,5,789");
+		ParsingResult both = repair(last, listOf(rr(6, 1, "123")));
+		assertEquals(numbers(both.getStatement()), listOf("123", "2", "3", "4", "5", "789"));
+		assertEquals(numbers(last.getStatement()), listOf("1", "2", "3", "4", "5", "789"));
+		assertUnmodified(stm, originals, originalpositions);
+	}
+
+	private static List<String> numbers(Statement stm) {
+		List<String> result = new ArrayList<>();
+		stm.collectValues("number", result);
+		return result;
+	}
+
+	private static void assertUnmodified(Statement stm, List<Statement> originals,
+			List<DocumentRegion> originalpositions) {
+		List<Statement> statements = new ArrayList<>();
+		List<DocumentRegion> positions = new ArrayList<>();
+		collect(stm, statements, positions);
+		assertEquals(statements.size(), originals.size());
+		for (int i = 0; i < statements.size(); i++) {
+			assertIdentityEquals(statements.get(i), originals.get(i));
+		}
+		assertEquals(positions, originalpositions);
+	}
+
+	private static void collect(Statement stm, List<Statement> statements, List<DocumentRegion> positions) {
+		statements.add(stm);
+		positions.add(new DocumentRegion(stm.getPosition()));
+		for (Statement child : stm.getDirectChildren()) {
+			collect(child, statements, positions);
+		}
+	}
+}